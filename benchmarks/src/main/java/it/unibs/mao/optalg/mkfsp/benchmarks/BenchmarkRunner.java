@@ -0,0 +1,36 @@
+package it.unibs.mao.optalg.mkfsp.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar. It accepts the usual JMH command line
+ * options and always attaches the GC profiler, so that allocation rates are
+ * reported next to the throughput.
+ *
+ * Run from the repository root (where the {@code instances} directory is):
+ * <pre>
+ *   mvn clean package -DskipTests
+ *   java -cp benchmarks/target/benchmarks.jar:$GUROBI_HOME/lib/gurobi.jar \
+ *       it.unibs.mao.optalg.mkfsp.benchmarks.BenchmarkRunner [JMH OPTIONS]
+ * </pre>
+ * e.g. {@code -p instanceName=instance12 ConstructionBenchmark}.
+ */
+public class BenchmarkRunner {
+
+  public static void main(final String[] args) throws RunnerException, CommandLineOptionException {
+    final ChainedOptionsBuilder options = new OptionsBuilder()
+        .parent(new CommandLineOptions(args))
+        .addProfiler(GCProfiler.class);
+    if (System.getenv("GUROBI_HOME") == null) {
+      System.out.println("GUROBI_HOME is not set, skipping ModelBuildBenchmark");
+      options.exclude(ModelBuildBenchmark.class.getSimpleName());
+    }
+    new Runner(options.build()).run();
+  }
+}
@@ -0,0 +1,53 @@
+package it.unibs.mao.optalg.mkfsp.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import it.unibs.mao.optalg.mkfsp.grasp.ConstructionEngine;
+import it.unibs.mao.optalg.mkfsp.grasp.GRASP;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the GRASP constructive phase, both through a reused
+ * {@link ConstructionEngine} (what GRASP workers do) and through the one-off
+ * {@link GRASP#constructivePhase} entry point.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ConstructionBenchmark {
+
+  @State(Scope.Thread)
+  public static class EngineState {
+    public ConstructionEngine engine;
+    public Random random;
+
+    @Setup(Level.Trial)
+    public void setup(final InstanceState state) {
+      engine = new ConstructionEngine(state.compiled);
+      random = new Random(42);
+    }
+  }
+
+  @Benchmark
+  public int[] engineConstruct(final EngineState engineState) {
+    return engineState.engine.construct(engineState.random);
+  }
+
+  @Benchmark
+  public int[] constructivePhase(final InstanceState state, final EngineState engineState) {
+    return GRASP.constructivePhase(state.instance, engineState.random);
+  }
+}
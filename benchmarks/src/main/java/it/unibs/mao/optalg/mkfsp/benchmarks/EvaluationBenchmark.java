@@ -0,0 +1,40 @@
+package it.unibs.mao.optalg.mkfsp.benchmarks;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import it.unibs.mao.optalg.mkfsp.FeasibilityCheck;
+import it.unibs.mao.optalg.mkfsp.grasp.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the full (non incremental) evaluations of a solution.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EvaluationBenchmark {
+
+  @Benchmark
+  public double calculateObjectiveValue(final InstanceState state) {
+    return Utils.calculateObjectiveValue(state.instance, state.solution);
+  }
+
+  @Benchmark
+  public HashMap<Integer, Integer> calculateSplitForEachFamily(final InstanceState state) {
+    return Utils.calculateSplitForEachFamily(state.instance, state.solution);
+  }
+
+  @Benchmark
+  public FeasibilityCheck checkFeasibility(final InstanceState state) {
+    return state.instance.checkFeasibility(state.solution, state.objValue);
+  }
+}
@@ -0,0 +1,50 @@
+package it.unibs.mao.optalg.mkfsp.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+import it.unibs.mao.optalg.mkfsp.CompiledInstance;
+import it.unibs.mao.optalg.mkfsp.Instance;
+import it.unibs.mao.optalg.mkfsp.grasp.GRASP;
+import it.unibs.mao.optalg.mkfsp.grasp.SolutionEvaluator;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The instance a benchmark runs on, together with a fixed solution for the
+ * benchmarks that evaluate solutions.
+ *
+ * Instance files are looked up in the directory given by the system property
+ * {@code mkfsp.instances} (default: {@code instances}, relative to the
+ * working directory).
+ */
+@State(Scope.Benchmark)
+public class InstanceState {
+  public static final Path INSTANCES_DIR = Path.of(System.getProperty("mkfsp.instances", "instances"));
+
+  @Param({
+      "instance01", "instance02", "instance03", "instance04", "instance05", "instance06",
+      "instance07", "instance08", "instance09", "instance10", "instance11", "instance12"
+  })
+  public String instanceName;
+
+  public Path path;
+  public Instance instance;
+  public CompiledInstance compiled;
+  public int[] solution;
+  public double objValue;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    path = INSTANCES_DIR.resolve(instanceName + ".json");
+    instance = Instance.load(path);
+    compiled = CompiledInstance.of(instance);
+    // A fixed seed makes the evaluated solution the same across runs
+    solution = GRASP.constructivePhase(instance, new Random(42));
+    objValue = new SolutionEvaluator(compiled).load(solution.clone()).objective();
+  }
+}
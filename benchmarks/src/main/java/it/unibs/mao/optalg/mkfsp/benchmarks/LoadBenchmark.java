@@ -0,0 +1,45 @@
+package it.unibs.mao.optalg.mkfsp.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.unibs.mao.optalg.mkfsp.CompiledInstance;
+import it.unibs.mao.optalg.mkfsp.Instance;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of reading an instance file and of compiling it into the
+ * layout used by the algorithms. {@code objectMapper} is the data binding
+ * path {@link Instance#load} used before the streaming parser, kept as a
+ * baseline.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class LoadBenchmark {
+  private static final ObjectMapper OBJ_MAPPER = new ObjectMapper();
+
+  @Benchmark
+  public Instance load(final InstanceState state) throws IOException {
+    return Instance.load(state.path);
+  }
+
+  @Benchmark
+  public Instance objectMapper(final InstanceState state) throws IOException {
+    return OBJ_MAPPER.readValue(state.path.toFile(), Instance.class);
+  }
+
+  @Benchmark
+  public CompiledInstance compile(final InstanceState state) {
+    return CompiledInstance.of(state.instance);
+  }
+}
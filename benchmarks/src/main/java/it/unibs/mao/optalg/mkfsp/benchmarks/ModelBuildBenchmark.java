@@ -0,0 +1,66 @@
+package it.unibs.mao.optalg.mkfsp.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import it.unibs.mao.optalg.mkfsp.CompiledInstance;
+import it.unibs.mao.optalg.mkfsp.MipBackends;
+import it.unibs.mao.optalg.mkfsp.MipException;
+import it.unibs.mao.optalg.mkfsp.MipModel;
+import it.unibs.mao.optalg.mkfsp.MipSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the model construction of a MIP backend, Gurobi by default.
+ * The Gurobi backend needs a working Gurobi installation,
+ * {@link BenchmarkRunner} skips the benchmark when {@code GUROBI_HOME} is
+ * not set.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class ModelBuildBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class SessionState {
+    @Param({"gurobi"})
+    public String backend;
+
+    // Read by the Gurobi backend through ModelOptions.defaults()
+    @Param({"false", "true"})
+    public boolean namedVars;
+
+    public MipSession session;
+
+    @Setup(Level.Trial)
+    public void setup() throws MipException {
+      System.setProperty("mkfsp.model.namedVars", Boolean.toString(namedVars));
+      session = MipBackends.get(backend).open(false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws MipException {
+      session.close();
+    }
+  }
+
+  @Benchmark
+  public MipModel build(final InstanceState state, final SessionState sessionState) throws MipException {
+    try (MipModel model = sessionState.session.build(CompiledInstance.of(state.instance), null)) {
+      return model;
+    }
+  }
+}
@@ -30,10 +30,11 @@ fi
 
 mvn clean package -DskipTests
 
+# The Gurobi backend is only built when GUROBI_HOME is set, otherwise the pure Java backend is used
 if [[ `uname` = "MINGW"* ]]; then
-  ENGINE_CLASSPATH="target\classes:target\lib\*:$GUROBI_HOME\lib\gurobi.jar"
+  ENGINE_CLASSPATH="core\target\classes:core\target\lib\*:gurobi\target\classes:$GUROBI_HOME\lib\gurobi.jar"
 else
-  ENGINE_CLASSPATH="target/classes:target/lib/*:$GUROBI_HOME/lib/gurobi.jar"
+  ENGINE_CLASSPATH="core/target/classes:core/target/lib/*:gurobi/target/classes:$GUROBI_HOME/lib/gurobi.jar"
 fi
 
 java -cp $ENGINE_CLASSPATH it.unibs.mao.optalg.mkfsp.${@:-Main}
@@ -0,0 +1,316 @@
+package it.unibs.mao.optalg.mkfsp;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.unibs.mao.optalg.mkfsp.grasp.GRASP;
+import it.unibs.mao.optalg.mkfsp.grasp.GraspConfig;
+import it.unibs.mao.optalg.mkfsp.grasp.Solution;
+
+/**
+ * Solves a batch of instances without interaction, several at a time.
+ *
+ * Each solve uses {@link GraspConfig#getWorkers()} threads for GRASP and
+ * as many for the MIP search, so the number of concurrent solves defaults
+ * to the available processors divided by that and, the other way around,
+ * a given number of concurrent solves shares the processors among them.
+ * Instances are parsed by a
+ * separate thread ahead of the solves, and the number of instances that
+ * are loaded or being solved is bounded, so memory does not grow with the
+ * batch. Every solver thread owns a {@link MipSession} for the whole batch.
+ *
+ * Results are written as the solves finish: the solution of each instance
+ * in {@code <id>.json}, as {@link Main} does, and one line per instance in
+ * {@value #RESULTS_FILE}, keyed by the instance id (the file name without
+ * extension when the instance has no id or can not be loaded).
+ */
+public final class BatchRunner {
+  public static final String RESULTS_FILE = "results.csv";
+
+  private static final DateTimeFormatter DTF = DateTimeFormatter.ISO_LOCAL_DATE_TIME
+      .withZone(ZoneOffset.UTC);
+  private static final String GLOB_CHARS = "*?[{";
+
+  private final GraspConfig config;
+  private final int jobs;
+  private final int prefetch;
+  private final Path outputDir;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  /**
+   * @param config     the GRASP configuration of every solve, including
+   *                   the time budget of each instance
+   * @param jobs       the number of instances solved at the same time
+   * @param prefetch   the number of instances parsed ahead of the solves
+   * @param outputDir  where the solutions and the results are written
+   */
+  public BatchRunner(final GraspConfig config, final int jobs, final int prefetch, final Path outputDir) {
+    if (jobs < 1) {
+      throw new IllegalArgumentException("The number of jobs must be positive: " + jobs);
+    }
+    if (prefetch < 0) {
+      throw new IllegalArgumentException("The number of prefetched instances can not be negative: " + prefetch);
+    }
+    this.config = config;
+    this.jobs = jobs;
+    this.prefetch = prefetch;
+    this.outputDir = outputDir;
+  }
+
+  /**
+   * @return the number of concurrent solves that keep every processor busy
+   *         without oversubscribing it
+   */
+  public static int defaultJobs(final GraspConfig config) {
+    final int threadsPerSolve = config.getWorkers() * (config.isCooperative() ? 2 : 1);
+    return Math.max(1, Runtime.getRuntime().availableProcessors() / threadsPerSolve);
+  }
+
+  /**
+   * @return the GRASP workers of each of {@code jobs} concurrent solves
+   *         that keep every processor busy without oversubscribing it
+   */
+  public static int defaultWorkers(final GraspConfig config, final int jobs) {
+    final int threadsPerWorker = config.isCooperative() ? 2 : 1;
+    return Math.max(1, Runtime.getRuntime().availableProcessors() / (jobs * threadsPerWorker));
+  }
+
+  /**
+   * Expands the given arguments into instance files. An argument can be a
+   * file, a directory, whose JSON and binary instances are collected
+   * recursively, or a glob such as {@code instances/instance0*.json}.
+   *
+   * @return the instance files, sorted and without duplicates
+   */
+  public static List<Path> resolve(final List<String> patterns) throws IOException {
+    final List<Path> paths = new ArrayList<>();
+    for (final String pattern: patterns) {
+      int glob = pattern.length();
+      for (final char c: GLOB_CHARS.toCharArray()) {
+        final int index = pattern.indexOf(c);
+        glob = index >= 0 ? Math.min(glob, index) : glob;
+      }
+
+      if (glob < pattern.length()) {
+        // Walk from the longest directory without glob characters
+        final int separator = pattern.lastIndexOf('/', glob);
+        final Path base = Path.of(separator < 0 ? "" : separator == 0 ? "/" : pattern.substring(0, separator));
+        final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        try (final Stream<Path> stream = Files.walk(base)) {
+          stream.filter((path) -> Files.isRegularFile(path) && matcher.matches(path)).forEach(paths::add);
+        }
+      } else if (Files.isDirectory(Path.of(pattern))) {
+        try (final Stream<Path> stream = Files.walk(Path.of(pattern))) {
+          stream.filter((path) -> Files.isRegularFile(path) && isInstanceFile(path)).forEach(paths::add);
+        }
+      } else {
+        paths.add(Path.of(pattern));
+      }
+    }
+    return paths.stream().distinct().sorted().toList();
+  }
+
+  /**
+   * Solves the given instances and waits for the last one. A failed solve
+   * is reported in the results and does not stop the others.
+   *
+   * @return the number of failed solves
+   * @throws MipException if the solver sessions can not be opened
+   */
+  public int run(final List<Path> paths) throws IOException, MipException, InterruptedException {
+    Files.createDirectories(outputDir);
+    final BlockingQueue<MipSession> sessions = new ArrayBlockingQueue<>(jobs);
+    final ExecutorService loader = Executors.newSingleThreadExecutor();
+    final ExecutorService solvers = Executors.newFixedThreadPool(jobs);
+    final Semaphore slots = new Semaphore(jobs + prefetch);
+    final int[] failures = new int[1];
+    try (final BufferedWriter results = Files.newBufferedWriter(outputDir.resolve(RESULTS_FILE))) {
+      results.write("instance,objective,seconds,status");
+      results.newLine();
+      results.flush();
+      for (int t = 0; t < jobs; ++t) {
+        final MipSession session = MipBackends.open(false);
+        session.setThreads(config.getWorkers());
+        sessions.add(session);
+      }
+      System.out.println("Solving " + paths.size() + " instances, " + jobs + " at a time on the "
+          + sessions.peek().backend().name() + " MIP backend");
+
+      final List<CompletableFuture<Void>> futures = new ArrayList<>();
+      for (final Path path: paths) {
+        slots.acquire();
+        // The key of the results line, the instance id once it is loaded
+        final String[] id = { fileId(path) };
+        futures.add(CompletableFuture
+            .supplyAsync(() -> load(path), loader)
+            .thenAcceptAsync((instance) -> {
+              if (instance.id() != null) {
+                id[0] = instance.id();
+              }
+              solve(instance, id[0], sessions, results);
+            }, solvers)
+            .whenComplete((ignored, e) -> {
+              slots.release();
+              if (e != null) {
+                synchronized (failures) {
+                  failures[0] += 1;
+                }
+                System.err.println("Solving '" + path + "' failed: " + e.getCause());
+                writeLine(results, id[0] + ",,,FAILED");
+              }
+            }));
+      }
+      CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).exceptionally((e) -> null).join();
+    } finally {
+      loader.shutdownNow();
+      solvers.shutdownNow();
+      for (final MipSession session: sessions) {
+        session.close();
+      }
+    }
+    return failures[0];
+  }
+
+  private static Instance load(final Path path) {
+    try {
+      return Instance.load(path);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void solve(final Instance instance, final String id, final BlockingQueue<MipSession> sessions,
+      final BufferedWriter results) {
+    // There are as many sessions as solver threads, taking one never waits
+    final MipSession session = sessions.remove();
+    try {
+      final Solution solution = GRASP.grasp(instance, outputDir, config, session);
+      final FeasibilityCheck check = instance.checkFeasibility(solution.getSolution(),
+          solution.getObjectiveValue());
+      Files.writeString(outputDir.resolve(id + ".json"), objectMapper.writeValueAsString(solution));
+      writeLine(results, String.format(Locale.ROOT, "%s,%.0f,%.3f,%s", id,
+          solution.getObjectiveValue(), solution.getElapsedTimeInSecond(), check.isValid() ? "OK" : "INVALID"));
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      sessions.add(session);
+    }
+  }
+
+  private static void writeLine(final BufferedWriter results, final String line) {
+    synchronized (results) {
+      try {
+        results.write(line);
+        results.newLine();
+        results.flush();
+      } catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  /**
+   * @return the file name without the instance extension
+   */
+  private static String fileId(final Path path) {
+    final String name = path.getFileName().toString();
+    for (final String extension: new String[] { ".json", BinaryInstance.EXTENSION }) {
+      if (name.endsWith(extension)) {
+        return name.substring(0, name.length() - extension.length());
+      }
+    }
+    return name;
+  }
+
+  private static boolean isInstanceFile(final Path path) {
+    final String name = path.toString();
+    return name.endsWith(".json") || name.endsWith(BinaryInstance.EXTENSION);
+  }
+
+  private static void printUsage() {
+    System.out.println("Usage: BatchRunner [OPTIONS] PATH...");
+    System.out.println();
+    System.out.println("  PATH: an instance file, a directory of instances or a glob, e.g. 'instances/*.json'");
+    System.out.println();
+    System.out.println("Options:");
+    System.out.println("  --budget SECONDS  the time budget of each instance");
+    System.out.println("  --threads N       the GRASP workers and MIP threads of each solve (default: processors / jobs"
+        + " with --jobs, processors otherwise)");
+    System.out.println("  --jobs N          the instances solved at the same time (default: processors / threads)");
+    System.out.println("  --prefetch N      the instances parsed ahead of the solves (default: jobs)");
+    System.out.println("  --output DIR      where the results are written (default: output/<execution id>)");
+  }
+
+  /**
+   * Runs a batch from the command line, see {@link #printUsage()}. The
+   * exit code is 1 when a solve fails and 2 on invalid arguments.
+   */
+  public static void main(final String[] args) throws IOException, MipException, InterruptedException {
+    final GraspConfig config = new GraspConfig();
+    Integer threads = null;
+    Integer jobs = null;
+    Integer prefetch = null;
+    Path outputDir = null;
+    final List<String> patterns = new ArrayList<>();
+    try {
+      for (int a = 0; a < args.length; ++a) {
+        switch (args[a]) {
+          case "-h", "--help" -> {
+            printUsage();
+            return;
+          }
+          case "--budget" -> config.setTimeBudgetMillis(Math.round(Double.parseDouble(args[++a]) * 1000));
+          case "--threads" -> threads = Integer.parseInt(args[++a]);
+          case "--jobs" -> jobs = Integer.parseInt(args[++a]);
+          case "--prefetch" -> prefetch = Integer.parseInt(args[++a]);
+          case "--output" -> outputDir = Path.of(args[++a]);
+          default -> patterns.add(args[a]);
+        }
+      }
+    } catch (final ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+      System.err.println("Invalid arguments: " + e.getMessage());
+      printUsage();
+      System.exit(2);
+    }
+    if (patterns.isEmpty()) {
+      printUsage();
+      System.exit(2);
+    }
+
+    if (outputDir == null) {
+      // Windows does not allow the character ':' in file names
+      final String executionId = DTF.format(Instant.ofEpochMilli(System.currentTimeMillis())).replace(':', '_');
+      outputDir = Main.OUTPUT_DIR.resolve(executionId);
+    }
+    if (threads != null) {
+      config.setWorkers(threads);
+    } else if (jobs != null && jobs > 0 && System.getProperty("mkfsp.grasp.workers") == null) {
+      // Share the processors among the jobs instead of giving each one all of them
+      config.setWorkers(defaultWorkers(config, jobs));
+    }
+    final int nJobs = jobs != null ? jobs : defaultJobs(config);
+    final BatchRunner runner = new BatchRunner(config, nJobs, prefetch != null ? prefetch : nJobs, outputDir);
+    if (runner.run(resolve(patterns)) > 0) {
+      System.exit(1);
+    }
+  }
+}
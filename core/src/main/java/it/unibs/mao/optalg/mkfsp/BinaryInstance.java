@@ -0,0 +1,245 @@
+package it.unibs.mao.optalg.mkfsp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A MKFSP instance stored in the compact binary format and memory-mapped.
+ * The accessors expose read-only views over the mapped file, nothing is
+ * copied on the heap until {@link #toInstance()} or
+ * {@link CompiledInstance#of(BinaryInstance)} are called.
+ *
+ * The format is little endian and made of 4-byte words:
+ * <pre>
+ *   magic ("MKFS"), version, nItems, nFamilies, nKnapsacks, nResources, idLength
+ *   id             idLength UTF-8 bytes, zero padded to a multiple of 4
+ *   profits        nFamilies int32
+ *   penalties      nFamilies int32
+ *   firstItems     nFamilies int32
+ *   items          nItems * nResources int32, row-major
+ *   knapsacks      nKnapsacks * nResources int32, row-major
+ * </pre>
+ */
+public final class BinaryInstance {
+  public static final int MAGIC = 0x4D4B4653;
+  public static final int VERSION = 1;
+  public static final String EXTENSION = ".bin";
+
+  private static final int HEADER_INTS = 7;
+  private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+  private final String id;
+  private final int nItems;
+  private final int nFamilies;
+  private final int nKnapsacks;
+  private final int nResources;
+  private final IntBuffer profits;
+  private final IntBuffer penalties;
+  private final IntBuffer firstItems;
+  private final IntBuffer items;
+  private final IntBuffer knapsacks;
+
+  private BinaryInstance(final Path path, final ByteBuffer buffer) throws IOException {
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    if (buffer.remaining() < HEADER_INTS * Integer.BYTES || buffer.getInt(0) != MAGIC) {
+      throw new IOException("'" + path + "' is not a binary MKFSP instance");
+    }
+    final int version = buffer.getInt(4);
+    if (version != VERSION) {
+      throw new IOException("Unsupported binary instance version " + version + " in '" + path + "'");
+    }
+    nItems = buffer.getInt(8);
+    nFamilies = buffer.getInt(12);
+    nKnapsacks = buffer.getInt(16);
+    nResources = buffer.getInt(20);
+    final int idLength = buffer.getInt(24);
+    if (nItems < 0 || nFamilies < 0 || nKnapsacks < 0 || nResources < 0 || idLength < 0) {
+      throw new IOException("Negative size in the header of '" + path + "'");
+    }
+
+    final long idBytes = pad(idLength);
+    final long dataInts = 3L * nFamilies + (long) nItems * nResources + (long) nKnapsacks * nResources;
+    final long expectedSize = HEADER_INTS * Integer.BYTES + idBytes + dataInts * Integer.BYTES;
+    if (expectedSize != buffer.capacity()) {
+      throw new IOException(
+          "'" + path + "' contains " + buffer.capacity() + " bytes, expected " + expectedSize);
+    }
+
+    final byte[] idUtf8 = new byte[idLength];
+    buffer.get(HEADER_INTS * Integer.BYTES, idUtf8);
+    id = new String(idUtf8, StandardCharsets.UTF_8);
+
+    final IntBuffer data = buffer
+        .position(HEADER_INTS * Integer.BYTES + (int) idBytes)
+        .slice()
+        .order(ByteOrder.LITTLE_ENDIAN)
+        .asIntBuffer()
+        .asReadOnlyBuffer();
+    int offset = 0;
+    profits = data.slice(offset, nFamilies);
+    offset += nFamilies;
+    penalties = data.slice(offset, nFamilies);
+    offset += nFamilies;
+    firstItems = data.slice(offset, nFamilies);
+    offset += nFamilies;
+    for (int j = 0; j < nFamilies; ++j) {
+      final int first = firstItems.get(j);
+      final int previous = j > 0 ? firstItems.get(j-1) : 0;
+      if (first < previous || first > nItems || (j == 0 && first != 0)) {
+        throw new IOException("Invalid first item " + first + " for family " + j + " in '" + path + "'");
+      }
+    }
+    items = data.slice(offset, nItems * nResources);
+    offset += nItems * nResources;
+    knapsacks = data.slice(offset, nKnapsacks * nResources);
+  }
+
+  /**
+   * Memory-maps a binary instance file. The mapping stays valid after the
+   * file channel is closed and is released when this object is collected.
+   *
+   * @param path  the path of a file written by {@link #write(Instance, Path)}
+   * @return      the mapped instance
+   * @throws IOException if the file can not be read or is malformed
+   */
+  public static BinaryInstance map(final Path path) throws IOException {
+    try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      final long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("'" + path + "' is larger than 2 GiB and can not be mapped at once");
+      }
+      final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      return new BinaryInstance(path, buffer);
+    }
+  }
+
+  /**
+   * Writes the given instance in the binary format.
+   */
+  public static void write(final Instance instance, final Path path) throws IOException {
+    final byte[] idUtf8 = instance.id() == null
+        ? new byte[0]
+        : instance.id().getBytes(StandardCharsets.UTF_8);
+    final int nResources = instance.nResources();
+
+    try (final FileChannel channel = FileChannel.open(path,
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      buffer.putInt(MAGIC).putInt(VERSION)
+          .putInt(instance.nItems()).putInt(instance.nFamilies())
+          .putInt(instance.nKnapsacks()).putInt(nResources)
+          .putInt(idUtf8.length);
+      flush(channel, buffer);
+      final ByteBuffer idBuffer = ByteBuffer.allocate((int) pad(idUtf8.length)).put(idUtf8);
+      idBuffer.clear();
+      while (idBuffer.hasRemaining()) {
+        channel.write(idBuffer);
+      }
+
+      checkLength(instance.profits(), instance.nFamilies(), "profits");
+      putInts(channel, buffer, instance.profits());
+      checkLength(instance.penalties(), instance.nFamilies(), "penalties");
+      putInts(channel, buffer, instance.penalties());
+      checkLength(instance.firstItems(), instance.nFamilies(), "first_items");
+      putInts(channel, buffer, instance.firstItems());
+      if (instance.items().length != instance.nItems() || instance.knapsacks().length != instance.nKnapsacks()) {
+        throw new IOException("The number of items or knapsacks does not match the declared one");
+      }
+      for (final int[] item: instance.items()) {
+        checkLength(item, nResources, "an item");
+        putInts(channel, buffer, item);
+      }
+      for (final int[] knapsack: instance.knapsacks()) {
+        checkLength(knapsack, nResources, "a knapsack");
+        putInts(channel, buffer, knapsack);
+      }
+      flush(channel, buffer);
+    }
+  }
+
+  /**
+   * Converts a JSON instance file into a binary one.
+   */
+  public static void convert(final Path jsonPath, final Path binaryPath) throws IOException {
+    write(Instance.load(jsonPath), binaryPath);
+  }
+
+  /**
+   * Copies the mapped data into a new {@link Instance} object.
+   */
+  public Instance toInstance() {
+    final int[][] itemRows = new int[nItems][nResources];
+    for (int i = 0; i < nItems; ++i) {
+      items.get(i * nResources, itemRows[i]);
+    }
+    final int[][] knapsackRows = new int[nKnapsacks][nResources];
+    for (int k = 0; k < nKnapsacks; ++k) {
+      knapsacks.get(k * nResources, knapsackRows[k]);
+    }
+    return new Instance(id, nItems, nFamilies, nKnapsacks, nResources,
+        toArray(profits), toArray(penalties), toArray(firstItems), itemRows, knapsackRows);
+  }
+
+  public String id() { return id; }
+
+  public int nItems() { return nItems; }
+
+  public int nFamilies() { return nFamilies; }
+
+  public int nKnapsacks() { return nKnapsacks; }
+
+  public int nResources() { return nResources; }
+
+  public IntBuffer profits() { return profits.duplicate(); }
+
+  public IntBuffer penalties() { return penalties.duplicate(); }
+
+  public IntBuffer firstItems() { return firstItems.duplicate(); }
+
+  /** @return the item demands, row-major ({@code nItems * nResources} values) */
+  public IntBuffer items() { return items.duplicate(); }
+
+  /** @return the knapsack capacities, row-major ({@code nKnapsacks * nResources} values) */
+  public IntBuffer knapsacks() { return knapsacks.duplicate(); }
+
+  static int[] toArray(final IntBuffer buffer) {
+    final int[] values = new int[buffer.remaining()];
+    buffer.get(buffer.position(), values);
+    return values;
+  }
+
+  private static long pad(final int length) {
+    return (length + 3L) & ~3L;
+  }
+
+  private static void checkLength(final int[] values, final int expected, final String what) throws IOException {
+    if (values.length != expected) {
+      throw new IOException("Found " + what + " with " + values.length + " values instead of " + expected);
+    }
+  }
+
+  private static void putInts(final FileChannel channel, final ByteBuffer buffer, final int[] values)
+      throws IOException {
+    for (final int value: values) {
+      if (buffer.remaining() < Integer.BYTES) {
+        flush(channel, buffer);
+      }
+      buffer.putInt(value);
+    }
+  }
+
+  private static void flush(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+}
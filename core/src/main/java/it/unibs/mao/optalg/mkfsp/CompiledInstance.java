@@ -0,0 +1,182 @@
+package it.unibs.mao.optalg.mkfsp;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * A read-only view of a MKFSP instance laid out for the algorithms' hot
+ * loops: resources are stored in contiguous row-major {@code int[]} blocks
+ * and the family ranges, sizes and aggregate demands are precomputed.
+ *
+ * Build it once per instance and share it between threads; the arrays
+ * returned by the accessors must not be modified.
+ */
+public final class CompiledInstance {
+  private final String id;
+  private final int nItems;
+  private final int nFamilies;
+  private final int nKnapsacks;
+  private final int nResources;
+  private final int[] profits;
+  private final int[] penalties;
+  private final int[] firstItems;
+
+  private final int[] familyEnd;
+  private final int[] familySize;
+  private final int[] itemFamily;
+  private final int[] itemResources;
+  private final int[] capacities;
+  private final int[] familyDemand;
+  private final int maxFamilySize;
+
+  private volatile Instance instance;
+
+  private CompiledInstance(final String id, final int nItems, final int nFamilies, final int nKnapsacks,
+      final int nResources, final int[] profits, final int[] penalties, final int[] firstItems,
+      final int[] itemResources, final int[] capacities) {
+    this.id = id;
+    this.nItems = nItems;
+    this.nFamilies = nFamilies;
+    this.nKnapsacks = nKnapsacks;
+    this.nResources = nResources;
+    this.profits = profits;
+    this.penalties = penalties;
+    this.firstItems = firstItems;
+    this.itemResources = itemResources;
+    this.capacities = capacities;
+
+    familyEnd = new int[nFamilies];
+    familySize = new int[nFamilies];
+    itemFamily = new int[nItems];
+    familyDemand = new int[nFamilies * nResources];
+    int maxSize = 0;
+    for (int j = 0; j < nFamilies; ++j) {
+      familyEnd[j] = j+1 < nFamilies ? firstItems[j+1] : nItems;
+      familySize[j] = familyEnd[j] - firstItems[j];
+      maxSize = Math.max(maxSize, familySize[j]);
+      for (int i = firstItems[j]; i < familyEnd[j]; ++i) {
+        itemFamily[i] = j;
+        for (int r = 0; r < nResources; ++r) {
+          familyDemand[j * nResources + r] += itemResources[i * nResources + r];
+        }
+      }
+    }
+    this.maxFamilySize = maxSize;
+  }
+
+  /**
+   * Compiles the given instance, in O(nItems * nResources).
+   */
+  public static CompiledInstance of(final Instance instance) {
+    final int nItems = instance.nItems();
+    final int nKnapsacks = instance.nKnapsacks();
+    final int nResources = instance.nResources();
+    final int[][] items = instance.items();
+    final int[][] knapsacks = instance.knapsacks();
+
+    final int[] itemResources = new int[nItems * nResources];
+    for (int i = 0; i < nItems; ++i) {
+      System.arraycopy(items[i], 0, itemResources, i * nResources, nResources);
+    }
+    final int[] capacities = new int[nKnapsacks * nResources];
+    for (int k = 0; k < nKnapsacks; ++k) {
+      System.arraycopy(knapsacks[k], 0, capacities, k * nResources, nResources);
+    }
+
+    final CompiledInstance compiled = new CompiledInstance(instance.id(), nItems, instance.nFamilies(),
+        nKnapsacks, nResources, instance.profits(), instance.penalties(), instance.firstItems(),
+        itemResources, capacities);
+    compiled.instance = instance;
+    return compiled;
+  }
+
+  /**
+   * Compiles a memory-mapped binary instance with one bulk copy per block,
+   * without building the {@code int[][]} rows of {@link Instance}.
+   */
+  public static CompiledInstance of(final BinaryInstance binary) {
+    return new CompiledInstance(binary.id(), binary.nItems(), binary.nFamilies(), binary.nKnapsacks(),
+        binary.nResources(), BinaryInstance.toArray(binary.profits()),
+        BinaryInstance.toArray(binary.penalties()), BinaryInstance.toArray(binary.firstItems()),
+        BinaryInstance.toArray(binary.items()), BinaryInstance.toArray(binary.knapsacks()));
+  }
+
+  /**
+   * Loads and compiles the instance stored in the given file, either a JSON
+   * file or a binary one (recognized by the {@value BinaryInstance#EXTENSION}
+   * extension).
+   *
+   * @see Instance#load(Path)
+   * @see BinaryInstance#map(Path)
+   */
+  public static CompiledInstance load(final Path path) throws IOException {
+    if (path.toString().endsWith(BinaryInstance.EXTENSION)) {
+      return of(BinaryInstance.map(path));
+    }
+    return of(Instance.load(path));
+  }
+
+  /**
+   * @return the instance this view has been compiled from, rebuilt from the
+   *         flat arrays the first time it is needed when the view comes
+   *         from a binary instance
+   */
+  public Instance instance() {
+    Instance result = instance;
+    if (result == null) {
+      synchronized (this) {
+        result = instance;
+        if (result == null) {
+          final int[][] items = new int[nItems][];
+          for (int i = 0; i < nItems; ++i) {
+            items[i] = Arrays.copyOfRange(itemResources, i * nResources, (i+1) * nResources);
+          }
+          final int[][] knapsacks = new int[nKnapsacks][];
+          for (int k = 0; k < nKnapsacks; ++k) {
+            knapsacks[k] = Arrays.copyOfRange(capacities, k * nResources, (k+1) * nResources);
+          }
+          result = new Instance(id, nItems, nFamilies, nKnapsacks, nResources,
+              profits, penalties, firstItems, items, knapsacks);
+          instance = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  public String id() { return id; }
+
+  public int nItems() { return nItems; }
+
+  public int nFamilies() { return nFamilies; }
+
+  public int nKnapsacks() { return nKnapsacks; }
+
+  public int nResources() { return nResources; }
+
+  public int[] profits() { return profits; }
+
+  public int[] penalties() { return penalties; }
+
+  public int[] firstItems() { return firstItems; }
+
+  /** @return the exclusive end of the item range of each family */
+  public int[] familyEnd() { return familyEnd; }
+
+  public int[] familySize() { return familySize; }
+
+  public int maxFamilySize() { return maxFamilySize; }
+
+  /** @return the family of each item */
+  public int[] itemFamily() { return itemFamily; }
+
+  /** @return the resource demands, item {@code i} uses {@code [i*nResources, (i+1)*nResources)} */
+  public int[] itemResources() { return itemResources; }
+
+  /** @return the capacities, knapsack {@code k} uses {@code [k*nResources, (k+1)*nResources)} */
+  public int[] capacities() { return capacities; }
+
+  /** @return the total demand of each family, family {@code j} uses {@code [j*nResources, (j+1)*nResources)} */
+  public int[] familyDemand() { return familyDemand; }
+}
@@ -0,0 +1,26 @@
+package it.unibs.mao.optalg.mkfsp;
+
+/**
+ * Lets a MIP solve trade incumbents with heuristics running at the same
+ * time, see {@link MipModel#cooperate}. Solutions are arrays with the knapsack
+ * of each item or -1, as in {@link Instance#checkFeasibility}.
+ *
+ * The methods are called from within the solve, e.g. from the Gurobi
+ * callback, so they must be quick and must not block on the heuristics.
+ */
+public interface IncumbentExchange {
+
+  /**
+   * @param objective  the objective value of the solver incumbent
+   * @return           the best heuristic solution if its value is strictly
+   *                   greater than {@code objective}, null otherwise. The
+   *                   array is not modified by the caller
+   */
+  int[] solutionBetterThan(double objective);
+
+  /**
+   * Receives a new incumbent found by the solver. The array is owned by
+   * the receiver.
+   */
+  void offerSolverSolution(int[] solution);
+}
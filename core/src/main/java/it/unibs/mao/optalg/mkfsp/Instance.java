@@ -10,11 +10,17 @@ import java.util.Map;
 import java.util.Set;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * An immutable class that holds a MKFSP instance data.
  */
+// The annotations keep the record usable with an ObjectMapper (loading goes
+// through InstanceParser). Property naming strategies do not work with Java
+// record, see this issue
+//   https://github.com/FasterXML/jackson-databind/issues/2992
+// A temporary workaround is to manually annotate the fields with the wrong
+// naming pattern. When bug is fixed it will be enough to use
+//   .setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE);
 public record Instance(
     String id,
     @JsonProperty("n_items") int nItems,
@@ -27,23 +33,23 @@ public record Instance(
     int[][] items,
     int[][] knapsacks) {
 
-  // Property naming strategies do not work with Java record, see this issue
-  //   https://github.com/FasterXML/jackson-databind/issues/2992
-  // A temporary workaround is to manually annotate the fields with the wrong
-  // naming pattern. When bug is fixed it will be enough to use
-  //   .setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE);
-  private static final ObjectMapper OBJ_MAPPER = new ObjectMapper();
-
   /**
    * Reads a JSON file containing a MKFSP instance data and returns the
-   * corresponding Instance object.
+   * corresponding Instance object, using the default
+   * {@link InstanceParser}. Files with the
+   * {@value BinaryInstance#EXTENSION} extension are read as binary instances.
    *
-   * @param path  the path to the JSON file
+   * @param path  the path to the JSON or binary file
    * @return      the instance object
    * @throws IOException
+   * @see InstanceParser
+   * @see BinaryInstance
    */
   public static Instance load(final Path path) throws IOException {
-    return OBJ_MAPPER.readValue(path.toFile(), Instance.class);
+    if (path.toString().endsWith(BinaryInstance.EXTENSION)) {
+      return BinaryInstance.map(path).toInstance();
+    }
+    return InstanceParser.getDefault().parse(path);
   }
 
   /**
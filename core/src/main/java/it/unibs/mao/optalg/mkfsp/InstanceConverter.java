@@ -0,0 +1,47 @@
+package it.unibs.mao.optalg.mkfsp;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Converts JSON instance files into the binary format read by
+ * {@link BinaryInstance}.
+ *
+ * Usage: {@code ./car.sh InstanceConverter [-o OUTPUT_DIR] FILE...}. Each
+ * {@code name.json} is written as {@code name.bin} in the output directory,
+ * or next to the original file when no directory is given.
+ */
+public class InstanceConverter {
+
+  public static void main(final String[] args) throws IOException {
+    Path outputDir = null;
+    int first = 0;
+    if (args.length >= 2 && args[0].equals("-o")) {
+      outputDir = Path.of(args[1]);
+      Files.createDirectories(outputDir);
+      first = 2;
+    }
+    if (first == args.length) {
+      System.out.println("Usage: InstanceConverter [-o OUTPUT_DIR] FILE...");
+      return;
+    }
+
+    for (int a = first; a < args.length; ++a) {
+      final Path jsonPath = Path.of(args[a]);
+      final String fileName = jsonPath.getFileName().toString();
+      final String baseName = fileName.endsWith(".json")
+          ? fileName.substring(0, fileName.length() - ".json".length())
+          : fileName;
+      final Path dir = outputDir != null ? outputDir : jsonPath.toAbsolutePath().getParent();
+      final Path binaryPath = dir.resolve(baseName + BinaryInstance.EXTENSION);
+
+      final long start = System.currentTimeMillis();
+      BinaryInstance.convert(jsonPath, binaryPath);
+      System.out.println(
+          jsonPath + " -> " + binaryPath + " (" + Files.size(jsonPath) + " -> " +
+          Files.size(binaryPath) + " bytes, " + (System.currentTimeMillis() - start) + " ms)"
+      );
+    }
+  }
+}
@@ -0,0 +1,222 @@
+package it.unibs.mao.optalg.mkfsp;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Reads JSON instance files with Jackson's streaming parser, straight into
+ * primitive arrays and without going through the data binding layer.
+ *
+ * The properties can appear in any order: when the sizes come before the
+ * arrays (as in the generated instances) every array is allocated once
+ * with its declared length, otherwise it is read into a growable buffer.
+ * Once the whole document has been read the arrays are checked against
+ * the declared sizes.
+ *
+ * A parser holds no state between calls and can be shared between threads.
+ */
+public final class InstanceParser {
+  /** The default size in bytes of the read buffer. */
+  public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+  private static final InstanceParser DEFAULT = new InstanceParser(DEFAULT_BUFFER_SIZE);
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final int bufferSize;
+
+  /**
+   * @param bufferSize  the size in bytes of the buffer used to read files
+   */
+  public InstanceParser(final int bufferSize) {
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("bufferSize must be positive, got " + bufferSize);
+    }
+    this.bufferSize = bufferSize;
+  }
+
+  /**
+   * @return a shared parser using a {@value #DEFAULT_BUFFER_SIZE} bytes buffer
+   */
+  public static InstanceParser getDefault() {
+    return DEFAULT;
+  }
+
+  public int bufferSize() {
+    return bufferSize;
+  }
+
+  /**
+   * Parses the JSON instance stored in the given file.
+   *
+   * @param path  the path to the JSON file
+   * @return      the instance object
+   * @throws IOException if the file can not be read, is not valid JSON or
+   *                     its content does not match the declared sizes
+   */
+  public Instance parse(final Path path) throws IOException {
+    try (final InputStream in = new BufferedInputStream(Files.newInputStream(path), bufferSize);
+         final JsonParser parser = JSON_FACTORY.createParser(in)) {
+      return parse(parser);
+    } catch (final JsonParseException e) {
+      throw new IOException("Malformed instance file '" + path + "': " + e.getOriginalMessage(), e);
+    }
+  }
+
+  private static Instance parse(final JsonParser parser) throws IOException {
+    expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+
+    String id = null;
+    int nItems = -1;
+    int nFamilies = -1;
+    int nKnapsacks = -1;
+    int nResources = -1;
+    int[] profits = null;
+    int[] penalties = null;
+    int[] firstItems = null;
+    int[][] items = null;
+    int[][] knapsacks = null;
+
+    for (JsonToken token = parser.nextToken(); token != JsonToken.END_OBJECT; token = parser.nextToken()) {
+      expect(parser, token, JsonToken.FIELD_NAME);
+      final String name = parser.getCurrentName();
+      token = parser.nextToken();
+      switch (name) {
+        case "id" -> {
+          if (token == JsonToken.VALUE_NULL) {
+            id = null;
+          } else {
+            expect(parser, token, JsonToken.VALUE_STRING);
+            id = parser.getText();
+          }
+        }
+        case "n_items" -> nItems = readSize(parser, token);
+        case "n_families" -> nFamilies = readSize(parser, token);
+        case "n_knapsacks" -> nKnapsacks = readSize(parser, token);
+        case "n_resources" -> nResources = readSize(parser, token);
+        case "profits" -> profits = readArray(parser, token, nFamilies);
+        case "penalties" -> penalties = readArray(parser, token, nFamilies);
+        case "first_items" -> firstItems = readArray(parser, token, nFamilies);
+        case "items" -> items = readMatrix(parser, token, nItems, nResources);
+        case "knapsacks" -> knapsacks = readMatrix(parser, token, nKnapsacks, nResources);
+        default -> throw new JsonParseException(parser, "Unknown property '" + name + "'");
+      }
+    }
+
+    checkSize(parser, nItems, "n_items");
+    checkSize(parser, nFamilies, "n_families");
+    checkSize(parser, nKnapsacks, "n_knapsacks");
+    checkSize(parser, nResources, "n_resources");
+    checkLength(parser, profits, nFamilies, "profits");
+    checkLength(parser, penalties, nFamilies, "penalties");
+    checkLength(parser, firstItems, nFamilies, "first_items");
+    checkRows(parser, items, nItems, nResources, "items");
+    checkRows(parser, knapsacks, nKnapsacks, nResources, "knapsacks");
+    for (int j = 0; j < nFamilies; ++j) {
+      final int previous = j > 0 ? firstItems[j-1] : 0;
+      if (firstItems[j] < previous || firstItems[j] > nItems || (j == 0 && firstItems[j] != 0)) {
+        throw new JsonParseException(parser, "Invalid first item " + firstItems[j] + " for family " + j);
+      }
+    }
+
+    return new Instance(id, nItems, nFamilies, nKnapsacks, nResources,
+        profits, penalties, firstItems, items, knapsacks);
+  }
+
+  /**
+   * Reads an array of integers. When {@code expectedLength} is known the
+   * array is allocated once, otherwise it grows as needed and is trimmed.
+   */
+  private static int[] readArray(final JsonParser parser, final JsonToken start, final int expectedLength)
+      throws IOException {
+    expect(parser, start, JsonToken.START_ARRAY);
+    int[] values = new int[expectedLength >= 0 ? expectedLength : INITIAL_CAPACITY];
+    int length = 0;
+    for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+      expect(parser, token, JsonToken.VALUE_NUMBER_INT);
+      if (length == values.length) {
+        if (expectedLength >= 0) {
+          throw new JsonParseException(parser, "Array longer than the declared size " + expectedLength);
+        }
+        values = Arrays.copyOf(values, Math.max(INITIAL_CAPACITY, 2 * length));
+      }
+      values[length++] = parser.getIntValue();
+    }
+    return length == values.length ? values : Arrays.copyOf(values, length);
+  }
+
+  private static int[][] readMatrix(final JsonParser parser, final JsonToken start, final int expectedRows,
+      final int expectedColumns) throws IOException {
+    expect(parser, start, JsonToken.START_ARRAY);
+    int[][] rows = new int[expectedRows >= 0 ? expectedRows : INITIAL_CAPACITY][];
+    int length = 0;
+    for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+      if (length == rows.length) {
+        if (expectedRows >= 0) {
+          throw new JsonParseException(parser, "Array longer than the declared size " + expectedRows);
+        }
+        rows = Arrays.copyOf(rows, Math.max(INITIAL_CAPACITY, 2 * length));
+      }
+      rows[length++] = readArray(parser, token, expectedColumns);
+    }
+    return length == rows.length ? rows : Arrays.copyOf(rows, length);
+  }
+
+  private static int readSize(final JsonParser parser, final JsonToken token) throws IOException {
+    expect(parser, token, JsonToken.VALUE_NUMBER_INT);
+    final int size = parser.getIntValue();
+    if (size < 0) {
+      throw new JsonParseException(parser, "Negative size " + size);
+    }
+    return size;
+  }
+
+  private static void expect(final JsonParser parser, final JsonToken actual, final JsonToken expected)
+      throws JsonParseException {
+    if (actual != expected) {
+      throw new JsonParseException(parser, "Expected " + expected + " but found " + actual);
+    }
+  }
+
+  private static void checkSize(final JsonParser parser, final int size, final String name)
+      throws JsonParseException {
+    if (size < 0) {
+      throw new JsonParseException(parser, "Missing property '" + name + "'");
+    }
+  }
+
+  private static void checkLength(final JsonParser parser, final int[] values, final int expected,
+      final String name) throws JsonParseException {
+    if (values == null) {
+      throw new JsonParseException(parser, "Missing property '" + name + "'");
+    } else if (values.length != expected) {
+      throw new JsonParseException(parser,
+          "'" + name + "' contains " + values.length + " values instead of " + expected);
+    }
+  }
+
+  private static void checkRows(final JsonParser parser, final int[][] rows, final int expectedRows,
+      final int expectedColumns, final String name) throws JsonParseException {
+    if (rows == null) {
+      throw new JsonParseException(parser, "Missing property '" + name + "'");
+    } else if (rows.length != expectedRows) {
+      throw new JsonParseException(parser,
+          "'" + name + "' contains " + rows.length + " rows instead of " + expectedRows);
+    }
+    for (int i = 0; i < rows.length; ++i) {
+      if (rows[i].length != expectedColumns) {
+        throw new JsonParseException(parser,
+            "Row " + i + " of '" + name + "' contains " + rows[i].length + " values instead of " + expectedColumns);
+      }
+    }
+  }
+}
@@ -13,8 +13,8 @@ import java.util.List;
 import java.util.stream.Stream;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import gurobi.GRBException;
 import it.unibs.mao.optalg.mkfsp.grasp.GRASP;
+import it.unibs.mao.optalg.mkfsp.grasp.GraspConfig;
 import it.unibs.mao.optalg.mkfsp.grasp.Solution;
 
 public class Main {
@@ -28,13 +28,24 @@ public class Main {
    * A simple example of how to use the functions provided in this codebase.
    *
    * Scan the `INSTANCES_DIR` directory reading each MKFSP instance data file
-   * and solve the associated Gurobi ILP model with a time limit of 60 seconds.
+   * and solve the associated ILP model with a time limit of 60 seconds. The
+   * ILP model is solved by the first available {@link MipBackend}, see
+   * {@link MipBackends}.
    *
-   * @param args  Not used
-   * @throws GRBException
+   * With arguments, the instances are solved without interaction by
+   * {@link BatchRunner} instead.
+   *
+   * @param args  the arguments of {@link BatchRunner#main}, if any
+   * @throws MipException
    * @throws IOException
+   * @throws InterruptedException
    */
-  public static void main(final String[] args) throws GRBException, IOException {
+  public static void main(final String[] args) throws MipException, IOException, InterruptedException {
+    if (args.length > 0) {
+      BatchRunner.main(args);
+      return;
+    }
+
     final Instant now = Instant.ofEpochMilli(System.currentTimeMillis());
     // Windows does not allow the character ':' in file names
     final String executionId = DTF.format(now).replace(':', '_');
@@ -67,7 +78,11 @@ public class Main {
     final Path outputDir = OUTPUT_DIR.resolve(executionId);
     Files.createDirectories(outputDir);
 
-    try {
+    // One solver session, e.g. a Gurobi environment, for all the instances
+    // One configuration for all the instances, its scheduler learns from each solve
+    final GraspConfig config = new GraspConfig();
+    try (final MipSession session = MipBackends.open(true)) {
+      System.out.println("MIP backend: " + session.backend().name());
       for (final Path path: paths) {
         System.out.println("------------------------------------------------------------");
         System.out.println("Solving instance '" + path.getFileName() + "'");
@@ -76,7 +91,7 @@ public class Main {
 
 
         // Call GRASP algorithm
-        Solution solution = GRASP.grasp(instance, outputDir);
+        Solution solution = GRASP.grasp(instance, outputDir, config, session);
 
         //Save heuristic solution to a json file
         Path filePath = outputDir.resolve(instance.id() + ".json");
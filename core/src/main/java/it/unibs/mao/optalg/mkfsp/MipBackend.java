@@ -0,0 +1,37 @@
+package it.unibs.mao.optalg.mkfsp;
+
+/**
+ * A solver that can optimize the MKFSP model, e.g. Gurobi. Backends are
+ * discovered with {@link java.util.ServiceLoader}, so an implementation
+ * is picked up as soon as its jar is on the class path: see
+ * {@link MipBackends} for how one is chosen at runtime.
+ *
+ * Implementations must have a public no-argument constructor and must not
+ * touch native libraries or licenses before {@link #open} is called.
+ */
+public interface MipBackend {
+
+  /**
+   * @return the name used to select the backend with
+   *         {@code -Dmkfsp.mip.backend}, e.g. {@code gurobi}
+   */
+  String name();
+
+  /**
+   * @return the preference of the backend when none is selected, the
+   *         available backend with the highest priority is used
+   */
+  int priority();
+
+  /**
+   * Starts a new session, checking out the license if the solver needs
+   * one.
+   *
+   * @param output  whether the models built in the session print the
+   *                solver log
+   * @return        the new session
+   * @throws MipException if the solver is not installed or no license is
+   *                      available
+   */
+  MipSession open(boolean output) throws MipException;
+}
@@ -0,0 +1,85 @@
+package it.unibs.mao.optalg.mkfsp;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * A utility class with static methods that find the {@link MipBackend}
+ * implementations on the class path and open a session with one of them.
+ * This class can not be instantiated.
+ *
+ * The backend is the one named by {@code -Dmkfsp.mip.backend}, if the
+ * property is set. Otherwise the backends are tried by decreasing
+ * {@link MipBackend#priority() priority} and the first one that opens a
+ * session is used, so that e.g. nodes without a Gurobi license fall back
+ * to the pure Java backend.
+ */
+public class MipBackends {
+  public static final String BACKEND_PROPERTY = "mkfsp.mip.backend";
+
+  private MipBackends() {
+    // no-op
+  }
+
+  /**
+   * @return the backends on the class path, by decreasing priority
+   */
+  public static List<MipBackend> all() {
+    final List<MipBackend> backends = new ArrayList<>();
+    for (final MipBackend backend: ServiceLoader.load(MipBackend.class)) {
+      backends.add(backend);
+    }
+    backends.sort(Comparator.comparingInt(MipBackend::priority).reversed());
+    return backends;
+  }
+
+  /**
+   * @param name  the name of a backend, case insensitive
+   * @return      the backend with the given name
+   * @throws IllegalArgumentException if there is no such backend on the
+   *         class path
+   */
+  public static MipBackend get(final String name) {
+    final List<String> names = new ArrayList<>();
+    for (final MipBackend backend: all()) {
+      if (backend.name().equalsIgnoreCase(name)) {
+        return backend;
+      }
+      names.add(backend.name());
+    }
+    throw new IllegalArgumentException("Unknown MIP backend '" + name + "', available: " + names);
+  }
+
+  /**
+   * Opens a session with the selected backend or, if none is selected,
+   * with the first backend that can open one.
+   *
+   * @param output  whether the models built in the session print the
+   *                solver log
+   * @return        the new session
+   * @throws MipException if no backend can open a session
+   * @see MipBackend#open(boolean)
+   */
+  public static MipSession open(final boolean output) throws MipException {
+    final String name = System.getProperty(BACKEND_PROPERTY);
+    if (name != null) {
+      return get(name).open(output);
+    }
+
+    MipException failure = null;
+    for (final MipBackend backend: all()) {
+      try {
+        return backend.open(output);
+      } catch (final MipException e) {
+        System.out.println("MIP backend '" + backend.name() + "' not available: " + e.getMessage());
+        if (failure == null) {
+          failure = new MipException("No MIP backend available");
+        }
+        failure.addSuppressed(e);
+      }
+    }
+    throw failure != null ? failure : new MipException("No MIP backend on the class path");
+  }
+}
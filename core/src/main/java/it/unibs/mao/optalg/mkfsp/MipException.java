@@ -0,0 +1,22 @@
+package it.unibs.mao.optalg.mkfsp;
+
+/**
+ * Signals that a {@link MipBackend} could not start a session or that a
+ * model operation failed. The exception of the underlying solver, if any,
+ * is the cause.
+ */
+public class MipException extends Exception {
+  private static final long serialVersionUID = 1L;
+
+  public MipException(final String message) {
+    super(message);
+  }
+
+  public MipException(final String message, final Throwable cause) {
+    super(message, cause);
+  }
+
+  public MipException(final Throwable cause) {
+    super(cause);
+  }
+}
@@ -0,0 +1,114 @@
+package it.unibs.mao.optalg.mkfsp;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * The MKFSP model of an instance, built by a {@link MipSession}. Solutions
+ * are arrays with the knapsack of each item or -1, as in
+ * {@link Instance#checkFeasibility}.
+ *
+ * A model can be optimized several times, e.g. with different
+ * {@link #restrict restrictions} and MIP starts.
+ */
+public interface MipModel extends AutoCloseable {
+
+  /**
+   * @param seconds  the maximum duration of each {@link #optimize} call
+   */
+  void setTimeLimit(double seconds) throws MipException;
+
+  /**
+   * Stops {@link #optimize} as soon as an incumbent reaches the given
+   * objective value, e.g. when it is close enough to an upper bound.
+   *
+   * @param objective  the objective target, infinity to never stop early
+   */
+  void setObjectiveTarget(double objective) throws MipException;
+
+  /**
+   * @param path  the file the solver log is written to, backends without a
+   *              log ignore it
+   */
+  void setLogFile(Path path) throws MipException;
+
+  /**
+   * @param output  whether the solver log and the new incumbents are
+   *                printed
+   */
+  void setOutput(boolean output) throws MipException;
+
+  /**
+   * Sets the MIP start. Assignments that are not part of the model, e.g.
+   * because of a {@link ModelReduction}, are skipped.
+   *
+   * @param solution  a feasible solution, not modified
+   */
+  void setStart(int[] solution) throws MipException;
+
+  /**
+   * Sets several MIP starts, replacing the previous ones. Backends that
+   * take a single start keep the best of them.
+   *
+   * @param solutions  feasible solutions, not modified, the first one is
+   *                   the main start
+   */
+  void setStarts(List<int[]> solutions) throws MipException;
+
+  /**
+   * Limits the number of splits of family {@code j} to speed up the solve.
+   * It is a hint that can make the model smaller: backends that do not
+   * search the whole model may ignore it.
+   */
+  void limitSplits(int j, int maxSplits) throws MipException;
+
+  /**
+   * Fixes everything to the given solution but the free families: they can
+   * be dropped, added, or move their items into the free knapsacks. An
+   * item of a free family can also stay in the knapsack it has in the
+   * solution. The restriction replaces the previous one.
+   *
+   * @param solution       the feasible solution everything else is fixed to
+   * @param freeFamilies   the families that can change, by index
+   * @param freeKnapsacks  the knapsacks the free families can move into
+   */
+  void restrict(int[] solution, boolean[] freeFamilies, boolean[] freeKnapsacks) throws MipException;
+
+  /**
+   * Makes the model trade incumbents with the given exchange while it is
+   * optimized: better heuristic solutions are injected into the solve and
+   * every new incumbent of the solve is passed to the exchange.
+   */
+  void cooperate(IncumbentExchange exchange) throws MipException;
+
+  /**
+   * Optimizes the model until it is solved or a limit is reached.
+   *
+   * @return  why the solve stopped
+   */
+  MipStatus optimize() throws MipException;
+
+  /**
+   * @return  the best solution found by the last {@link #optimize} call,
+   *          or null if there is none
+   */
+  int[] solution() throws MipException;
+
+  /**
+   * @return  the objective value of {@link #solution()}
+   * @throws MipException if there is no solution
+   */
+  double objective() throws MipException;
+
+  /**
+   * @return  the seconds from the beginning of the solve and the objective
+   *          value of every new incumbent, in the order they were found
+   */
+  List<double[]> incumbentHistory();
+
+  /**
+   * Releases the model.
+   */
+  @Override
+  void close();
+}
@@ -0,0 +1,43 @@
+package it.unibs.mao.optalg.mkfsp;
+
+/**
+ * The solver state shared by all the models a worker builds, e.g. a Gurobi
+ * environment and its license. Sessions are not thread safe: open one
+ * session per worker thread.
+ */
+public interface MipSession extends AutoCloseable {
+
+  /**
+   * @return the backend that opened the session
+   */
+  MipBackend backend();
+
+  /**
+   * Builds the MKFSP model of the given instance.
+   *
+   * @param instance   an instance of the MKFSP problem
+   * @param reduction  the parts of the model to leave out, or null to
+   *                   build the whole model
+   * @return           the new model, to be closed by the caller
+   * @throws MipException if the model can not be built
+   * @throws IllegalArgumentException if the reduction is for a different
+   *         instance or fixes in a family that can not be selected
+   */
+  MipModel build(CompiledInstance instance, ModelReduction reduction) throws MipException;
+
+  /**
+   * Limits the threads used by the models built afterwards.
+   *
+   * @param threads  the maximum number of threads of a solve, 0 to let the
+   *                 backend decide
+   * @throws MipException if the limit can not be set
+   */
+  void setThreads(int threads) throws MipException;
+
+  /**
+   * Releases the session. Models built in the session must have been
+   * closed before. Closing a session twice has no effect.
+   */
+  @Override
+  void close() throws MipException;
+}
@@ -0,0 +1,21 @@
+package it.unibs.mao.optalg.mkfsp;
+
+/**
+ * Why {@link MipModel#optimize} returned.
+ */
+public enum MipStatus {
+  /** The model, or the part of it the backend explores, has been solved to optimality. */
+  OPTIMAL,
+  /** The model has no feasible solution. */
+  INFEASIBLE,
+  /** An incumbent has reached the {@link MipModel#setObjectiveTarget objective target}. */
+  TARGET_REACHED,
+  /** The time limit has been reached. */
+  TIME_LIMIT,
+  /** The backend stopped because its search was not improving any more. */
+  STALLED,
+  /** The solve has been interrupted, e.g. because the thread was interrupted. */
+  INTERRUPTED,
+  /** Any other reason reported by the solver. */
+  OTHER
+}
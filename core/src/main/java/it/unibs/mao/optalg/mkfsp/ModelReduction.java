@@ -0,0 +1,129 @@
+package it.unibs.mao.optalg.mkfsp;
+
+import java.util.BitSet;
+
+/**
+ * Describes which parts of the MKFSP model can be left out when it is
+ * built: families fixed out of the solution, families fixed in it and
+ * item/knapsack pairs that can not be used. {@link MipSession#build}
+ * creates no variable and no constraint for them. The symmetry breaking
+ * constraints of the backend can be left out as well.
+ *
+ * A family with an item that has every knapsack pruned can not be
+ * selected and is left out as well.
+ */
+public final class ModelReduction {
+  private final CompiledInstance instance;
+  private final BitSet fixedOut;
+  private final BitSet fixedIn;
+  private final BitSet prunedPairs;
+  private boolean symmetryBreakingOmitted;
+
+  /**
+   * Creates an empty reduction, that keeps the whole model.
+   *
+   * @param instance  the instance the model is built for
+   */
+  public ModelReduction(final CompiledInstance instance) {
+    this.instance = instance;
+    this.fixedOut = new BitSet(instance.nFamilies());
+    this.fixedIn = new BitSet(instance.nFamilies());
+    this.prunedPairs = new BitSet(instance.nItems() * instance.nKnapsacks());
+  }
+
+  public CompiledInstance instance() {
+    return instance;
+  }
+
+  /**
+   * Forces family {@code j} out of the solution.
+   */
+  public ModelReduction fixOut(final int j) {
+    fixedOut.set(checkFamily(j));
+    return this;
+  }
+
+  /**
+   * Forces family {@code j} into the solution.
+   */
+  public ModelReduction fixIn(final int j) {
+    fixedIn.set(checkFamily(j));
+    return this;
+  }
+
+  /**
+   * Forbids loading item {@code i} in knapsack {@code k}.
+   */
+  public ModelReduction prune(final int i, final int k) {
+    if (i < 0 || i >= instance.nItems() || k < 0 || k >= instance.nKnapsacks()) {
+      throw new IndexOutOfBoundsException("Invalid item/knapsack pair (" + i + ", " + k + ")");
+    }
+    prunedPairs.set(i * instance.nKnapsacks() + k);
+    return this;
+  }
+
+  /**
+   * Prunes every pair where the item alone exceeds the capacity of the
+   * knapsack for some resource.
+   */
+  public ModelReduction pruneUnfit() {
+    final int nItems = instance.nItems();
+    final int nKnapsacks = instance.nKnapsacks();
+    final int nResources = instance.nResources();
+    final int[] itemResources = instance.itemResources();
+    final int[] capacities = instance.capacities();
+    for (int i = 0; i < nItems; ++i) {
+      for (int k = 0; k < nKnapsacks; ++k) {
+        for (int r = 0; r < nResources; ++r) {
+          if (itemResources[i * nResources + r] > capacities[k * nResources + r]) {
+            prunedPairs.set(i * nKnapsacks + k);
+            break;
+          }
+        }
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Leaves out the constraints that order interchangeable knapsacks. A
+   * model that is {@link MipModel#restrict restricted} around a solution
+   * needs this: the solution is permuted to satisfy them, so the
+   * restriction no longer frees the knapsacks that were chosen, and they
+   * cut the moves that would change the load order.
+   */
+  public ModelReduction omitSymmetryBreaking() {
+    symmetryBreakingOmitted = true;
+    return this;
+  }
+
+  public boolean isFixedOut(final int j) {
+    return fixedOut.get(j);
+  }
+
+  public boolean isFixedIn(final int j) {
+    return fixedIn.get(j);
+  }
+
+  public boolean isPruned(final int i, final int k) {
+    return prunedPairs.get(i * instance.nKnapsacks() + k);
+  }
+
+  public boolean isSymmetryBreakingOmitted() {
+    return symmetryBreakingOmitted;
+  }
+
+  /**
+   * @return the number of pruned item/knapsack pairs
+   */
+  public int prunedCount() {
+    return prunedPairs.cardinality();
+  }
+
+  private int checkFamily(final int j) {
+    if (j < 0 || j >= instance.nFamilies()) {
+      throw new IndexOutOfBoundsException("Invalid family " + j);
+    }
+    return j;
+  }
+}
@@ -0,0 +1,154 @@
+package it.unibs.mao.optalg.mkfsp;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The result of {@link Preprocessor#preprocess}: a reduced instance, the
+ * mapping of its families, items and knapsacks back to the original ones
+ * and the dominance relations found in it. Every index of the relations
+ * refers to the reduced instance.
+ *
+ * The reduced instance has the same optimal objective value as the
+ * original one, and a solution keeps its objective value when it is
+ * {@link #expand expanded}.
+ */
+public final class PreprocessedInstance {
+  private final CompiledInstance original;
+  private final CompiledInstance reduced;
+  private final int[] originalFamily;
+  private final int[] originalItem;
+  private final int[] originalKnapsack;
+  private final int[] reducedKnapsack;
+  private final List<Dominance> dominance;
+
+  /**
+   * Family {@code family} dominates family {@code dominated}: item
+   * {@code replacement[t]} can take the place of item
+   * {@code firstItems[dominated] + t}, for every {@code t}.
+   */
+  public record Dominance(int family, int dominated, int[] replacement) {}
+
+  PreprocessedInstance(final CompiledInstance original, final CompiledInstance reduced,
+      final int[] originalFamily, final int[] originalItem, final int[] originalKnapsack,
+      final List<Dominance> dominance) {
+    this.original = original;
+    this.reduced = reduced;
+    this.originalFamily = originalFamily;
+    this.originalItem = originalItem;
+    this.originalKnapsack = originalKnapsack;
+    this.dominance = dominance;
+
+    reducedKnapsack = new int[original.nKnapsacks()];
+    Arrays.fill(reducedKnapsack, -1);
+    for (int k = 0; k < originalKnapsack.length; ++k) {
+      reducedKnapsack[originalKnapsack[k]] = k;
+    }
+  }
+
+  public CompiledInstance original() { return original; }
+
+  public CompiledInstance reduced() { return reduced; }
+
+  /** @return the original index of each family of the reduced instance */
+  public int[] originalFamily() { return originalFamily; }
+
+  /** @return the original index of each item of the reduced instance */
+  public int[] originalItem() { return originalItem; }
+
+  /** @return the original index of each knapsack of the reduced instance */
+  public int[] originalKnapsack() { return originalKnapsack; }
+
+  /** @see Preprocessor#dominance */
+  public List<Dominance> dominance() { return dominance; }
+
+  /**
+   * @return the number of families left out of the reduced instance
+   */
+  public int removedFamilies() {
+    return original.nFamilies() - reduced.nFamilies();
+  }
+
+  /**
+   * @return the number of knapsacks left out of the reduced instance
+   */
+  public int removedKnapsacks() {
+    return original.nKnapsacks() - reduced.nKnapsacks();
+  }
+
+  /**
+   * Maps a solution of the reduced instance to the original one, the items
+   * of the families left out are not selected.
+   *
+   * @param solution  the knapsack of each item of the reduced instance or -1
+   * @return          a new solution of the original instance
+   */
+  public int[] expand(final int[] solution) {
+    final int[] expanded = new int[original.nItems()];
+    Arrays.fill(expanded, -1);
+    for (int i = 0; i < solution.length; ++i) {
+      if (solution[i] >= 0) {
+        expanded[originalItem[i]] = originalKnapsack[solution[i]];
+      }
+    }
+    return expanded;
+  }
+
+  /**
+   * Maps a solution of the original instance to the reduced one. Families
+   * that are left out or that use a knapsack left out are not selected.
+   *
+   * @param solution  the knapsack of each item of the original instance or -1
+   * @return          a new solution of the reduced instance
+   */
+  public int[] reduce(final int[] solution) {
+    final int[] reducedSolution = new int[reduced.nItems()];
+    final int[] firstItems = reduced.firstItems();
+    final int[] familyEnd = reduced.familyEnd();
+    for (int j = 0; j < reduced.nFamilies(); ++j) {
+      boolean selected = true;
+      for (int i = firstItems[j]; i < familyEnd[j]; ++i) {
+        final int k = solution[originalItem[i]];
+        reducedSolution[i] = k >= 0 ? reducedKnapsack[k] : -1;
+        selected &= reducedSolution[i] >= 0;
+      }
+      if (!selected) {
+        Arrays.fill(reducedSolution, firstItems[j], familyEnd[j], -1);
+      }
+    }
+    return reducedSolution;
+  }
+
+  /**
+   * Swaps every selected family that has an unselected dominator with it,
+   * in place, until no such family is left: a family swapped in can have
+   * a dominator of its own, the relations have no cycles so the passes
+   * end. The solution stays feasible and its objective value does not
+   * decrease.
+   *
+   * @param solution  the knapsack of each item of the reduced instance or -1
+   * @return          the number of swapped families
+   */
+  public int repair(final int[] solution) {
+    final int[] firstItems = reduced.firstItems();
+    int swaps = 0;
+    boolean swapped = true;
+    while (swapped) {
+      swapped = false;
+      for (final Dominance relation: dominance) {
+        final int first = firstItems[relation.dominated()];
+        if (solution[first] < 0 || solution[firstItems[relation.family()]] >= 0) {
+          continue;
+        }
+        final int[] replacement = relation.replacement();
+        for (int t = 0; t < replacement.length; ++t) {
+          solution[replacement[t]] = solution[first + t];
+          solution[first + t] = -1;
+        }
+        swaps += 1;
+        swapped = true;
+      }
+    }
+    return swaps;
+  }
+}
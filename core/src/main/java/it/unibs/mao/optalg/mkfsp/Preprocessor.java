@@ -0,0 +1,335 @@
+package it.unibs.mao.optalg.mkfsp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A utility class with static methods that simplify a MKFSP instance before
+ * it is solved. This class can not be instantiated.
+ *
+ * @see #preprocess(CompiledInstance)
+ */
+public final class Preprocessor {
+
+  private Preprocessor() {
+    // no-op
+  }
+
+  /**
+   * Reduces the given instance. The families that are left out are the ones
+   * that can not be part of an optimal solution:
+   * <ul>
+   *   <li>an item fits in no knapsack;</li>
+   *   <li>the family demand exceeds the total capacity of some resource;</li>
+   *   <li>the profit does not exceed the penalties of the fewest knapsacks
+   *       that can hold the family demand, so leaving it out is never
+   *       worse.</li>
+   * </ul>
+   * The knapsacks where no remaining item fits are left out as well. The
+   * dominance relations are then computed on the reduced instance. The
+   * model builders compute {@link #maxItems} and {@link #knapsackClasses}
+   * on the instance they are given.
+   *
+   * @param instance  a compiled MKFSP instance
+   * @return          the reduced instance with its mapping to the original
+   *                  indices
+   */
+  public static PreprocessedInstance preprocess(final CompiledInstance instance) {
+    final int nItems = instance.nItems();
+    final int nFamilies = instance.nFamilies();
+    final int nKnapsacks = instance.nKnapsacks();
+    final int nResources = instance.nResources();
+    final int[] profits = instance.profits();
+    final int[] penalties = instance.penalties();
+    final int[] firstItems = instance.firstItems();
+    final int[] familyEnd = instance.familyEnd();
+    final int[] itemResources = instance.itemResources();
+    final int[] capacities = instance.capacities();
+    final int[] familyDemand = instance.familyDemand();
+
+    final long[] largest = new long[nResources];
+    final long[] total = new long[nResources];
+    for (int k = 0; k < nKnapsacks; ++k) {
+      for (int r = 0; r < nResources; ++r) {
+        largest[r] = Math.max(largest[r], capacities[k * nResources + r]);
+        total[r] += capacities[k * nResources + r];
+      }
+    }
+
+    final boolean[] kept = new boolean[nFamilies];
+    final boolean[] usedKnapsacks = new boolean[nKnapsacks];
+    final boolean[] fitting = new boolean[nKnapsacks];
+    int nKeptFamilies = 0;
+    int nKeptItems = 0;
+    for (int j = 0; j < nFamilies; ++j) {
+      int needed = 1;
+      boolean selectable = true;
+      for (int r = 0; r < nResources && selectable; ++r) {
+        final long demand = familyDemand[j * nResources + r];
+        selectable = demand <= total[r];
+        if (demand > 0 && selectable) {
+          needed = (int) Math.max(needed, (demand + largest[r] - 1) / largest[r]);
+        }
+      }
+      selectable &= profits[j] - (long) penalties[j] * (needed - 1) > 0;
+
+      Arrays.fill(fitting, false);
+      for (int i = firstItems[j]; i < familyEnd[j] && selectable; ++i) {
+        selectable = false;
+        for (int k = 0; k < nKnapsacks; ++k) {
+          if (fits(itemResources, i, capacities, k, nResources)) {
+            fitting[k] = true;
+            selectable = true;
+          }
+        }
+      }
+      if (selectable) {
+        kept[j] = true;
+        nKeptFamilies += 1;
+        nKeptItems += familyEnd[j] - firstItems[j];
+        for (int k = 0; k < nKnapsacks; ++k) {
+          usedKnapsacks[k] |= fitting[k];
+        }
+      }
+    }
+
+    final int[] originalFamily = new int[nKeptFamilies];
+    final int[] originalItem = new int[nKeptItems];
+    final int[] reducedProfits = new int[nKeptFamilies];
+    final int[] reducedPenalties = new int[nKeptFamilies];
+    final int[] reducedFirstItems = new int[nKeptFamilies];
+    final int[][] items = new int[nKeptItems][];
+    int t = 0;
+    int u = 0;
+    for (int j = 0; j < nFamilies; ++j) {
+      if (!kept[j]) {
+        continue;
+      }
+      originalFamily[t] = j;
+      reducedProfits[t] = profits[j];
+      reducedPenalties[t] = penalties[j];
+      reducedFirstItems[t++] = u;
+      for (int i = firstItems[j]; i < familyEnd[j]; ++i) {
+        originalItem[u] = i;
+        items[u++] = Arrays.copyOfRange(itemResources, i * nResources, (i+1) * nResources);
+      }
+    }
+
+    int nKeptKnapsacks = 0;
+    for (final boolean used: usedKnapsacks) {
+      nKeptKnapsacks += used ? 1 : 0;
+    }
+    final int[] originalKnapsack = new int[nKeptKnapsacks];
+    final int[][] knapsacks = new int[nKeptKnapsacks][];
+    t = 0;
+    for (int k = 0; k < nKnapsacks; ++k) {
+      if (usedKnapsacks[k]) {
+        originalKnapsack[t] = k;
+        knapsacks[t++] = Arrays.copyOfRange(capacities, k * nResources, (k+1) * nResources);
+      }
+    }
+
+    final CompiledInstance reduced = CompiledInstance.of(new Instance(instance.id(), nKeptItems, nKeptFamilies,
+        nKeptKnapsacks, nResources, reducedProfits, reducedPenalties, reducedFirstItems, items, knapsacks));
+    return new PreprocessedInstance(instance, reduced, originalFamily, originalItem, originalKnapsack,
+        dominance(reduced));
+  }
+
+  /**
+   * Wraps the given instance without reducing it: every family, item and
+   * knapsack keeps its index and there are no dominance relations, so
+   * {@link PreprocessedInstance#repair} never changes a solution.
+   *
+   * @param instance  a compiled MKFSP instance
+   * @return          the instance as its own reduction
+   */
+  public static PreprocessedInstance identity(final CompiledInstance instance) {
+    final int[] families = new int[instance.nFamilies()];
+    Arrays.setAll(families, j -> j);
+    final int[] items = new int[instance.nItems()];
+    Arrays.setAll(items, i -> i);
+    final int[] knapsacks = new int[instance.nKnapsacks()];
+    Arrays.setAll(knapsacks, k -> k);
+    return new PreprocessedInstance(instance, instance, families, items, knapsacks,
+        List.of());
+  }
+
+  /**
+   * Finds, for each family, another family that dominates it: it has the
+   * same size, a profit at least as high, a penalty at most as high and
+   * items that can take the places of the dominated ones, resource by
+   * resource. Swapping a selected dominated family with its unselected
+   * dominator never makes a solution worse or infeasible.
+   *
+   * The items of each family are sorted once by their demands and two
+   * families are compared item by item in that order, which is sufficient
+   * for the dominance but may miss some relations. Families with the same
+   * data are only dominated by the ones with a lower index, so that the
+   * relations have no cycles.
+   *
+   * @param instance  a compiled MKFSP instance
+   * @return          the relations, at most one for each dominated family
+   */
+  public static List<PreprocessedInstance.Dominance> dominance(final CompiledInstance instance) {
+    final int nFamilies = instance.nFamilies();
+    final int nResources = instance.nResources();
+    final int[] profits = instance.profits();
+    final int[] penalties = instance.penalties();
+    final int[] firstItems = instance.firstItems();
+    final int[] familySize = instance.familySize();
+    final int[] itemResources = instance.itemResources();
+    final int[] familyDemand = instance.familyDemand();
+
+    // The items of each family sorted by their demands, lexicographically
+    final Comparator<Integer> byDemands = (a, b) -> Arrays.compare(
+        itemResources, a * nResources, (a+1) * nResources, itemResources, b * nResources, (b+1) * nResources);
+    final int[][] sorted = new int[nFamilies][];
+    final Map<Integer, List<Integer>> bySize = new HashMap<>();
+    for (int j = 0; j < nFamilies; ++j) {
+      final Integer[] order = new Integer[familySize[j]];
+      for (int t = 0; t < order.length; ++t) {
+        order[t] = firstItems[j] + t;
+      }
+      Arrays.sort(order, byDemands);
+      sorted[j] = Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+      bySize.computeIfAbsent(familySize[j], (size) -> new ArrayList<>()).add(j);
+    }
+
+    final List<PreprocessedInstance.Dominance> relations = new ArrayList<>();
+    for (int b = 0; b < nFamilies; ++b) {
+      for (final int a: bySize.get(familySize[b])) {
+        if (a == b || profits[a] < profits[b] || penalties[a] > penalties[b]
+            || !lessOrEqual(familyDemand, a, familyDemand, b, nResources)) {
+          continue;
+        }
+        boolean dominates = true;
+        boolean equal = profits[a] == profits[b] && penalties[a] == penalties[b];
+        for (int t = 0; t < sorted[b].length && dominates; ++t) {
+          dominates = lessOrEqual(itemResources, sorted[a][t], itemResources, sorted[b][t], nResources);
+          equal &= Arrays.equals(
+              itemResources, sorted[a][t] * nResources, (sorted[a][t]+1) * nResources,
+              itemResources, sorted[b][t] * nResources, (sorted[b][t]+1) * nResources);
+        }
+        if (dominates && (!equal || a < b)) {
+          final int[] replacement = new int[familySize[b]];
+          for (int t = 0; t < replacement.length; ++t) {
+            replacement[sorted[b][t] - firstItems[b]] = sorted[a][t];
+          }
+          relations.add(new PreprocessedInstance.Dominance(a, b, replacement));
+          break;
+        }
+      }
+    }
+    return relations;
+  }
+
+  /**
+   * Computes, for each family and knapsack, the maximum number of items of
+   * the family that fit in the knapsack when each resource is considered
+   * alone: the items are taken by non decreasing demand of the resource
+   * until the capacity is exceeded. The demands of each family are sorted
+   * once per resource and the bound is found with a binary search on their
+   * prefix sums, for a total of O(nItems * nResources * log(maxFamilySize)
+   * + nFamilies * nKnapsacks * nResources * log(maxFamilySize)).
+   *
+   * @param instance  a compiled MKFSP instance
+   * @return          the bounds, family {@code j} and knapsack {@code k} at
+   *                  index {@code j * nKnapsacks + k}
+   */
+  public static int[] maxItems(final CompiledInstance instance) {
+    final int nFamilies = instance.nFamilies();
+    final int nKnapsacks = instance.nKnapsacks();
+    final int nResources = instance.nResources();
+    final int[] firstItems = instance.firstItems();
+    final int[] familySize = instance.familySize();
+    final int[] itemResources = instance.itemResources();
+    final int[] capacities = instance.capacities();
+
+    final int[] maxItems = new int[nFamilies * nKnapsacks];
+    final int[] demands = new int[instance.maxFamilySize()];
+    final long[] prefix = new long[instance.maxFamilySize() + 1];
+    for (int j = 0; j < nFamilies; ++j) {
+      final int size = familySize[j];
+      Arrays.fill(maxItems, j * nKnapsacks, (j+1) * nKnapsacks, size);
+      for (int r = 0; r < nResources; ++r) {
+        for (int t = 0; t < size; ++t) {
+          demands[t] = itemResources[(firstItems[j] + t) * nResources + r];
+        }
+        Arrays.sort(demands, 0, size);
+        for (int t = 0; t < size; ++t) {
+          prefix[t+1] = prefix[t] + demands[t];
+        }
+        for (int k = 0; k < nKnapsacks; ++k) {
+          // The largest t such that the t smallest demands fit
+          final long capacity = capacities[k * nResources + r];
+          int lo = 0;
+          int hi = size;
+          while (lo < hi) {
+            final int mid = (lo + hi + 1) >>> 1;
+            if (prefix[mid] <= capacity) {
+              lo = mid;
+            } else {
+              hi = mid - 1;
+            }
+          }
+          final int index = j * nKnapsacks + k;
+          maxItems[index] = Math.min(maxItems[index], lo);
+        }
+      }
+    }
+    return maxItems;
+  }
+
+  /**
+   * Groups the knapsacks with identical capacity vectors.
+   *
+   * @param instance  a compiled MKFSP instance
+   * @return          for each knapsack, the lowest index of a knapsack with
+   *                  the same capacities
+   */
+  public static int[] knapsackClasses(final CompiledInstance instance) {
+    final int nKnapsacks = instance.nKnapsacks();
+    final int nResources = instance.nResources();
+    final int[] capacities = instance.capacities();
+    final int[] classes = new int[nKnapsacks];
+    for (int k = 0; k < nKnapsacks; ++k) {
+      classes[k] = k;
+      for (int h = 0; h < k; ++h) {
+        if (classes[h] == h && Arrays.equals(
+            capacities, h * nResources, (h+1) * nResources, capacities, k * nResources, (k+1) * nResources)) {
+          classes[k] = h;
+          break;
+        }
+      }
+    }
+    return classes;
+  }
+
+  private static boolean fits(final int[] itemResources, final int i, final int[] capacities, final int k,
+      final int nResources) {
+    for (int r = 0; r < nResources; ++r) {
+      if (itemResources[i * nResources + r] > capacities[k * nResources + r]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return true if row {@code a} of {@code left} does not exceed row
+   *         {@code b} of {@code right} for any resource
+   */
+  private static boolean lessOrEqual(final int[] left, final int a, final int[] right, final int b,
+      final int nResources) {
+    for (int r = 0; r < nResources; ++r) {
+      if (left[a * nResources + r] > right[b * nResources + r]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
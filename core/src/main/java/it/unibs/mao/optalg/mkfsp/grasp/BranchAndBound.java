@@ -0,0 +1,436 @@
+package it.unibs.mao.optalg.mkfsp.grasp;
+
+import it.unibs.mao.optalg.mkfsp.CompiledInstance;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Exact pure-Java solver for small MKFSP subproblems: a few families over a few knapsacks, with the residual
+ * capacities left by the rest of the incumbent. It does not need a Gurobi license.
+ *
+ * The search is a depth-first branch-and-bound. Families are branched in order of optimistic value, first by
+ * placing their items one at a time (knapsacks the family already uses come first) and then by leaving them out.
+ * Nodes are pruned by:
+ * <ul>
+ *   <li>capacity: an item only goes where it fits, and the remaining demand of the current family must fit in
+ *       the total residual capacity;</li>
+ *   <li>family integrity: a family whose next item fits nowhere is abandoned as a whole;</li>
+ *   <li>bounds: the value so far plus the profit of the current family minus the penalties of the knapsacks it
+ *       already uses or will need at least, plus the optimistic value of the families left.</li>
+ * </ul>
+ * All the buffers are allocated by the constructor, the search itself never allocates. A BranchAndBound object
+ * keeps mutable state, so every worker needs its own.
+ */
+public class BranchAndBound {
+    private static final int MAX_SELECTED = 6;
+    private static final int MAX_UNSELECTED = 4;
+    private static final int NEIGHBORHOOD_KNAPSACKS = 2;
+    private static final long NODE_LIMIT = 200000;
+
+    private final int nItems;
+    private final int nFamilies;
+    private final int nKnapsacks;
+    private final int nResources;
+    private final int[] profits;
+    private final int[] penalties;
+    private final int[] firstItems;
+    private final int[] familyEnd;
+    private final int[] itemResources;
+    private final int[] capacities;
+    // Demand of the items of the family from item i to the end, item i uses [i*nResources, (i+1)*nResources)
+    private final long[] remainingDemand;
+
+    // Subproblem
+    private final int[] families;
+    private final int[] knapsacks;
+    private final boolean[] isFreeKnapsack;
+    private final int[] localKnapsack;
+    private final long[] residual;
+    private final long[] totalResidual;
+    private final long[] optimistic;
+    private final long[] suffixBound;
+    private final int[] minKnapsacks;
+    // Items of the family at position f in knapsack t, at [f*nk + t]
+    private final int[] familyCount;
+    private final int[] work;
+    private final int[] best;
+    private int nf;
+    private int nk;
+
+    private long bestValue;
+    private long nodes;
+    private long maxNodes;
+    private boolean aborted;
+
+    // Neighborhood selection
+    private final int[] candidates;
+    private final int[] allowedKnapsacks;
+    private final int[] neighborhoodKnapsacks;
+    private final int[] neighborhoodFamilies;
+
+    public BranchAndBound(CompiledInstance instance) {
+        this.nItems = instance.nItems();
+        this.nFamilies = instance.nFamilies();
+        this.nKnapsacks = instance.nKnapsacks();
+        this.nResources = instance.nResources();
+        this.profits = instance.profits();
+        this.penalties = instance.penalties();
+        this.firstItems = instance.firstItems();
+        this.familyEnd = instance.familyEnd();
+        this.itemResources = instance.itemResources();
+        this.capacities = instance.capacities();
+
+        this.remainingDemand = new long[nItems * nResources];
+        for (int j = 0; j < nFamilies; j++) {
+            for (int i = familyEnd[j] - 1; i >= firstItems[j]; i--) {
+                for (int r = 0; r < nResources; r++) {
+                    long next = i + 1 < familyEnd[j] ? remainingDemand[(i + 1) * nResources + r] : 0;
+                    remainingDemand[i * nResources + r] = next + itemResources[i * nResources + r];
+                }
+            }
+        }
+
+        this.families = new int[nFamilies];
+        this.knapsacks = new int[nKnapsacks];
+        this.isFreeKnapsack = new boolean[nKnapsacks];
+        this.localKnapsack = new int[nKnapsacks];
+        this.residual = new long[nKnapsacks * nResources];
+        this.totalResidual = new long[nResources];
+        this.optimistic = new long[nFamilies];
+        this.suffixBound = new long[nFamilies + 1];
+        this.minKnapsacks = new int[nFamilies];
+        this.familyCount = new int[nFamilies * nKnapsacks];
+        this.work = new int[nItems];
+        this.best = new int[nItems];
+        this.candidates = new int[nFamilies];
+        this.allowedKnapsacks = new int[nKnapsacks];
+        this.neighborhoodKnapsacks = new int[NEIGHBORHOOD_KNAPSACKS];
+        this.neighborhoodFamilies = new int[MAX_SELECTED + MAX_UNSELECTED];
+    }
+
+    /**
+     * Solves exactly the subproblem made of the given families and knapsacks, everything else being fixed to the
+     * solution loaded in the evaluator. Families with items in knapsacks that are not free are left as they are.
+     * If a better solution is found the evaluator is updated.
+     *
+     * @param evaluator     an evaluator with the incumbent loaded
+     * @param familySet     the free families, in the first {@code familyCount} entries
+     * @param knapsackSet   the free knapsacks, in the first {@code knapsackCount} entries
+     * @param maxNodes      the maximum number of nodes to explore
+     * @return              the improvement of the objective value, 0 if none has been found
+     */
+    public long solve(SolutionEvaluator evaluator, int[] familySet, int familyCount, int[] knapsackSet,
+                      int knapsackCount, long maxNodes) {
+        int[] solution = evaluator.solution();
+        nk = knapsackCount;
+        for (int t = 0; t < nk; t++) {
+            int k = knapsackSet[t];
+            knapsacks[t] = k;
+            isFreeKnapsack[k] = true;
+            localKnapsack[k] = t;
+        }
+
+        // Keep the families entirely inside the free knapsacks, their current value is the one to beat
+        nf = 0;
+        long currentValue = 0;
+        for (int f = 0; f < familyCount; f++) {
+            int j = familySet[f];
+            boolean inside = true;
+            for (int i = firstItems[j]; i < familyEnd[j] && inside; i++) {
+                inside = solution[i] < 0 || isFreeKnapsack[solution[i]];
+            }
+            if (inside) {
+                families[nf++] = j;
+                if (evaluator.isSelected(j)) {
+                    currentValue += evaluator.contribution(j, evaluator.usedKnapsacks(j));
+                }
+            }
+        }
+
+        // Residual capacities without the free families
+        for (int r = 0; r < nResources; r++) {
+            totalResidual[r] = 0;
+        }
+        for (int t = 0; t < nk; t++) {
+            for (int r = 0; r < nResources; r++) {
+                residual[t * nResources + r] = evaluator.residual(knapsacks[t], r);
+            }
+        }
+        for (int f = 0; f < nf; f++) {
+            int j = families[f];
+            for (int i = firstItems[j]; i < familyEnd[j]; i++) {
+                if (solution[i] >= 0) {
+                    int t = localKnapsack[solution[i]];
+                    for (int r = 0; r < nResources; r++) {
+                        residual[t * nResources + r] += itemResources[i * nResources + r];
+                    }
+                }
+            }
+        }
+        for (int t = 0; t < nk; t++) {
+            for (int r = 0; r < nResources; r++) {
+                totalResidual[r] += residual[t * nResources + r];
+            }
+        }
+
+        prepareBounds();
+
+        bestValue = currentValue;
+        nodes = 0;
+        this.maxNodes = maxNodes;
+        aborted = false;
+        Arrays.fill(this.familyCount, 0, nf * nk, 0);
+        boolean found = nf > 0 && search(0, 0);
+
+        long improvement = 0;
+        if (found) {
+            improvement = bestValue - currentValue;
+            for (int f = 0; f < nf; f++) {
+                evaluator.removeFamily(families[f]);
+            }
+            for (int f = 0; f < nf; f++) {
+                int j = families[f];
+                for (int i = firstItems[j]; i < familyEnd[j]; i++) {
+                    if (best[i] >= 0) {
+                        evaluator.assign(i, knapsacks[best[i]]);
+                    }
+                }
+            }
+        }
+        for (int t = 0; t < nk; t++) {
+            isFreeKnapsack[knapsacks[t]] = false;
+        }
+        return improvement;
+    }
+
+    /**
+     * @return true if the last {@link #solve} explored the whole tree, i.e. its result is optimal
+     */
+    public boolean isOptimal() {
+        return !aborted;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Solves random small neighborhoods until the deadline: a few knapsacks, some of the families they contain
+     * and some unselected families.
+     *
+     * @param evaluator an evaluator, loaded with the solution
+     * @param solution  a feasible solution, improved in place
+     * @param random    the random stream used to choose the neighborhoods
+     * @param deadline  the instant, in milliseconds, when the search must stop
+     * @return          the objective value of the improved solution
+     */
+    public long improve(SolutionEvaluator evaluator, int[] solution, Random random, long deadline) {
+        return improve(evaluator, solution, random, deadline, null, null);
+    }
+
+    /**
+     * Same as {@link #improve(SolutionEvaluator, int[], Random, long)}, the neighborhoods only contain the given
+     * families and knapsacks.
+     *
+     * @param freeFamilies  the families that can change, by index, or null for all of them
+     * @param freeKnapsacks the knapsacks the families can move into, by index, or null for all of them
+     */
+    public long improve(SolutionEvaluator evaluator, int[] solution, Random random, long deadline,
+                        boolean[] freeFamilies, boolean[] freeKnapsacks) {
+        evaluator.load(solution);
+        int nAllowed = 0;
+        for (int k = 0; k < nKnapsacks; k++) {
+            if (freeKnapsacks == null || freeKnapsacks[k]) {
+                allowedKnapsacks[nAllowed++] = k;
+            }
+        }
+        int nNeighborhood = Math.min(NEIGHBORHOOD_KNAPSACKS, nAllowed);
+        while (nNeighborhood > 0 && System.currentTimeMillis() < deadline
+                && !Thread.currentThread().isInterrupted()) {
+            // Partial shuffle of the allowed knapsacks
+            for (int t = 0; t < nNeighborhood; t++) {
+                int u = t + random.nextInt(nAllowed - t);
+                int k = allowedKnapsacks[u];
+                allowedKnapsacks[u] = allowedKnapsacks[t];
+                allowedKnapsacks[t] = k;
+                neighborhoodKnapsacks[t] = k;
+                isFreeKnapsack[k] = true;
+            }
+
+            int selected = 0;
+            int unselected = 0;
+            int offset = random.nextInt(nFamilies);
+            for (int step = 0; step < nFamilies; step++) {
+                int j = (offset + step) % nFamilies;
+                if (freeFamilies != null && !freeFamilies[j]) {
+                    continue;
+                }
+                if (evaluator.isSelected(j)) {
+                    if (selected < MAX_SELECTED && isFreeKnapsack[solution[firstItems[j]]]) {
+                        candidates[selected++] = j;
+                    }
+                } else if (unselected < MAX_UNSELECTED) {
+                    neighborhoodFamilies[MAX_SELECTED + unselected++] = j;
+                }
+                if (selected == MAX_SELECTED && unselected == MAX_UNSELECTED) {
+                    break;
+                }
+            }
+            for (int t = 0; t < nNeighborhood; t++) {
+                isFreeKnapsack[neighborhoodKnapsacks[t]] = false;
+            }
+            System.arraycopy(candidates, 0, neighborhoodFamilies, 0, selected);
+            System.arraycopy(neighborhoodFamilies, MAX_SELECTED, neighborhoodFamilies, selected, unselected);
+
+            solve(evaluator, neighborhoodFamilies, selected + unselected, neighborhoodKnapsacks, nNeighborhood,
+                    NODE_LIMIT);
+        }
+        return evaluator.objective();
+    }
+
+    /**
+     * Orders the families by optimistic value and computes the bounds used during the search.
+     */
+    private void prepareBounds() {
+        for (int f = 0; f < nf; f++) {
+            int j = families[f];
+            // The fewest knapsacks able to hold the family, one resource at a time
+            int needed = 1;
+            boolean fits = true;
+            for (int r = 0; r < nResources && fits; r++) {
+                long demand = remainingDemand[firstItems[j] * nResources + r];
+                long largest = 0;
+                for (int t = 0; t < nk; t++) {
+                    largest = Math.max(largest, residual[t * nResources + r]);
+                }
+                fits = demand <= totalResidual[r];
+                if (fits && demand > 0) {
+                    needed = (int) Math.max(needed, largest == 0 ? Integer.MAX_VALUE : (demand + largest - 1) / largest);
+                }
+            }
+            fits &= needed <= nk;
+            minKnapsacks[f] = needed;
+            optimistic[f] = fits ? Math.max(0, profits[j] - (long) penalties[j] * (needed - 1)) : 0;
+        }
+
+        // Insertion sort by non increasing optimistic value, nf is small
+        for (int f = 1; f < nf; f++) {
+            int j = families[f];
+            long value = optimistic[f];
+            int needed = minKnapsacks[f];
+            int g = f - 1;
+            while (g >= 0 && optimistic[g] < value) {
+                families[g + 1] = families[g];
+                optimistic[g + 1] = optimistic[g];
+                minKnapsacks[g + 1] = minKnapsacks[g];
+                g--;
+            }
+            families[g + 1] = j;
+            optimistic[g + 1] = value;
+            minKnapsacks[g + 1] = needed;
+        }
+
+        suffixBound[nf] = 0;
+        for (int f = nf - 1; f >= 0; f--) {
+            suffixBound[f] = suffixBound[f + 1] + optimistic[f];
+        }
+    }
+
+    /**
+     * Branches on family {@code f}.
+     *
+     * @return true if a solution better than the best one has been found in the subtree
+     */
+    private boolean search(int f, long value) {
+        if (++nodes > maxNodes) {
+            aborted = true;
+            return false;
+        }
+        if (value + suffixBound[f] <= bestValue) {
+            return false;
+        }
+        if (f == nf) {
+            bestValue = value;
+            for (int g = 0; g < nf; g++) {
+                int j = families[g];
+                System.arraycopy(work, firstItems[j], best, firstItems[j], familyEnd[j] - firstItems[j]);
+            }
+            return true;
+        }
+
+        int j = families[f];
+        boolean found = false;
+        if (optimistic[f] > 0) {
+            found = place(f, firstItems[j], 0, value);
+        }
+        for (int i = firstItems[j]; i < familyEnd[j]; i++) {
+            work[i] = -1;
+        }
+        return search(f + 1, value) || found;
+    }
+
+    /**
+     * Places item {@code i} of the family at position {@code f}, then the following ones.
+     */
+    private boolean place(int f, int i, int used, long value) {
+        int j = families[f];
+        if (i == familyEnd[j]) {
+            return search(f + 1, value + profits[j] - (long) penalties[j] * (used - 1));
+        }
+        if (aborted) {
+            return false;
+        }
+        long familyBound = profits[j] - (long) penalties[j] * (Math.max(used, minKnapsacks[f]) - 1);
+        if (value + familyBound + suffixBound[f + 1] <= bestValue) {
+            return false;
+        }
+        int base = i * nResources;
+        for (int r = 0; r < nResources; r++) {
+            if (remainingDemand[base + r] > totalResidual[r]) {
+                return false;
+            }
+        }
+
+        boolean found = false;
+        int counts = f * nk;
+        // Knapsacks the family already uses first, they do not add a penalty
+        for (int pass = 0; pass < 2; pass++) {
+            for (int t = 0; t < nk; t++) {
+                if ((familyCount[counts + t] > 0) != (pass == 0) || !fits(i, t)) {
+                    continue;
+                }
+                add(i, t, 1);
+                work[i] = t;
+                int count = ++familyCount[counts + t];
+                found |= place(f, i + 1, count == 1 ? used + 1 : used, value);
+                familyCount[counts + t]--;
+                add(i, t, -1);
+                if (aborted) {
+                    return found;
+                }
+            }
+        }
+        return found;
+    }
+
+    private boolean fits(int i, int t) {
+        int base = i * nResources;
+        int local = t * nResources;
+        for (int r = 0; r < nResources; r++) {
+            if (itemResources[base + r] > residual[local + r]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void add(int i, int t, int sign) {
+        int base = i * nResources;
+        int local = t * nResources;
+        for (int r = 0; r < nResources; r++) {
+            residual[local + r] -= sign * itemResources[base + r];
+            totalResidual[r] -= sign * itemResources[base + r];
+        }
+    }
+}
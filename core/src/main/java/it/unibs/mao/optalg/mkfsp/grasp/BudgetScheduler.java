@@ -0,0 +1,135 @@
+package it.unibs.mao.optalg.mkfsp.grasp;
+
+/**
+ * Splits the time budget of each instance between GRASP and the MIP search. GRASP runs while its incumbent
+ * improves faster than the MIP search is expected to improve on it, and the MIP search gets the rest of the
+ * budget, so that the instance is solved by one wall-clock deadline.
+ *
+ * Both rates are relative gains per second. The GRASP rate is the slope of its incumbent curve over the last
+ * window. The MIP rate is learned from the previous instances solved with the same scheduler: how often the
+ * MIP search improved on its start and by how much per second when it did. Before any instance it is the prior
+ * below, which roughly gives the old split of 200 s of GRASP and 600 s of MIP search.
+ *
+ * The scheduler is thread safe and meant to be shared by all the solves of a run.
+ */
+public class BudgetScheduler {
+    private static final double MIN_GRASP_SHARE = 0.05;
+    private static final double MAX_GRASP_SHARE = 0.6;
+    // The slope of the GRASP incumbent curve is measured over this share of the budget
+    private static final double WINDOW_SHARE = 0.05;
+    private static final long MIN_WINDOW = 1000; //milliseconds
+    private static final double STALE_SHARE = 0.15;
+    private static final long CHECK_PERIOD = 100; //milliseconds
+
+    // The prior counts as one MIP run that improved its start at this relative rate per second
+    private static final double PRIOR_MIP_RATE = 5e-5;
+
+    private int mipRuns = 1;
+    private int mipImprovements = 1;
+    private double mipRateSum = PRIOR_MIP_RATE;
+
+    /**
+     * Starts the budget of one instance.
+     *
+     * @param budgetMillis the total time of the instance, in milliseconds
+     */
+    public Budget start(long budgetMillis) {
+        return new Budget(System.currentTimeMillis(), budgetMillis);
+    }
+
+    /**
+     * @return the relative gain per second the MIP search is expected to make on its start
+     */
+    public synchronized double getExpectedMipRate() {
+        return (double) mipImprovements / mipRuns * (mipRateSum / mipImprovements);
+    }
+
+    /**
+     * @return the fraction of MIP searches that improved on their start, the prior included
+     */
+    public synchronized double getMipImprovementFrequency() {
+        return (double) mipImprovements / mipRuns;
+    }
+
+    private synchronized void recordMip(double startObjective, double endObjective, double seconds) {
+        mipRuns++;
+        if (endObjective > startObjective && startObjective > 0 && seconds > 0) {
+            mipImprovements++;
+            mipRateSum += (endObjective - startObjective) / startObjective / seconds;
+        }
+    }
+
+    /**
+     * The time of one instance.
+     */
+    public class Budget {
+        private final long startMillis;
+        private final long budgetMillis;
+        private final long window;
+        private volatile long nextCheckMillis;
+        private volatile boolean graspOver;
+
+        private Budget(long startMillis, long budgetMillis) {
+            this.startMillis = startMillis;
+            this.budgetMillis = budgetMillis;
+            this.window = Math.max(MIN_WINDOW, (long) (budgetMillis * WINDOW_SHARE));
+        }
+
+        /**
+         * @return the instant when the instance must be solved
+         */
+        public long getDeadline() {
+            return startMillis + budgetMillis;
+        }
+
+        /**
+         * @return the latest instant when GRASP must stop
+         */
+        public long getGraspDeadline() {
+            return startMillis + (long) (budgetMillis * MAX_GRASP_SHARE);
+        }
+
+        /**
+         * @return how long GRASP can go without improving, a share of the budget
+         */
+        public long getStaleTime() {
+            return (long) (budgetMillis * STALE_SHARE);
+        }
+
+        /**
+         * Compares the recent slope of the GRASP incumbent curve with the expected MIP rate. The comparison
+         * is made at most every {@value #CHECK_PERIOD} ms, in between the last answer is returned.
+         *
+         * @return true if the rest of the budget is better spent in the MIP search
+         */
+        public boolean isGraspOver(IncumbentTracker tracker, long nowMillis) {
+            if (graspOver || nowMillis < nextCheckMillis) {
+                return graspOver;
+            }
+            nextCheckMillis = nowMillis + CHECK_PERIOD;
+            long elapsed = nowMillis - startMillis;
+            if (elapsed < Math.max(window, budgetMillis * MIN_GRASP_SHARE)) {
+                return false;
+            }
+            double best = tracker.getBestObjective();
+            double before = tracker.getBestObjectiveAt(nowMillis - window);
+            double graspRate = before > 0 ? (best - before) / before / (window / 1000.0) : Double.POSITIVE_INFINITY;
+            graspOver = nowMillis >= getGraspDeadline() || graspRate < getExpectedMipRate();
+            return graspOver;
+        }
+
+        /**
+         * @return the time left until the deadline, in seconds
+         */
+        public double getRemainingSeconds(long nowMillis) {
+            return Math.max(0, getDeadline() - nowMillis) / 1000.0;
+        }
+
+        /**
+         * Records the outcome of the MIP search of this instance, to schedule the next ones.
+         */
+        public void recordMip(double startObjective, double endObjective, double seconds) {
+            BudgetScheduler.this.recordMip(startObjective, endObjective, seconds);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package it.unibs.mao.optalg.mkfsp.grasp;
+
+import it.unibs.mao.optalg.mkfsp.CompiledInstance;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The GRASP constructive phase. Families are picked at random from a
+ * restricted candidate list built on the families sorted by a
+ * {@link FamilyRanking}, non increasing penalty by default; each family is loaded whole into a knapsack when possible,
+ * otherwise its most problematic items are placed one at a time until the
+ * remaining ones fit together.
+ *
+ * All the working memory is allocated once, so an engine must not be shared
+ * between threads. A family insertion that fails is rolled back through an
+ * undo log of the items it has already placed. Given the {@link Zobrist}
+ * keys of the instance, the engine also hashes the solution as it builds it.
+ */
+public class ConstructionEngine {
+    private static final double[] BETA_LIST = {0.1, 0.2, 0.3};
+
+    private final int nFamilies;
+    private final int nKnapsacks;
+    private final int nResources;
+    private final int[] firstItems;
+    private final int[] familyEnd;
+    private final int[] itemResources;
+    private final int[] familyDemand;
+    private final int[] capacities;
+    // The family order of each ranking, by ordinal
+    private final int[][] rankingOrders;
+    private final Zobrist zobrist;
+
+    private final int[] solution;
+    private final int[] residual;
+    private final int[] candidates;
+    private final int[] pending;
+    private final int[] necessaryResources;
+    private final int[] knapsackCandidates;
+    private final int[] undoLog;
+    private int problematicResource;
+    private long hash;
+
+    public ConstructionEngine(CompiledInstance instance) {
+        this(instance, null);
+    }
+
+    /**
+     * @param zobrist the keys of the hash of the solution, or null to not keep it
+     */
+    public ConstructionEngine(CompiledInstance instance, Zobrist zobrist) {
+        this.nFamilies = instance.nFamilies();
+        this.nKnapsacks = instance.nKnapsacks();
+        this.nResources = instance.nResources();
+        this.firstItems = instance.firstItems();
+        this.familyEnd = instance.familyEnd();
+        this.itemResources = instance.itemResources();
+        this.familyDemand = instance.familyDemand();
+        this.capacities = instance.capacities();
+        this.zobrist = zobrist;
+
+        FamilyRanking[] rankings = FamilyRanking.values();
+        this.rankingOrders = new int[rankings.length][];
+        for (FamilyRanking ranking : rankings) {
+            rankingOrders[ranking.ordinal()] = ranking.order(instance);
+        }
+
+        int maxFamilySize = instance.maxFamilySize();
+        this.solution = new int[instance.nItems()];
+        this.residual = new int[nKnapsacks * nResources];
+        this.candidates = new int[nFamilies];
+        this.pending = new int[maxFamilySize];
+        this.necessaryResources = new int[nResources];
+        this.knapsackCandidates = new int[Math.max(nKnapsacks, maxFamilySize)];
+        this.undoLog = new int[maxFamilySize];
+    }
+
+    /**
+     * Builds a new solution on the penalty ranking, with a beta drawn
+     * uniformly from {@link #BETA_LIST}.
+     *
+     * @return an array owned by this engine that is overwritten by the next
+     *         call, copy it to keep it
+     */
+    public int[] construct(Random random) {
+        return construct(random, BETA_LIST[random.nextInt(BETA_LIST.length)], FamilyRanking.PENALTY);
+    }
+
+    /**
+     * Builds a new solution with the given restricted candidate list.
+     *
+     * @param beta    the share of the remaining candidates in the RCL
+     * @param ranking the order the RCL is taken from
+     * @return an array owned by this engine that is overwritten by the next
+     *         call, copy it to keep it
+     */
+    public int[] construct(Random random, double beta, FamilyRanking ranking) {
+        System.arraycopy(capacities, 0, residual, 0, residual.length);
+        Arrays.fill(solution, -1);
+        System.arraycopy(rankingOrders[ranking.ordinal()], 0, candidates, 0, nFamilies);
+        hash = 0;
+
+        int nCandidates = nFamilies;
+        while (nCandidates > 0) {
+            int rclSize = rclSize(nCandidates, beta);
+            int randomFamilyIndex = random.nextInt(rclSize);
+            insertFamily(candidates[randomFamilyIndex], random);
+
+            System.arraycopy(candidates, randomFamilyIndex + 1, candidates, randomFamilyIndex, nCandidates - randomFamilyIndex - 1);
+            nCandidates--;
+        }
+        return solution;
+    }
+
+    /**
+     * @return the Zobrist hash of the last solution built, 0 if the engine has no keys
+     */
+    public long hash() {
+        return hash;
+    }
+
+    private static int rclSize(int nCandidates, double beta) {
+        int numBestElements = (int) (nCandidates * beta);
+        numBestElements = numBestElements > 0 ? numBestElements : 1;
+
+        if (numBestElements == 1 && nCandidates > 2) {
+            numBestElements = 2;
+        }
+        return numBestElements;
+    }
+
+    /**
+     * Tries to load family {@code j}, leaving the state untouched on failure.
+     */
+    private boolean insertFamily(int j, Random random) {
+        int nPending = 0;
+        for (int i = firstItems[j]; i < familyEnd[j]; i++) {
+            pending[nPending++] = i;
+        }
+        System.arraycopy(familyDemand, j * nResources, necessaryResources, 0, nResources);
+
+        int nLogged = 0;
+        while (true) {
+            // First try the knapsacks already used by the family, then all of them
+            int nCandidateKnapsacks = 0;
+            for (int l = 0; l < nLogged; l++) {
+                knapsackCandidates[nCandidateKnapsacks++] = solution[undoLog[l]];
+            }
+            int knapsackForWholeFamily = findKnapsackToFitWholeFamily(nCandidateKnapsacks, random);
+            if (knapsackForWholeFamily == -1) {
+                for (int k = 0; k < nKnapsacks; k++) {
+                    knapsackCandidates[k] = k;
+                }
+                knapsackForWholeFamily = findKnapsackToFitWholeFamily(nKnapsacks, random);
+            }
+
+            if (knapsackForWholeFamily != -1) {
+                for (int p = 0; p < nPending; p++) {
+                    assign(pending[p], knapsackForWholeFamily);
+                }
+                return true;
+            }
+
+            if (nPending == 1) {
+                rollback(nLogged);
+                return false;
+            }
+
+            int maxPendingIndex = findMostProblematicItem(nPending);
+            if (maxPendingIndex == -1) {
+                rollback(nLogged);
+                return false;
+            }
+            int maxItemIndex = pending[maxPendingIndex];
+            int selectedKnapsack = findBestKnapsackForProblematicItem(maxItemIndex, problematicResource);
+            if (selectedKnapsack == -1) {
+                rollback(nLogged);
+                return false;
+            }
+
+            assign(maxItemIndex, selectedKnapsack);
+            undoLog[nLogged++] = maxItemIndex;
+            System.arraycopy(pending, maxPendingIndex + 1, pending, maxPendingIndex, nPending - maxPendingIndex - 1);
+            nPending--;
+            int itemBase = maxItemIndex * nResources;
+            for (int r = 0; r < nResources; r++) {
+                necessaryResources[r] -= itemResources[itemBase + r];
+            }
+        }
+    }
+
+    private void rollback(int nLogged) {
+        for (int l = 0; l < nLogged; l++) {
+            int i = undoLog[l];
+            int base = solution[i] * nResources;
+            int itemBase = i * nResources;
+            for (int r = 0; r < nResources; r++) {
+                residual[base + r] += itemResources[itemBase + r];
+            }
+            if (zobrist != null) {
+                hash ^= zobrist.key(i, solution[i]);
+            }
+            solution[i] = -1;
+        }
+    }
+
+    private void assign(int i, int k) {
+        solution[i] = k;
+        if (zobrist != null) {
+            hash ^= zobrist.key(i, k);
+        }
+        int base = k * nResources;
+        int itemBase = i * nResources;
+        for (int r = 0; r < nResources; r++) {
+            residual[base + r] -= itemResources[itemBase + r];
+        }
+    }
+
+    /**
+     * Picks knapsacks at random among the first {@code nCandidates} entries of
+     * {@code knapsackCandidates}, discarding the ones too small for the
+     * pending items.
+     */
+    private int findKnapsackToFitWholeFamily(int nCandidates, Random random) {
+        while (nCandidates > 0) {
+            int randomIndex = random.nextInt(nCandidates);
+            int randomKnapsack = knapsackCandidates[randomIndex];
+            if (wholeFamilyFits(randomKnapsack)) {
+                return randomKnapsack;
+            }
+            knapsackCandidates[randomIndex] = knapsackCandidates[--nCandidates];
+        }
+        return -1;
+    }
+
+    private boolean wholeFamilyFits(int k) {
+        int base = k * nResources;
+        for (int r = 0; r < nResources; r++) {
+            if (necessaryResources[r] > residual[base + r]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the pending item with the largest share of the family demand on
+     * some resource and stores that resource in {@code problematicResource}.
+     *
+     * @return the position of the item in {@code pending} or -1
+     */
+    private int findMostProblematicItem(int nPending) {
+        int maxPendingIndex = -1;
+        double maxValue = 0;
+        for (int r = 0; r < nResources; r++) {
+            for (int p = 0; p < nPending; p++) {
+                double currentValue = (double) itemResources[pending[p] * nResources + r] / necessaryResources[r];
+                if (currentValue > maxValue) {
+                    maxValue = currentValue;
+                    maxPendingIndex = p;
+                    problematicResource = r;
+                }
+            }
+        }
+        return maxPendingIndex;
+    }
+
+    private int findBestKnapsackForProblematicItem(int maxItemIndex, int maxResourceIndex) {
+        int minKnapsack = -1;
+        int minGap = Integer.MAX_VALUE;
+        int itemBase = maxItemIndex * nResources;
+
+        for (int k = 0; k < nKnapsacks; k++) {
+            int base = k * nResources;
+            int currentGap = residual[base + maxResourceIndex] - itemResources[itemBase + maxResourceIndex];
+            if (currentGap < minGap && currentGap >= 0) {
+                boolean fit = true;
+                for (int r = 0; r < nResources && fit; r++) {
+                    fit = residual[base + r] >= itemResources[itemBase + r];
+                }
+                if (fit) {
+                    minGap = currentGap;
+                    minKnapsack = k;
+                }
+            }
+        }
+        return minKnapsack;
+    }
+}
@@ -0,0 +1,35 @@
+package it.unibs.mao.optalg.mkfsp.grasp;
+
+import it.unibs.mao.optalg.mkfsp.CompiledInstance;
+import it.unibs.mao.optalg.mkfsp.IncumbentExchange;
+
+/**
+ * Connects the Gurobi callback to the {@link IncumbentTracker} of the GRASP
+ * workers: the tracker incumbent is offered to Gurobi, and every Gurobi
+ * incumbent is offered to the tracker and published as a seed for the
+ * local search of the workers.
+ *
+ * Gurobi calls the callback from one thread at a time, so the evaluator
+ * used to score its solutions is not shared.
+ */
+class CooperativeExchange implements IncumbentExchange {
+    private final IncumbentTracker tracker;
+    private final SolutionEvaluator evaluator;
+
+    CooperativeExchange(CompiledInstance instance, IncumbentTracker tracker) {
+        this.tracker = tracker;
+        this.evaluator = new SolutionEvaluator(instance);
+    }
+
+    @Override
+    public int[] solutionBetterThan(double objective) {
+        return tracker.getBestSolutionAbove(objective);
+    }
+
+    @Override
+    public void offerSolverSolution(int[] solution) {
+        // The MIP objective is only a lower bound when s or z are not tight
+        tracker.offer(solution, evaluator.load(solution).objective());
+        tracker.setSeed(solution);
+    }
+}
@@ -0,0 +1,96 @@
+package it.unibs.mao.optalg.mkfsp.grasp;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The best and most diverse solutions found by the GRASP workers of a run, the guides of {@link PathRelinking}
+ * and the MIP starts of the search that follows.
+ *
+ * The distance between two solutions is the number of items assigned to different knapsacks. A solution better
+ * than every elite always enters the pool. Otherwise it enters only if it is better than the worst elite and at
+ * least the minimum distance away from every elite; when the pool is full it replaces the most similar of the
+ * elites worse than itself.
+ */
+public class ElitePool {
+    private record Elite(int[] solution, double objectiveValue) {}
+
+    private final int capacity;
+    private final int minDistance;
+    private final List<Elite> elites = new ArrayList<>();
+
+    /**
+     * @param capacity     the maximum number of elite solutions
+     * @param minDistance  the minimum number of items two elites assign differently
+     */
+    public ElitePool(int capacity, int minDistance) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The elite pool must hold at least one solution: " + capacity);
+        }
+        this.capacity = capacity;
+        this.minDistance = Math.max(minDistance, 1);
+    }
+
+    /**
+     * Adds a copy of the given solution if it qualifies.
+     *
+     * @return true if the solution entered the pool
+     */
+    public synchronized boolean offer(int[] solution, double objectiveValue) {
+        if (elites.size() == capacity && objectiveValue <= elites.get(elites.size() - 1).objectiveValue()) {
+            return false;
+        }
+        int closest = -1;
+        int closestDistance = Integer.MAX_VALUE;
+        for (int e = 0; e < elites.size(); e++) {
+            Elite elite = elites.get(e);
+            int distance = distance(solution, elite.solution());
+            if (distance == 0 || distance < minDistance && objectiveValue <= elites.get(0).objectiveValue()) {
+                return false;
+            }
+            if (elite.objectiveValue() < objectiveValue && distance < closestDistance) {
+                closest = e;
+                closestDistance = distance;
+            }
+        }
+        if (elites.size() == capacity) {
+            elites.remove(closest);
+        }
+        elites.add(new Elite(solution.clone(), objectiveValue));
+        elites.sort(Comparator.comparingDouble(Elite::objectiveValue).reversed());
+        return true;
+    }
+
+    /**
+     * @return an elite drawn uniformly, or null if the pool is empty. The array must not be modified
+     */
+    public synchronized int[] pick(Random random) {
+        return elites.isEmpty() ? null : elites.get(random.nextInt(elites.size())).solution();
+    }
+
+    /**
+     * @return copies of the elite solutions, by non increasing objective value
+     */
+    public synchronized List<int[]> getSolutions() {
+        return elites.stream().map((elite) -> elite.solution().clone()).toList();
+    }
+
+    public synchronized int size() {
+        return elites.size();
+    }
+
+    /**
+     * @return the number of items the two solutions assign to different knapsacks
+     */
+    public static int distance(int[] first, int[] second) {
+        int distance = 0;
+        for (int i = 0; i < first.length; i++) {
+            if (first[i] != second[i]) {
+                distance++;
+            }
+        }
+        return distance;
+    }
+}
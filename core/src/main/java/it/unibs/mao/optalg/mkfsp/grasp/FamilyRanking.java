@@ -0,0 +1,40 @@
+package it.unibs.mao.optalg.mkfsp.grasp;
+
+import it.unibs.mao.optalg.mkfsp.CompiledInstance;
+
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * The greedy orders the restricted candidate list of the constructive phase is built on. Each one matches a
+ * ranking function of {@link Utils}: families by non increasing score, ties by index.
+ */
+public enum FamilyRanking {
+    /** {@link Utils#sortFamiliesByPenalties} */
+    PENALTY,
+    /** {@link Utils#rankFamiliesByProfits} */
+    PROFIT,
+    /** {@link Utils#sortFamiliesBySpecialGain} */
+    SPECIAL_GAIN,
+    /** {@link Utils#rankFamiliesByRatioProfitOverPenality}, without the integer division */
+    PROFIT_OVER_PENALTY;
+
+    /**
+     * @return the families of the instance in the order of this ranking
+     */
+    public int[] order(CompiledInstance instance) {
+        int[] profits = instance.profits();
+        int[] penalties = instance.penalties();
+        int[] familySize = instance.familySize();
+        Comparator<Integer> byScore = Comparator.comparingDouble((Integer j) -> switch (this) {
+            case PENALTY -> penalties[j];
+            case PROFIT -> profits[j];
+            case SPECIAL_GAIN -> profits[j] - (double) ((familySize[j] - 1) * penalties[j]) / 2;
+            case PROFIT_OVER_PENALTY -> penalties[j] > 0 ? (double) profits[j] / penalties[j] : Double.POSITIVE_INFINITY;
+        });
+        return IntStream.range(0, instance.nFamilies()).boxed()
+                .sorted(byScore.reversed())
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+}
@@ -0,0 +1,257 @@
+package it.unibs.mao.optalg.mkfsp.grasp;
+
+import it.unibs.mao.optalg.mkfsp.CompiledInstance;
+import it.unibs.mao.optalg.mkfsp.FeasibilityCheck;
+import it.unibs.mao.optalg.mkfsp.Instance;
+import it.unibs.mao.optalg.mkfsp.MipBackends;
+import it.unibs.mao.optalg.mkfsp.MipException;
+import it.unibs.mao.optalg.mkfsp.MipSession;
+import it.unibs.mao.optalg.mkfsp.PreprocessedInstance;
+import it.unibs.mao.optalg.mkfsp.Preprocessor;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+public class GRASP {
+    private static final long BOUND_TIME = 2000; //milliseconds
+
+
+    public static Solution grasp(Instance instance, Path outputDir) throws RuntimeException, IOException {
+        return grasp(instance, outputDir, new GraspConfig());
+    }
+
+    /**
+     * Runs GRASP and the MIP search in a {@link MipSession} opened for this instance only.
+     */
+    public static Solution grasp(Instance instance, Path outputDir, GraspConfig config) throws RuntimeException, IOException {
+        try (MipSession session = MipBackends.open(true)) {
+            return grasp(instance, outputDir, config, session);
+        } catch (MipException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Runs GRASP and then the MIP search in the given session, which can be reused for the next instances.
+     */
+    public static Solution grasp(Instance instance, Path outputDir, GraspConfig config, MipSession session) throws RuntimeException, IOException {
+        int nWorkers = config.getWorkers();
+        long startTime = System.currentTimeMillis();
+
+        long timer = System.currentTimeMillis();
+        BudgetScheduler.Budget budget = config.getScheduler().start(config.getTimeBudgetMillis());
+        // In cooperative mode the workers only run alone for the warmup, then they keep going next to Gurobi
+        long deadline = config.isCooperative() ? Math.min(timer + config.getWarmupMillis(), budget.getGraspDeadline()) : budget.getGraspDeadline();
+        long staleTime = budget.getStaleTime();
+        IncumbentTracker tracker = new IncumbentTracker(timer);
+        PreprocessedInstance preprocessed = config.isPreprocessing()
+                ? Preprocessor.preprocess(CompiledInstance.of(instance))
+                : Preprocessor.identity(CompiledInstance.of(instance));
+        CompiledInstance compiled = preprocessed.reduced();
+        Instance reduced = compiled.instance();
+        System.out.println("Preprocessing removed " + preprocessed.removedFamilies() + " families and " + preprocessed.removedKnapsacks() +
+                " knapsacks, dominance relations: " + preprocessed.dominance().size());
+
+        Random seeds = new Random();
+        double upperBound = Double.POSITIVE_INFINITY;
+        double objectiveTarget = Double.POSITIVE_INFINITY;
+        if (config.getGapEpsilon() > 0) {
+            upperBound = upperBound(compiled, seeds);
+            objectiveTarget = upperBound * (1 - config.getGapEpsilon());
+            tracker.setObjectiveTarget(objectiveTarget);
+            System.out.println("Upper bound: " + upperBound);
+        }
+        GraspWorker.Shared shared = GraspWorker.Shared.create(compiled, config, tracker);
+        ReactiveChoice reactive = shared.reactive();
+        ElitePool pool = shared.pool();
+        SeenSet seen = shared.seen();
+        runWorkers(createWorkers(compiled, config, shared, seeds, deadline, staleTime, config.isCooperative() ? null : budget));
+
+        int[] bestSolConstructivePhase = tracker.getBestSolution().clone();
+        double bestObjectiveConstructivePhase = tracker.getBestObjective();
+        if (preprocessed.repair(bestSolConstructivePhase) > 0) {
+            bestObjectiveConstructivePhase = Utils.calculateObjectiveValue(reduced, bestSolConstructivePhase);
+        }
+        double elapsedTimeMillis = System.currentTimeMillis() - timer;
+
+        //Feasibility check
+        final FeasibilityCheck check = reduced.checkFeasibility(bestSolConstructivePhase, bestObjectiveConstructivePhase);
+
+        if (!check.isValid()) {
+            for (final String errMsg: check.errorMessages()) {
+                System.out.println("  - " + errMsg);
+            }
+            throw new RuntimeException("Solution found by GRASP not feasible");
+        }
+
+        System.out.println((config.isCooperative() ? "GRASP warmup constructions: " : "GRASP constructions: ") + tracker.getIterations() + " with " + nWorkers + " workers (" +
+                Math.round(tracker.getIterations() / Math.max(elapsedTimeMillis / 1000, 1e-3)) + "/s)");
+        if (reactive != null) {
+            System.out.println("Reactive GRASP probabilities: " + reactive);
+        }
+        if (seen != null) {
+            System.out.println("Revisited solutions: " + seen.getHits() + " of " + seen.getLookups() + " (" +
+                    Math.round(100.0 * seen.getHits() / Math.max(seen.getLookups(), 1)) + "%)");
+        }
+
+        long graspEnd = System.currentTimeMillis();
+        if (tracker.isTargetReached()) {
+            System.out.println("GRASP ended because the gap is below " + config.getGapEpsilon());
+        } else if(tracker.isStale(graspEnd, staleTime)) {
+            System.out.println("GRASP ended because of STALE Iterations!");
+        } else if (graspEnd < deadline) {
+            System.out.println("GRASP ended because the MIP search is expected to improve faster");
+        } else {
+            System.out.println("GRASP ended because of time limits");
+        }
+
+        System.out.println("Obj Value GRASP: " + bestObjectiveConstructivePhase);
+
+        // The other elites become MIP starts, after the same repair as the incumbent
+        List<int[]> otherStarts = new ArrayList<>();
+        if (pool != null) {
+            for (int[] elite : pool.getSolutions()) {
+                preprocessed.repair(elite);
+                if (ElitePool.distance(elite, bestSolConstructivePhase) > 0) {
+                    otherStarts.add(elite);
+                }
+            }
+            System.out.println("Elite pool: " + pool.size() + " solutions, " + otherStarts.size() + " other MIP starts");
+        }
+
+        if (tracker.isTargetReached()) {
+            System.out.println("Skipping the MIP search");
+            return new Solution(preprocessed.expand(bestSolConstructivePhase), bestObjectiveConstructivePhase, (double) (System.currentTimeMillis() - startTime) / 1000);
+        }
+
+        double totalTimeLimitGurobi = budget.getRemainingSeconds(System.currentTimeMillis());
+        System.out.println("Time to the MIP search: " + totalTimeLimitGurobi + "s");
+        long mipStart = System.currentTimeMillis();
+
+        HashMap<Integer, Integer> splitForFamilies = new SolutionEvaluator(compiled).load(bestSolConstructivePhase).splitForEachFamily();
+
+        int[] solutionGurobiSearch;
+        if (config.isCooperative()) {
+            solutionGurobiSearch = cooperativeSearch(session, compiled, config, shared, seeds, bestSolConstructivePhase, otherStarts, totalTimeLimitGurobi, splitForFamilies, outputDir, objectiveTarget);
+        } else if (config.isLargeNeighborhoodSearch()) {
+            long lnsDeadline = System.currentTimeMillis() + (long) (totalTimeLimitGurobi * 1000);
+            try (LargeNeighborhoodSearch lns = new LargeNeighborhoodSearch(session, compiled, new Random(seeds.nextLong()))) {
+                lns.setObjectiveTarget(objectiveTarget);
+                solutionGurobiSearch = lns.run(bestSolConstructivePhase, lnsDeadline);
+            } catch (MipException e) {
+                throw new RuntimeException(e);
+            }
+        } else {
+            solutionGurobiSearch = MipSearch.run(session, reduced, bestSolConstructivePhase, otherStarts, totalTimeLimitGurobi, splitForFamilies, outputDir, null, objectiveTarget);
+        }
+        double objectiveGurobiSearch = Utils.calculateObjectiveValue(reduced, solutionGurobiSearch);
+        System.out.println("SOL TROVATA DA GUROBI: " + objectiveGurobiSearch);
+        budget.recordMip(bestObjectiveConstructivePhase, objectiveGurobiSearch, (System.currentTimeMillis() - mipStart) / 1000.0);
+        if (upperBound < Double.POSITIVE_INFINITY) {
+            System.out.println("Gap: " + UpperBound.gap(objectiveGurobiSearch, upperBound));
+        }
+
+        long endTime = System.currentTimeMillis();
+        double elapsedTimeInSeconds = (double) (endTime - startTime) / 1000;
+
+        return new Solution(preprocessed.expand(solutionGurobiSearch), objectiveGurobiSearch, elapsedTimeInSeconds);
+    }
+
+    /**
+     * Each worker owns its search state and random stream, only the {@link GraspWorker.Shared} objects are shared.
+     */
+    private static List<GraspWorker> createWorkers(CompiledInstance compiled, GraspConfig config, GraspWorker.Shared shared, Random seeds, long deadline, long staleTime, BudgetScheduler.Budget budget) {
+        List<GraspWorker> workers = new ArrayList<>();
+        for (int w = 0; w < config.getWorkers(); w++) {
+            workers.add(new GraspWorker(compiled, config, shared, new Random(seeds.nextLong()), deadline, staleTime, budget));
+        }
+        return workers;
+    }
+
+    /**
+     * Runs Gurobi from the initial solution while the workers keep running in the background. Gurobi
+     * injects the better incumbents of the workers and publishes its own ones as seeds for their local search.
+     * The workers are stopped when Gurobi returns.
+     *
+     * @return the best solution found by either side
+     */
+    private static int[] cooperativeSearch(MipSession session, CompiledInstance compiled, GraspConfig config, GraspWorker.Shared shared, Random seeds, int[] initialSolution, List<int[]> otherStarts, double timeLimit, HashMap<Integer, Integer> splitForFamilies, Path outputDir, double objectiveTarget) {
+        IncumbentTracker tracker = shared.tracker();
+        List<GraspWorker> workers = createWorkers(compiled, config, shared, seeds, Long.MAX_VALUE, Long.MAX_VALUE, null);
+        ExecutorService executor = Executors.newFixedThreadPool(workers.size());
+        List<Future<?>> futures = new ArrayList<>();
+        for (GraspWorker worker : workers) {
+            futures.add(executor.submit(worker));
+        }
+
+        try {
+            MipSearch.run(session, compiled.instance(), initialSolution, otherStarts, timeLimit, splitForFamilies, outputDir, new CooperativeExchange(compiled, tracker), objectiveTarget);
+        } finally {
+            // Interrupting the workers cuts short the local search they are running
+            tracker.stop();
+            executor.shutdownNow();
+            try {
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new RuntimeException("GRASP worker failed", e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        System.out.println("GRASP constructions next to Gurobi: " + tracker.getIterations());
+        return tracker.getBestSolution();
+    }
+
+    /**
+     * Computes the Lagrangian bound, with the objective of one constructed solution as the target of the
+     * subgradient steps.
+     */
+    private static double upperBound(CompiledInstance compiled, Random seeds) {
+        int[] solution = new ConstructionEngine(compiled).construct(new Random(seeds.nextLong())).clone();
+        double lowerBound = new SolutionEvaluator(compiled).load(solution).objective();
+        return new UpperBound(compiled).lagrangian(lowerBound, System.currentTimeMillis() + BOUND_TIME);
+    }
+
+    private static void runWorkers(List<GraspWorker> workers) {
+        if (workers.size() == 1) {
+            workers.get(0).run();
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers.size());
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (GraspWorker worker : workers) {
+                futures.add(executor.submit(worker));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("GRASP interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("GRASP worker failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Builds one solution with a throwaway {@link ConstructionEngine}. GRASP
+     * workers keep their own engine instead, this is meant for one-off calls.
+     */
+    public static int[] constructivePhase(Instance instance, Random random) {
+        return new ConstructionEngine(CompiledInstance.of(instance)).construct(random).clone();
+    }
+}
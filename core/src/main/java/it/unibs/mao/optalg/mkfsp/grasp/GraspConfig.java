@@ -0,0 +1,287 @@
+package it.unibs.mao.optalg.mkfsp.grasp;
+
+import java.util.Arrays;
+
+/**
+ * The tunable parameters of a GRASP run. Default values can be overridden
+ * with system properties, e.g. {@code -Dmkfsp.grasp.workers=8}.
+ */
+public class GraspConfig {
+    private int workers = Integer.getInteger("mkfsp.grasp.workers", Runtime.getRuntime().availableProcessors());
+    private LocalSearch.Strategy localSearch = parseStrategy(System.getProperty("mkfsp.grasp.localSearch", "FIRST_IMPROVEMENT"));
+    private boolean cooperative = Boolean.getBoolean("mkfsp.grasp.cooperative");
+    private long warmupMillis = Long.getLong("mkfsp.grasp.warmup", 10000);
+    private boolean largeNeighborhoodSearch = Boolean.getBoolean("mkfsp.grasp.lns");
+    private double gapEpsilon = Double.parseDouble(System.getProperty("mkfsp.grasp.gap", "1e-4"));
+    private long timeBudgetMillis = Long.getLong("mkfsp.grasp.budget", 800000);
+    private BudgetScheduler scheduler = new BudgetScheduler();
+    private boolean reactive = Boolean.getBoolean("mkfsp.grasp.reactive");
+    private double[] betas = parseBetas(System.getProperty("mkfsp.grasp.betas", "0.05,0.1,0.15,0.2,0.25,0.3,0.4,0.5"));
+    private FamilyRanking[] rankings = parseRankings(System.getProperty("mkfsp.grasp.rankings",
+            "PENALTY,PROFIT,SPECIAL_GAIN,PROFIT_OVER_PENALTY"));
+    private int eliteSize = Integer.getInteger("mkfsp.grasp.elite", 10);
+    private double eliteDistance = Double.parseDouble(System.getProperty("mkfsp.grasp.eliteDistance", "0.05"));
+    private boolean pathRelinking = Boolean.parseBoolean(System.getProperty("mkfsp.grasp.pathRelinking", "true"));
+    private int seenSetSize = Integer.getInteger("mkfsp.grasp.seenSet", 1 << 16);
+    private int tabuIterations = Integer.getInteger("mkfsp.grasp.tabu", 0);
+    private boolean preprocessing = Boolean.parseBoolean(System.getProperty("mkfsp.grasp.preprocess", "true"));
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public GraspConfig setWorkers(int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("The number of GRASP workers must be positive: " + workers);
+        }
+        this.workers = workers;
+        return this;
+    }
+
+    /**
+     * @return the local search strategy or null if the improvement phase is disabled
+     */
+    public LocalSearch.Strategy getLocalSearch() {
+        return localSearch;
+    }
+
+    public GraspConfig setLocalSearch(LocalSearch.Strategy localSearch) {
+        this.localSearch = localSearch;
+        return this;
+    }
+
+    /**
+     * @return true if the workers keep running while Gurobi optimizes, trading incumbents with it
+     */
+    public boolean isCooperative() {
+        return cooperative;
+    }
+
+    public GraspConfig setCooperative(boolean cooperative) {
+        this.cooperative = cooperative;
+        return this;
+    }
+
+    /**
+     * @return how long the workers run alone in cooperative mode, before the Gurobi model is built from their
+     *         best solution
+     */
+    public long getWarmupMillis() {
+        return warmupMillis;
+    }
+
+    public GraspConfig setWarmupMillis(long warmupMillis) {
+        if (warmupMillis < 0) {
+            throw new IllegalArgumentException("The warmup time can not be negative: " + warmupMillis);
+        }
+        this.warmupMillis = warmupMillis;
+        return this;
+    }
+
+    /**
+     * @return true if the GRASP solution is improved by {@link LargeNeighborhoodSearch} instead of a single
+     *         Gurobi solve. It is ignored in cooperative mode
+     */
+    public boolean isLargeNeighborhoodSearch() {
+        return largeNeighborhoodSearch;
+    }
+
+    public GraspConfig setLargeNeighborhoodSearch(boolean largeNeighborhoodSearch) {
+        this.largeNeighborhoodSearch = largeNeighborhoodSearch;
+        return this;
+    }
+
+    /**
+     * @return the relative gap to the {@link UpperBound} below which GRASP and the MIP search stop, 0 if they
+     *         always run until their time limit
+     */
+    public double getGapEpsilon() {
+        return gapEpsilon;
+    }
+
+    public GraspConfig setGapEpsilon(double gapEpsilon) {
+        if (gapEpsilon < 0 || gapEpsilon >= 1) {
+            throw new IllegalArgumentException("The gap epsilon must be in [0, 1): " + gapEpsilon);
+        }
+        this.gapEpsilon = gapEpsilon;
+        return this;
+    }
+
+    /**
+     * @return the time for one instance, in milliseconds, split between GRASP and the MIP search by the
+     *         {@link #getScheduler() scheduler}
+     */
+    public long getTimeBudgetMillis() {
+        return timeBudgetMillis;
+    }
+
+    public GraspConfig setTimeBudgetMillis(long timeBudgetMillis) {
+        if (timeBudgetMillis <= 0) {
+            throw new IllegalArgumentException("The time budget must be positive: " + timeBudgetMillis);
+        }
+        this.timeBudgetMillis = timeBudgetMillis;
+        return this;
+    }
+
+    /**
+     * @return the scheduler that splits the time budget, it learns from every instance solved with this
+     *         configuration
+     */
+    public BudgetScheduler getScheduler() {
+        return scheduler;
+    }
+
+    public GraspConfig setScheduler(BudgetScheduler scheduler) {
+        this.scheduler = scheduler;
+        return this;
+    }
+
+    /**
+     * @return true if the RCL beta and family ranking of each construction are drawn by a {@link ReactiveChoice}
+     *         over {@link #getBetas()} and {@link #getRankings()}, instead of the fixed betas on the penalty ranking
+     */
+    public boolean isReactive() {
+        return reactive;
+    }
+
+    public GraspConfig setReactive(boolean reactive) {
+        this.reactive = reactive;
+        return this;
+    }
+
+    /**
+     * @return the RCL betas of reactive GRASP
+     */
+    public double[] getBetas() {
+        return betas.clone();
+    }
+
+    public GraspConfig setBetas(double... betas) {
+        this.betas = checkBetas(betas.clone());
+        return this;
+    }
+
+    /**
+     * @return the family rankings of reactive GRASP
+     */
+    public FamilyRanking[] getRankings() {
+        return rankings.clone();
+    }
+
+    public GraspConfig setRankings(FamilyRanking... rankings) {
+        if (rankings.length == 0) {
+            throw new IllegalArgumentException("Reactive GRASP needs at least one ranking");
+        }
+        this.rankings = rankings.clone();
+        return this;
+    }
+
+    /**
+     * @return the capacity of the {@link ElitePool}, whose solutions are also the MIP starts, 0 if there is no pool
+     */
+    public int getEliteSize() {
+        return eliteSize;
+    }
+
+    public GraspConfig setEliteSize(int eliteSize) {
+        if (eliteSize < 0) {
+            throw new IllegalArgumentException("The elite pool size can not be negative: " + eliteSize);
+        }
+        this.eliteSize = eliteSize;
+        return this;
+    }
+
+    /**
+     * @return the minimum distance between two elite solutions, as a share of the items
+     */
+    public double getEliteDistance() {
+        return eliteDistance;
+    }
+
+    public GraspConfig setEliteDistance(double eliteDistance) {
+        if (eliteDistance < 0 || eliteDistance > 1) {
+            throw new IllegalArgumentException("The elite distance must be in [0, 1]: " + eliteDistance);
+        }
+        this.eliteDistance = eliteDistance;
+        return this;
+    }
+
+    /**
+     * @return true if every construction is relinked with an elite solution, it needs an elite pool
+     */
+    public boolean isPathRelinking() {
+        return pathRelinking;
+    }
+
+    public GraspConfig setPathRelinking(boolean pathRelinking) {
+        this.pathRelinking = pathRelinking;
+        return this;
+    }
+
+    /**
+     * @return the number of solution hashes kept by the {@link SeenSet} to skip revisits, 0 if there is none
+     */
+    public int getSeenSetSize() {
+        return seenSetSize;
+    }
+
+    public GraspConfig setSeenSetSize(int seenSetSize) {
+        if (seenSetSize < 0) {
+            throw new IllegalArgumentException("The seen set size can not be negative: " + seenSetSize);
+        }
+        this.seenSetSize = seenSetSize;
+        return this;
+    }
+
+    /**
+     * @return the iterations of the {@link TabuSearch} run on every new local optimum, 0 if it is disabled
+     */
+    public int getTabuIterations() {
+        return tabuIterations;
+    }
+
+    public GraspConfig setTabuIterations(int tabuIterations) {
+        if (tabuIterations < 0) {
+            throw new IllegalArgumentException("The tabu search iterations can not be negative: " + tabuIterations);
+        }
+        this.tabuIterations = tabuIterations;
+        return this;
+    }
+
+    /**
+     * @return true if the instance is reduced by the {@link it.unibs.mao.optalg.mkfsp.Preprocessor} before the run
+     */
+    public boolean isPreprocessing() {
+        return preprocessing;
+    }
+
+    public GraspConfig setPreprocessing(boolean preprocessing) {
+        this.preprocessing = preprocessing;
+        return this;
+    }
+
+    private static double[] checkBetas(double[] betas) {
+        if (betas.length == 0) {
+            throw new IllegalArgumentException("Reactive GRASP needs at least one beta");
+        }
+        for (double beta : betas) {
+            if (beta <= 0 || beta > 1) {
+                throw new IllegalArgumentException("The RCL beta must be in (0, 1]: " + beta);
+            }
+        }
+        return betas;
+    }
+
+    private static double[] parseBetas(String value) {
+        return checkBetas(Arrays.stream(value.split(",")).map(String::trim).mapToDouble(Double::parseDouble).toArray());
+    }
+
+    private static FamilyRanking[] parseRankings(String value) {
+        return Arrays.stream(value.split(",")).map((name) -> FamilyRanking.valueOf(name.trim().toUpperCase()))
+                .toArray(FamilyRanking[]::new);
+    }
+
+    private static LocalSearch.Strategy parseStrategy(String value) {
+        return "NONE".equalsIgnoreCase(value) ? null : LocalSearch.Strategy.valueOf(value.toUpperCase());
+    }
+}
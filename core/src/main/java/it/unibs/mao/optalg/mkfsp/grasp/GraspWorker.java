@@ -0,0 +1,140 @@
+package it.unibs.mao.optalg.mkfsp.grasp;
+
+import it.unibs.mao.optalg.mkfsp.CompiledInstance;
+
+import java.util.Random;
+
+/**
+ * One GRASP multi-start loop: each iteration constructs a solution, or takes a seed published by Gurobi, improves
+ * it with the phases enabled in the {@link GraspConfig} and offers it to the tracker, the elite pool and the
+ * path relinking. The loop stops at the deadline, when the incumbent goes stale, when the tracker is stopped or
+ * when the budget moves the time to the MIP search.
+ *
+ * Every worker has its own random stream and search state, they only share the {@link Shared} objects.
+ */
+class GraspWorker implements Runnable {
+    /**
+     * The state shared by the workers of a run, the optional parts are null when disabled.
+     */
+    record Shared(IncumbentTracker tracker, ReactiveChoice reactive, ElitePool pool, SeenSet seen, Zobrist zobrist) {
+        static Shared create(CompiledInstance instance, GraspConfig config, IncumbentTracker tracker) {
+            ReactiveChoice reactive = config.isReactive() ? new ReactiveChoice(config.getBetas(), config.getRankings()) : null;
+            ElitePool pool = config.getEliteSize() > 0
+                    ? new ElitePool(config.getEliteSize(), (int) Math.ceil(config.getEliteDistance() * instance.nItems()))
+                    : null;
+            SeenSet seen = config.getSeenSetSize() > 0 ? new SeenSet(config.getSeenSetSize()) : null;
+            return new Shared(tracker, reactive, pool, seen, seen != null ? new Zobrist(instance) : null);
+        }
+    }
+
+    private final IncumbentTracker tracker;
+    private final LocalSearch localSearch;
+    private final SolutionEvaluator evaluator;
+    private final ConstructionEngine engine;
+    private final Random random;
+    private final long deadline;
+    private final long staleTime;
+    private final BudgetScheduler.Budget budget;
+    private final ReactiveChoice reactive;
+    private final ElitePool pool;
+    private final PathRelinking pathRelinking;
+    private final SeenSet seen;
+    private final TabuSearch tabuSearch;
+    private final int tabuIterations;
+
+    /**
+     * @param budget the budget that ends the GRASP phase, or null to only stop at the deadline
+     */
+    GraspWorker(CompiledInstance instance, GraspConfig config, Shared shared, Random random, long deadline,
+                long staleTime, BudgetScheduler.Budget budget) {
+        this.tracker = shared.tracker();
+        this.reactive = shared.reactive();
+        this.pool = shared.pool();
+        this.seen = shared.seen();
+        this.localSearch = config.getLocalSearch() != null
+                ? new LocalSearch(instance, config.getLocalSearch(), shared.zobrist())
+                : null;
+        this.evaluator = new SolutionEvaluator(instance, shared.zobrist());
+        this.engine = new ConstructionEngine(instance, shared.zobrist());
+        this.random = random;
+        this.deadline = deadline;
+        this.staleTime = staleTime;
+        this.budget = budget;
+        this.pathRelinking = pool != null && config.isPathRelinking() ? new PathRelinking(instance) : null;
+        this.tabuIterations = config.getTabuIterations();
+        this.tabuSearch = tabuIterations > 0 ? new TabuSearch(instance, random) : null;
+    }
+
+    @Override
+    public void run() {
+        long now = System.currentTimeMillis();
+        while (now < deadline && !tracker.isStale(now, staleTime) && !tracker.isStopped()
+                && !Thread.currentThread().isInterrupted()) {
+            // Solutions found by Gurobi in cooperative mode replace a construction
+            int[] seed = localSearch != null ? tracker.takeSeed() : null;
+            ReactiveChoice.Choice choice = seed == null && reactive != null ? reactive.pick(random) : null;
+            int[] solution = seed != null ? seed.clone()
+                    : choice != null ? engine.construct(random, choice.beta(), choice.ranking())
+                    : engine.construct(random);
+            if (seed != null || seen == null || !seen.checkAndAdd(engine.hash())) {
+                improve(solution, seed != null, choice);
+            }
+            tracker.countIteration();
+            now = System.currentTimeMillis();
+            if (budget != null && budget.isGraspOver(tracker, now)) {
+                tracker.stop();
+            }
+        }
+    }
+
+    private void improve(int[] solution, boolean isSeed, ReactiveChoice.Choice choice) {
+        long constructionHash = isSeed ? 0 : engine.hash();
+        double objectiveValue = localSearch != null
+                ? localSearch.improve(solution, deadline)
+                : evaluator.load(solution).objective();
+        if (choice != null) {
+            reactive.record(choice, objectiveValue);
+        }
+        if (seen != null && hash() != constructionHash && seen.checkAndAdd(hash())) {
+            return;
+        }
+        if (tabuSearch != null) {
+            objectiveValue = tabuSearch.improve(solution, tabuIterations, deadline, tracker);
+        }
+        // The engine reuses its buffer, a copy is only needed for improving solutions
+        if (objectiveValue > tracker.getBestObjective()) {
+            tracker.offer(isSeed ? solution : solution.clone(), objectiveValue);
+        }
+        if (pool != null) {
+            int[] guide = pathRelinking != null ? pool.pick(random) : null;
+            pool.offer(solution, objectiveValue);
+            if (guide != null) {
+                relink(solution, guide);
+            }
+        }
+    }
+
+    /**
+     * @return the hash of the solution last improved or evaluated
+     */
+    private long hash() {
+        return localSearch != null ? localSearch.hash() : evaluator.hash();
+    }
+
+    private void relink(int[] solution, int[] guide) {
+        int[] path = pathRelinking.relink(solution, guide, deadline);
+        if (path == null) {
+            return;
+        }
+        double objectiveValue = localSearch != null
+                ? localSearch.improve(path, deadline)
+                : evaluator.load(path).objective();
+        if (seen != null && seen.checkAndAdd(hash())) {
+            return;
+        }
+        if (objectiveValue > tracker.getBestObjective()) {
+            tracker.offer(path.clone(), objectiveValue);
+        }
+        pool.offer(path, objectiveValue);
+    }
+}
@@ -0,0 +1,126 @@
+package it.unibs.mao.optalg.mkfsp.grasp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The best solution found so far, shared by all the GRASP workers of a run.
+ * It also holds the stale timer, i.e. the instant of the last improvement, and the incumbent curve.
+ *
+ * In cooperative mode it also holds the last solution found by Gurobi, that
+ * one of the workers takes as the starting point of a local search, and the
+ * flag that stops the workers when Gurobi is done.
+ *
+ * The workers are also stopped as soon as the incumbent reaches the
+ * objective target, i.e. when it is provably close enough to the optimum.
+ */
+public class IncumbentTracker {
+    private int[] bestSolution = new int[0];
+    private double bestObjective = Double.NEGATIVE_INFINITY;
+    private int[] seed;
+    private volatile long lastImprovementMillis;
+    private volatile boolean stopped;
+    private double objectiveTarget = Double.POSITIVE_INFINITY;
+    private final AtomicLong iterations = new AtomicLong();
+    // The instant and objective of every improvement
+    private final List<double[]> history = new ArrayList<>();
+
+    public IncumbentTracker(long startMillis) {
+        this.lastImprovementMillis = startMillis;
+    }
+
+    /**
+     * Replaces the incumbent if the given solution is strictly better.
+     * The array is stored as is, callers must not modify it afterwards.
+     *
+     * @return true if the incumbent has been replaced
+     */
+    public synchronized boolean offer(int[] solution, double objectiveValue) {
+        if (objectiveValue > bestObjective) {
+            bestObjective = objectiveValue;
+            bestSolution = solution;
+            lastImprovementMillis = System.currentTimeMillis();
+            history.add(new double[] {lastImprovementMillis, objectiveValue});
+            if (objectiveValue >= objectiveTarget) {
+                stopped = true;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized int[] getBestSolution() {
+        return bestSolution;
+    }
+
+    public synchronized double getBestObjective() {
+        return bestObjective;
+    }
+
+    /**
+     * @return the best objective at the given instant, negative infinity if there was no solution yet
+     */
+    public synchronized double getBestObjectiveAt(long millis) {
+        for (int t = history.size() - 1; t >= 0; t--) {
+            if (history.get(t)[0] <= millis) {
+                return history.get(t)[1];
+            }
+        }
+        return Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * @return the best solution if its objective is strictly greater than the given one, null otherwise
+     */
+    public synchronized int[] getBestSolutionAbove(double objectiveValue) {
+        return bestObjective > objectiveValue ? bestSolution : null;
+    }
+
+    /**
+     * Publishes a solution for a worker to improve. It replaces the previous one if no worker has taken it yet.
+     */
+    public synchronized void setSeed(int[] solution) {
+        seed = solution;
+    }
+
+    /**
+     * @return the last published seed or null, only one caller gets each seed
+     */
+    public synchronized int[] takeSeed() {
+        int[] result = seed;
+        seed = null;
+        return result;
+    }
+
+    public synchronized void setObjectiveTarget(double objectiveTarget) {
+        this.objectiveTarget = objectiveTarget;
+        if (bestObjective >= objectiveTarget) {
+            stopped = true;
+        }
+    }
+
+    public synchronized boolean isTargetReached() {
+        return bestObjective >= objectiveTarget;
+    }
+
+    public void stop() {
+        stopped = true;
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    public boolean isStale(long nowMillis, long staleTime) {
+        return nowMillis - lastImprovementMillis >= staleTime;
+    }
+
+    public void countIteration() {
+        iterations.incrementAndGet();
+    }
+
+    public long getIterations() {
+        return iterations.get();
+    }
+}
@@ -0,0 +1,292 @@
+package it.unibs.mao.optalg.mkfsp.grasp;
+
+import it.unibs.mao.optalg.mkfsp.CompiledInstance;
+import it.unibs.mao.optalg.mkfsp.MipException;
+import it.unibs.mao.optalg.mkfsp.MipModel;
+import it.unibs.mao.optalg.mkfsp.MipSession;
+import it.unibs.mao.optalg.mkfsp.MipStatus;
+import it.unibs.mao.optalg.mkfsp.ModelReduction;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * MIP-based large neighborhood search. At each iteration a subset of the families and of the knapsacks is freed,
+ * everything else is fixed to the incumbent, and the resulting sub-MIP is solved with a short time limit.
+ *
+ * The model is built once: every iteration only {@link MipModel#restrict restricts} it to the neighborhood and sets
+ * the MIP start. A free family can move its items among the free knapsacks, leave the knapsacks that are not free
+ * or be dropped; an unselected free family can be added to the free knapsacks.
+ *
+ * The neighborhoods are chosen in turn by:
+ * <ul>
+ *   <li>{@link Neighborhood#SPLITS}: the families with the most splits and the knapsacks they use;</li>
+ *   <li>{@link Neighborhood#RESIDUAL}: the knapsacks with the largest residual capacity and their families;</li>
+ *   <li>{@link Neighborhood#RANDOM}: random knapsacks and families.</li>
+ * </ul>
+ * Each neighborhood also frees some random unselected families. The number of free families grows when the
+ * sub-MIPs are solved to optimality without improvements and shrinks when they hit the time limit.
+ */
+public class LargeNeighborhoodSearch implements AutoCloseable {
+    public enum Neighborhood { SPLITS, RESIDUAL, RANDOM }
+
+    private static final double SUB_TIME_LIMIT = 5; //seconds
+    private static final double GROWTH = 1.25;
+    private static final int MIN_FAMILIES = 5;
+
+    private final CompiledInstance instance;
+    private final Random random;
+    private final SolutionEvaluator evaluator;
+    private final MipModel model;
+
+    private final boolean[] freeFamily;
+    private final boolean[] freeKnapsack;
+    private final int[] order;
+    private final double[] scores;
+
+    private int familiesToFree;
+    private int iterations;
+    private double objectiveTarget = Double.POSITIVE_INFINITY;
+
+    public LargeNeighborhoodSearch(MipSession session, CompiledInstance instance, Random random) throws MipException {
+        this.instance = instance;
+        this.random = random;
+        this.evaluator = new SolutionEvaluator(instance);
+        // The neighborhoods are chosen on the incumbent as it is, load order rows would permute it
+        this.model = session.build(instance, new ModelReduction(instance).pruneUnfit().omitSymmetryBreaking());
+        // The sub-MIPs are short, their log and the new incumbents would only be noise
+        model.setOutput(false);
+
+        int nFamilies = instance.nFamilies();
+        this.freeFamily = new boolean[nFamilies];
+        this.freeKnapsack = new boolean[instance.nKnapsacks()];
+        this.order = new int[Math.max(nFamilies, instance.nKnapsacks())];
+        this.scores = new double[order.length];
+        this.familiesToFree = Math.min(nFamilies, Math.max(MIN_FAMILIES, nFamilies / 20));
+    }
+
+    /**
+     * Stops the search as soon as the incumbent reaches the given objective value.
+     */
+    public void setObjectiveTarget(double objectiveTarget) throws MipException {
+        this.objectiveTarget = objectiveTarget;
+        model.setObjectiveTarget(objectiveTarget);
+    }
+
+    /**
+     * Improves the given solution until the deadline or the objective target.
+     *
+     * @param initialSolution  a feasible solution, not modified
+     * @param deadline         the instant, in milliseconds, when the search must stop
+     * @return                 the best solution found
+     */
+    public int[] run(int[] initialSolution, long deadline) throws MipException {
+        int[] best = initialSolution.clone();
+        long bestObjective = evaluator.load(best).objective();
+        Neighborhood[] neighborhoods = Neighborhood.values();
+
+        while (System.currentTimeMillis() < deadline && bestObjective < objectiveTarget
+                && !Thread.currentThread().isInterrupted()) {
+            Neighborhood neighborhood = neighborhoods[iterations++ % neighborhoods.length];
+            evaluator.load(best);
+            selectNeighborhood(neighborhood);
+            model.restrict(best, freeFamily, freeKnapsack);
+            model.setStart(best);
+
+            double remaining = (deadline - System.currentTimeMillis()) / 1000.0;
+            model.setTimeLimit(Math.max(0.1, Math.min(SUB_TIME_LIMIT, remaining)));
+            MipStatus status = model.optimize();
+
+            boolean improved = false;
+            int[] candidate = model.solution();
+            if (candidate != null) {
+                long objective = evaluator.load(candidate).objective();
+                if (objective > bestObjective) {
+                    best = candidate;
+                    bestObjective = objective;
+                    improved = true;
+                    System.out.println("LNS " + iterations + " (" + neighborhood + ", " + familiesToFree +
+                            " families): " + bestObjective);
+                }
+            }
+
+            if (status == MipStatus.OPTIMAL && !improved) {
+                familiesToFree = Math.min(instance.nFamilies(), (int) Math.ceil(familiesToFree * GROWTH));
+            } else if (status == MipStatus.TIME_LIMIT) {
+                familiesToFree = Math.max(MIN_FAMILIES, (int) (familiesToFree / GROWTH));
+            }
+        }
+        System.out.println("LNS iterations: " + iterations);
+        return best;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    private void selectNeighborhood(Neighborhood neighborhood) {
+        int nFamilies = instance.nFamilies();
+        int nKnapsacks = instance.nKnapsacks();
+        int nResources = instance.nResources();
+        Arrays.fill(freeFamily, false);
+        Arrays.fill(freeKnapsack, false);
+        int knapsacksToFree = Math.max(2, nKnapsacks / 4);
+        // Selected families take three quarters of the neighborhood, unselected ones the rest
+        int selectedToFree = Math.max(1, familiesToFree * 3 / 4);
+
+        switch (neighborhood) {
+            case SPLITS -> {
+                for (int j = 0; j < nFamilies; j++) {
+                    scores[j] = evaluator.isSelected(j) ? evaluator.splits(j) + random.nextDouble() : -1;
+                }
+                int n = 0;
+                int top = topByScore(nFamilies, selectedToFree);
+                for (int t = 0; t < top; t++) {
+                    int j = order[t];
+                    if (scores[j] >= 0) {
+                        freeFamily[j] = true;
+                        n += freeKnapsacksOf(j);
+                    }
+                }
+                if (n == 0) {
+                    freeRandomKnapsacks(knapsacksToFree);
+                }
+            }
+            case RESIDUAL -> {
+                int[] capacities = instance.capacities();
+                for (int k = 0; k < nKnapsacks; k++) {
+                    double slack = 0;
+                    for (int r = 0; r < nResources; r++) {
+                        slack += (double) evaluator.residual(k, r) / Math.max(1, capacities[k * nResources + r]);
+                    }
+                    scores[k] = slack / nResources;
+                }
+                int top = topByScore(nKnapsacks, knapsacksToFree);
+                for (int t = 0; t < top; t++) {
+                    freeKnapsack[order[t]] = true;
+                }
+                freeFamiliesInFreeKnapsacks(selectedToFree);
+            }
+            case RANDOM -> {
+                freeRandomKnapsacks(knapsacksToFree);
+                freeFamiliesInFreeKnapsacks(selectedToFree);
+            }
+        }
+
+        // Random unselected families that can enter the free knapsacks
+        int toAdd = familiesToFree - selectedToFree;
+        for (int attempt = 0; toAdd > 0 && attempt < 4 * nFamilies; attempt++) {
+            int j = random.nextInt(nFamilies);
+            if (!freeFamily[j] && !evaluator.isSelected(j)) {
+                freeFamily[j] = true;
+                toAdd--;
+            }
+        }
+    }
+
+    /**
+     * @return the number of knapsacks used by family {@code j} that have been freed
+     */
+    private int freeKnapsacksOf(int j) {
+        int[] solution = evaluator.solution();
+        int count = 0;
+        int endItem = instance.familyEnd()[j];
+        for (int i = instance.firstItems()[j]; i < endItem; i++) {
+            if (!freeKnapsack[solution[i]]) {
+                freeKnapsack[solution[i]] = true;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void freeRandomKnapsacks(int count) {
+        int nKnapsacks = instance.nKnapsacks();
+        for (int k = 0; k < nKnapsacks; k++) {
+            scores[k] = random.nextDouble();
+        }
+        int top = topByScore(nKnapsacks, count);
+        for (int t = 0; t < top; t++) {
+            freeKnapsack[order[t]] = true;
+        }
+    }
+
+    /**
+     * Frees up to {@code count} random families with at least one item in a free knapsack.
+     */
+    private void freeFamiliesInFreeKnapsacks(int count) {
+        int nFamilies = instance.nFamilies();
+        int[] solution = evaluator.solution();
+        int[] firstItems = instance.firstItems();
+        int[] familyEnd = instance.familyEnd();
+        for (int j = 0; j < nFamilies; j++) {
+            scores[j] = -1;
+            if (evaluator.isSelected(j)) {
+                for (int i = firstItems[j]; i < familyEnd[j]; i++) {
+                    if (freeKnapsack[solution[i]]) {
+                        scores[j] = random.nextDouble();
+                        break;
+                    }
+                }
+            }
+        }
+        int top = topByScore(nFamilies, count);
+        for (int t = 0; t < top; t++) {
+            int j = order[t];
+            if (scores[j] >= 0) {
+                freeFamily[j] = true;
+            }
+        }
+    }
+
+    /**
+     * Leaves in {@code order[0, top)} the indices in [0, n) of the {@code top = min(count, n)} largest scores, in no
+     * particular order. The buffer holds a min-heap on the scores while the indices are scanned, so the selection
+     * costs O(n log count) and does not allocate.
+     *
+     * @return the number of indices selected
+     */
+    private int topByScore(int n, int count) {
+        int top = Math.min(count, n);
+        if (top <= 0) {
+            return 0;
+        }
+        for (int t = 0; t < top; t++) {
+            order[t] = t;
+        }
+        for (int t = top / 2 - 1; t >= 0; t--) {
+            siftDown(t, top);
+        }
+        for (int t = top; t < n; t++) {
+            if (scores[t] > scores[order[0]]) {
+                order[0] = t;
+                siftDown(0, top);
+            }
+        }
+        return top;
+    }
+
+    private void siftDown(int position, int size) {
+        int index = order[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && scores[order[child + 1]] < scores[order[child]]) {
+                child++;
+            }
+            if (scores[order[child]] >= scores[index]) {
+                break;
+            }
+            order[position] = order[child];
+            position = child;
+        }
+        order[position] = index;
+    }
+
+    @Override
+    public void close() {
+        model.close();
+    }
+}
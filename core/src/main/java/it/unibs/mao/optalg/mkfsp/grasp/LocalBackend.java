@@ -0,0 +1,68 @@
+package it.unibs.mao.optalg.mkfsp.grasp;
+
+import it.unibs.mao.optalg.mkfsp.CompiledInstance;
+import it.unibs.mao.optalg.mkfsp.MipBackend;
+import it.unibs.mao.optalg.mkfsp.MipModel;
+import it.unibs.mao.optalg.mkfsp.MipSession;
+import it.unibs.mao.optalg.mkfsp.ModelReduction;
+
+/**
+ * A pure Java stand-in for a MIP solver, used when no other backend is available, e.g. on nodes without a
+ * Gurobi license. Its models improve the MIP start with {@link BranchAndBound} instead of solving the MIP, see
+ * {@link LocalModel}. It needs no native library and no license, so it can always open a session.
+ */
+public class LocalBackend implements MipBackend {
+    public static final String NAME = "local";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public int priority() {
+        return 0;
+    }
+
+    @Override
+    public MipSession open(boolean output) {
+        return new Session(output);
+    }
+
+    private final class Session implements MipSession {
+        private final boolean output;
+        private boolean closed;
+
+        Session(boolean output) {
+            this.output = output;
+        }
+
+        @Override
+        public MipBackend backend() {
+            return LocalBackend.this;
+        }
+
+        @Override
+        public MipModel build(CompiledInstance instance, ModelReduction reduction) {
+            if (closed) {
+                throw new IllegalStateException("The solver session has been closed");
+            }
+            return new LocalModel(instance, reduction, output);
+        }
+
+        /**
+         * Local models are single threaded, there is nothing to limit.
+         */
+        @Override
+        public void setThreads(int threads) {
+            if (threads < 0) {
+                throw new IllegalArgumentException("The number of threads can not be negative: " + threads);
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package it.unibs.mao.optalg.mkfsp.grasp;
+
+import it.unibs.mao.optalg.mkfsp.CompiledInstance;
+import it.unibs.mao.optalg.mkfsp.IncumbentExchange;
+import it.unibs.mao.optalg.mkfsp.MipException;
+import it.unibs.mao.optalg.mkfsp.MipModel;
+import it.unibs.mao.optalg.mkfsp.MipStatus;
+import it.unibs.mao.optalg.mkfsp.ModelReduction;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The model of the {@link LocalBackend}. It does not solve the MIP: {@link #optimize()} improves the MIP start,
+ * or a constructed solution if there is none, with random {@link BranchAndBound} neighborhoods until the time
+ * limit. Between two slices of the search it trades incumbents with the exchange, if any.
+ *
+ * A {@link #restrict restriction} small enough is first solved exactly, in which case the status is
+ * {@link MipStatus#OPTIMAL}; only the families that lie entirely inside the free knapsacks are moved. Without an
+ * exchange the search also stops when it has not improved for a while, sooner on restrictions.
+ *
+ * Of the {@link ModelReduction}, only the families fixed out are honored: they never enter the solution. Split
+ * limits and the log file are ignored.
+ */
+class LocalModel implements MipModel {
+    private static final long SLICE = 100; //milliseconds
+    private static final int MAX_STALE_SLICES = 200;
+    // Restrictions are small, they are exhausted sooner
+    private static final int MAX_STALE_RESTRICTED_SLICES = 10;
+    private static final long EXACT_NODE_LIMIT = 500000;
+
+    private final CompiledInstance instance;
+    private boolean output;
+    private final SolutionEvaluator evaluator;
+    private final BranchAndBound branchAndBound;
+    private final ConstructionEngine engine;
+    private final Random random = new Random();
+    private final List<double[]> history = new ArrayList<>();
+
+    private final boolean[] selectable;
+    private final boolean[] freeFamilies;
+    private final boolean[] freeKnapsacks;
+    private final int[] familySet;
+    private final int[] knapsackSet;
+    private boolean restricted;
+
+    private double timeLimit = Double.POSITIVE_INFINITY;
+    private double objectiveTarget = Double.POSITIVE_INFINITY;
+    private IncumbentExchange exchange;
+    private int[] lastInjected;
+    private int[] start;
+    private int[] best;
+    private long bestObjective;
+
+    LocalModel(CompiledInstance instance, ModelReduction reduction, boolean output) {
+        int nFamilies = instance.nFamilies();
+        int nKnapsacks = instance.nKnapsacks();
+        if (reduction != null) {
+            CompiledInstance other = reduction.instance();
+            if (other.nItems() != instance.nItems() || other.nFamilies() != nFamilies || other.nKnapsacks() != nKnapsacks) {
+                throw new IllegalArgumentException("The model reduction belongs to a different instance");
+            }
+        }
+        this.instance = instance;
+        this.output = output;
+        this.evaluator = new SolutionEvaluator(instance);
+        this.branchAndBound = new BranchAndBound(instance);
+        this.engine = new ConstructionEngine(instance);
+
+        this.selectable = new boolean[nFamilies];
+        this.freeFamilies = new boolean[nFamilies];
+        this.freeKnapsacks = new boolean[nKnapsacks];
+        for (int j = 0; j < nFamilies; j++) {
+            selectable[j] = reduction == null || !reduction.isFixedOut(j);
+            freeFamilies[j] = selectable[j];
+        }
+        for (int k = 0; k < nKnapsacks; k++) {
+            freeKnapsacks[k] = true;
+        }
+        this.familySet = new int[nFamilies];
+        this.knapsackSet = new int[nKnapsacks];
+    }
+
+    @Override
+    public void setTimeLimit(double seconds) {
+        this.timeLimit = seconds;
+    }
+
+    @Override
+    public void setObjectiveTarget(double objective) {
+        this.objectiveTarget = objective;
+    }
+
+    @Override
+    public void setLogFile(Path path) {
+        // There is no solver log
+    }
+
+    @Override
+    public void setOutput(boolean output) {
+        this.output = output;
+    }
+
+    @Override
+    public void setStart(int[] solution) {
+        this.start = solution.clone();
+    }
+
+    /**
+     * The search improves a single solution, it starts from the best one.
+     */
+    @Override
+    public void setStarts(List<int[]> solutions) {
+        int[] bestStart = null;
+        long bestStartObjective = Long.MIN_VALUE;
+        for (int[] solution : solutions) {
+            long objective = evaluator.load(solution).objective();
+            if (objective > bestStartObjective) {
+                bestStart = solution;
+                bestStartObjective = objective;
+            }
+        }
+        this.start = bestStart == null ? null : bestStart.clone();
+    }
+
+    @Override
+    public void limitSplits(int j, int maxSplits) {
+        // Only a hint for MIP solvers, the neighborhoods are small anyway
+    }
+
+    /**
+     * Also makes the solution the MIP start, the families that are not free keep their assignment.
+     */
+    @Override
+    public void restrict(int[] solution, boolean[] freeFamilies, boolean[] freeKnapsacks) {
+        for (int j = 0; j < this.freeFamilies.length; j++) {
+            this.freeFamilies[j] = freeFamilies[j] && selectable[j];
+        }
+        System.arraycopy(freeKnapsacks, 0, this.freeKnapsacks, 0, this.freeKnapsacks.length);
+        this.start = solution.clone();
+        this.restricted = true;
+    }
+
+    @Override
+    public void cooperate(IncumbentExchange exchange) {
+        this.exchange = exchange;
+    }
+
+    @Override
+    public MipStatus optimize() throws MipException {
+        long startTime = System.currentTimeMillis();
+        long deadline = Double.isInfinite(timeLimit) ? Long.MAX_VALUE : startTime + (long) (timeLimit * 1000);
+        history.clear();
+
+        int[] current = start != null ? start.clone()
+                : best != null ? best.clone() : engine.construct(random).clone();
+        best = null;
+        // The start and the construction know nothing of the reduction, the search never moves fixed families
+        evaluator.load(current);
+        for (int j = 0; j < selectable.length; j++) {
+            if (!selectable[j]) {
+                evaluator.removeFamily(j);
+            }
+        }
+        offer(current, evaluator.objective(), startTime);
+
+        if (restricted && solveExactly()) {
+            offer(current, evaluator.objective(), startTime);
+            return MipStatus.OPTIMAL;
+        }
+
+        int maxStaleSlices = restricted ? MAX_STALE_RESTRICTED_SLICES : MAX_STALE_SLICES;
+        int staleSlices = 0;
+        while (true) {
+            long now = System.currentTimeMillis();
+            if (Thread.currentThread().isInterrupted()) {
+                return MipStatus.INTERRUPTED;
+            }
+            if (bestObjective >= objectiveTarget) {
+                return MipStatus.TARGET_REACHED;
+            }
+            if (now >= deadline) {
+                return MipStatus.TIME_LIMIT;
+            }
+            if (exchange == null && staleSlices >= maxStaleSlices) {
+                return MipStatus.STALLED;
+            }
+
+            if (exchange != null && !restricted) {
+                int[] other = exchange.solutionBetterThan(bestObjective);
+                if (other != null && other != lastInjected) {
+                    lastInjected = other;
+                    System.arraycopy(other, 0, current, 0, current.length);
+                }
+            }
+            long objective = branchAndBound.improve(evaluator, current, random, Math.min(deadline, now + SLICE),
+                    freeFamilies, freeKnapsacks);
+            if (objective > bestObjective) {
+                offer(current, objective, startTime);
+                if (exchange != null) {
+                    exchange.offerSolverSolution(best.clone());
+                }
+                staleSlices = 0;
+            } else {
+                staleSlices++;
+            }
+        }
+    }
+
+    /**
+     * Solves the whole restriction with one branch and bound, the evaluator is loaded with the current solution.
+     *
+     * @return true if the branch and bound has explored the whole tree
+     */
+    private boolean solveExactly() {
+        int nFamilies = 0;
+        for (int j = 0; j < freeFamilies.length; j++) {
+            if (freeFamilies[j]) {
+                familySet[nFamilies++] = j;
+            }
+        }
+        int nKnapsacks = 0;
+        for (int k = 0; k < freeKnapsacks.length; k++) {
+            if (freeKnapsacks[k]) {
+                knapsackSet[nKnapsacks++] = k;
+            }
+        }
+        branchAndBound.solve(evaluator, familySet, nFamilies, knapsackSet, nKnapsacks, EXACT_NODE_LIMIT);
+        return branchAndBound.isOptimal();
+    }
+
+    private void offer(int[] solution, long objective, long startTime) {
+        if (best != null && objective <= bestObjective) {
+            return;
+        }
+        best = solution.clone();
+        bestObjective = objective;
+        double elapsed = (System.currentTimeMillis() - startTime) / 1000.0;
+        history.add(new double[] {elapsed, objective});
+        if (output) {
+            System.out.println("TTB: " + elapsed + "s  New incumbent: " + objective);
+        }
+    }
+
+    @Override
+    public int[] solution() {
+        return best == null ? null : best.clone();
+    }
+
+    @Override
+    public double objective() throws MipException {
+        if (best == null) {
+            throw new MipException("The model has no solution");
+        }
+        return bestObjective;
+    }
+
+    @Override
+    public List<double[]> incumbentHistory() {
+        return history;
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+}
@@ -0,0 +1,251 @@
+package it.unibs.mao.optalg.mkfsp.grasp;
+
+import it.unibs.mao.optalg.mkfsp.CompiledInstance;
+
+/**
+ * Improvement phase applied to the solutions built by the constructive phase.
+ *
+ * The neighbourhoods explored are:
+ * <ul>
+ *   <li>relocation of the only item a family has in a knapsack into another knapsack already used by the family;</li>
+ *   <li>merge of a split family into fewer knapsacks;</li>
+ *   <li>drop of a selected family and add of an unselected one;</li>
+ *   <li>swap of a selected family with an unselected one.</li>
+ * </ul>
+ * Moves are evaluated through a {@link SolutionEvaluator}. A LocalSearch
+ * object keeps mutable state, so every worker needs its own.
+ */
+public class LocalSearch {
+    public enum Strategy { FIRST_IMPROVEMENT, BEST_IMPROVEMENT }
+
+    private static final int NONE = 0;
+    private static final int RELOCATE = 1;
+    private static final int MERGE = 2;
+    private static final int DROP = 3;
+    private static final int ADD = 4;
+    private static final int SWAP = 5;
+
+    private final Strategy strategy;
+    private final SolutionEvaluator evaluator;
+    private final int nFamilies;
+    private final int nKnapsacks;
+    private final int[] firstItems;
+
+    private final int[] saveBuffer;
+
+    private long deadline;
+    private int bestMove;
+    private int bestFirst;
+    private int bestSecond;
+    private long bestDelta;
+
+    public LocalSearch(CompiledInstance instance, Strategy strategy) {
+        this(instance, strategy, null);
+    }
+
+    /**
+     * @param zobrist the keys of {@link #hash()}, or null to not keep it
+     */
+    public LocalSearch(CompiledInstance instance, Strategy strategy, Zobrist zobrist) {
+        this.strategy = strategy;
+        this.evaluator = new SolutionEvaluator(instance, zobrist);
+        this.nFamilies = instance.nFamilies();
+        this.nKnapsacks = instance.nKnapsacks();
+        this.firstItems = instance.firstItems();
+        this.saveBuffer = new int[instance.maxFamilySize()];
+    }
+
+    /**
+     * Improves the given solution in place until a local optimum is reached
+     * or the deadline expires.
+     *
+     * @param solution  a feasible solution, modified in place
+     * @param deadline  the instant, in milliseconds, when the search must stop
+     * @return          the objective value of the improved solution
+     */
+    public double improve(int[] solution, long deadline) {
+        evaluator.load(solution);
+        this.deadline = deadline;
+
+        boolean improved = true;
+        while (improved && !expired()) {
+            bestMove = NONE;
+            bestDelta = 0;
+            improved = exploreRelocations() || exploreMerges() || exploreDropsAndAdds() || exploreSwaps();
+            if (strategy == Strategy.BEST_IMPROVEMENT && bestMove != NONE) {
+                applyMove(bestMove, bestFirst, bestSecond);
+                improved = true;
+            }
+        }
+        return evaluator.objective();
+    }
+
+    /**
+     * @return the Zobrist hash of the last improved solution, 0 without keys
+     */
+    public long hash() {
+        return evaluator.hash();
+    }
+
+    /**
+     * The search also stops when the worker thread is interrupted, e.g. when a cooperative run ends.
+     */
+    private boolean expired() {
+        return System.currentTimeMillis() >= deadline || Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * Each explore method returns true if, with the first improvement strategy,
+     * it has applied a move. With the best improvement strategy it only records
+     * the best move seen so far and always returns false.
+     */
+    private boolean exploreRelocations() {
+        int[] solution = evaluator.solution();
+        for (int j = 0; j < nFamilies; j++) {
+            if (evaluator.usedKnapsacks(j) < 2 || !evaluator.isSelected(j)) {
+                continue;
+            }
+            int endItem = firstItems[j] + evaluator.familySize(j);
+            for (int i = firstItems[j]; i < endItem; i++) {
+                if (evaluator.itemsIn(j, solution[i]) != 1) {
+                    continue;
+                }
+                for (int target = 0; target < nKnapsacks; target++) {
+                    long delta = evaluator.deltaMove(i, target);
+                    if (delta > 0 && evaluator.fits(i, target)) {
+                        if (offerMove(RELOCATE, i, target, delta)) {
+                            return true;
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean exploreMerges() {
+        for (int j = 0; j < nFamilies; j++) {
+            if (evaluator.usedKnapsacks(j) < 2 || !evaluator.isSelected(j)) {
+                continue;
+            }
+            if (expired()) {
+                return false;
+            }
+            long before = evaluator.objective();
+            save(j);
+            evaluator.removeFamily(j);
+            long delta = evaluator.place(j) ? evaluator.objective() - before : 0;
+            evaluator.removeFamily(j);
+            restore(j);
+
+            if (delta > 0 && offerMove(MERGE, j, -1, delta)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean exploreDropsAndAdds() {
+        for (int j = 0; j < nFamilies; j++) {
+            if (evaluator.isSelected(j)) {
+                long delta = evaluator.deltaRemove(j);
+                if (delta > 0 && offerMove(DROP, j, -1, delta)) {
+                    return true;
+                }
+            } else if (evaluator.deltaInsert(j, 1) > bestDelta) {
+                long before = evaluator.objective();
+                if (evaluator.place(j)) {
+                    long delta = evaluator.objective() - before;
+                    evaluator.removeFamily(j);
+                    if (delta > 0 && offerMove(ADD, j, -1, delta)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean exploreSwaps() {
+        for (int out = 0; out < nFamilies; out++) {
+            if (!evaluator.isSelected(out)) {
+                continue;
+            }
+            if (expired()) {
+                return false;
+            }
+            long before = evaluator.objective();
+            long outDelta = evaluator.deltaRemove(out);
+            save(out);
+            evaluator.removeFamily(out);
+            for (int in = 0; in < nFamilies; in++) {
+                // The contribution of a family can not exceed the one it has without splits
+                if (evaluator.assignedItems(in) > 0 || outDelta + evaluator.deltaInsert(in, 1) <= bestDelta) {
+                    continue;
+                }
+                if (evaluator.place(in)) {
+                    long delta = evaluator.objective() - before;
+                    evaluator.removeFamily(in);
+                    if (delta > bestDelta) {
+                        restore(out);
+                        if (offerMove(SWAP, out, in, delta)) {
+                            return true;
+                        }
+                        evaluator.removeFamily(out);
+                    }
+                }
+            }
+            restore(out);
+        }
+        return false;
+    }
+
+    private boolean offerMove(int move, int first, int second, long delta) {
+        if (strategy == Strategy.FIRST_IMPROVEMENT) {
+            applyMove(move, first, second);
+            return true;
+        }
+        if (delta > bestDelta) {
+            bestMove = move;
+            bestFirst = first;
+            bestSecond = second;
+            bestDelta = delta;
+        }
+        return false;
+    }
+
+    private void applyMove(int move, int first, int second) {
+        switch (move) {
+            case RELOCATE -> evaluator.move(first, second);
+            case MERGE -> {
+                evaluator.removeFamily(first);
+                placeOrFail(first);
+            }
+            case DROP -> evaluator.removeFamily(first);
+            case ADD -> placeOrFail(first);
+            case SWAP -> {
+                evaluator.removeFamily(first);
+                placeOrFail(second);
+            }
+            default -> throw new IllegalStateException("Unknown move " + move);
+        }
+    }
+
+    private void placeOrFail(int j) {
+        if (!evaluator.place(j)) {
+            throw new IllegalStateException("Family " + j + " does not fit anymore");
+        }
+    }
+
+    private void save(int j) {
+        System.arraycopy(evaluator.solution(), firstItems[j], saveBuffer, 0, evaluator.familySize(j));
+    }
+
+    private void restore(int j) {
+        int firstItem = firstItems[j];
+        for (int i = firstItem, n = firstItem + evaluator.familySize(j); i < n; i++) {
+            evaluator.assign(i, saveBuffer[i - firstItem]);
+        }
+    }
+}
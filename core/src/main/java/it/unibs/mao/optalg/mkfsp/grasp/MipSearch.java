@@ -0,0 +1,119 @@
+package it.unibs.mao.optalg.mkfsp.grasp;
+
+import it.unibs.mao.optalg.mkfsp.FeasibilityCheck;
+import it.unibs.mao.optalg.mkfsp.IncumbentExchange;
+import it.unibs.mao.optalg.mkfsp.Instance;
+import it.unibs.mao.optalg.mkfsp.MipBackends;
+import it.unibs.mao.optalg.mkfsp.MipException;
+import it.unibs.mao.optalg.mkfsp.MipModel;
+import it.unibs.mao.optalg.mkfsp.MipSession;
+import it.unibs.mao.optalg.mkfsp.MipStatus;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import it.unibs.mao.optalg.mkfsp.CompiledInstance;
+import it.unibs.mao.optalg.mkfsp.ModelReduction;
+
+/**
+ * Improves the GRASP solution with a MIP solve around it, on whatever backend the session belongs to.
+ */
+public class MipSearch {
+    /**
+     * Same as {@link #run(MipSession, Instance, int[], double, HashMap, Path)} in a session opened for this run only.
+     */
+    public static int[] run(Instance instance, int[] initialSolution, double timeLimit, HashMap<Integer, Integer> splitForFamily, Path outputDir) throws RuntimeException  {
+        try (MipSession session = MipBackends.open(true)) {
+            return run(session, instance, initialSolution, timeLimit, splitForFamily, outputDir);
+        } catch (MipException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static int[] run(MipSession session, Instance instance, int[] initialSolution, double timeLimit, HashMap<Integer, Integer> splitForFamily, Path outputDir) throws RuntimeException  {
+        return run(session, instance, initialSolution, timeLimit, splitForFamily, outputDir, null);
+    }
+
+    public static int[] run(MipSession session, Instance instance, int[] initialSolution, double timeLimit, HashMap<Integer, Integer> splitForFamily, Path outputDir, IncumbentExchange exchange) throws RuntimeException  {
+        return run(session, instance, initialSolution, timeLimit, splitForFamily, outputDir, exchange, Double.POSITIVE_INFINITY);
+    }
+
+    public static int[] run(MipSession session, Instance instance, int[] initialSolution, double timeLimit, HashMap<Integer, Integer> splitForFamily, Path outputDir, IncumbentExchange exchange, double objectiveTarget) throws RuntimeException  {
+        return run(session, instance, initialSolution, List.of(), timeLimit, splitForFamily, outputDir, exchange, objectiveTarget);
+    }
+
+    /**
+     * Builds the reduced model around the initial solution and optimizes it, from the initial solution and the
+     * other starts, e.g. the {@link ElitePool}. When an exchange is given, the model trades incumbents with it
+     * during the solve. The solve stops early when an incumbent reaches the objective target.
+     */
+    public static int[] run(MipSession session, Instance instance, int[] initialSolution, List<int[]> otherStarts, double timeLimit, HashMap<Integer, Integer> splitForFamily, Path outputDir, IncumbentExchange exchange, double objectiveTarget) throws RuntimeException  {
+        // Fixed families and item/knapsack pairs that can never fit are
+        // left out of the model instead of being bounded after the build
+        final CompiledInstance compiled = CompiledInstance.of(instance);
+        final ModelReduction reduction = new ModelReduction(compiled).pruneUnfit();
+        for (int j : Utils.getBestFamiliesUsedBySplit(instance, initialSolution)) {
+            reduction.fixIn(j);
+        }
+        for (int j : Utils.getWorstFamiliesNotUsedBySpecialGain(instance, initialSolution)) {
+            if (!reduction.isFixedIn(j)) {
+                reduction.fixOut(j);
+            }
+        }
+
+        try (MipModel model = session.build(compiled, reduction)) {
+            model.setLogFile(outputDir.resolve(instance.id() + ".log"));
+
+            model.setTimeLimit(timeLimit);
+            model.setObjectiveTarget(objectiveTarget);
+
+            //Set initial solution of GRASP as MIP start, for all the variables at once
+            if (otherStarts.isEmpty()) {
+                model.setStart(initialSolution);
+            } else {
+                List<int[]> starts = new ArrayList<>();
+                starts.add(initialSolution);
+                starts.addAll(otherStarts);
+                model.setStarts(starts);
+            }
+            if (exchange != null) {
+                model.cooperate(exchange);
+            }
+
+            for (int j : splitForFamily.keySet()) {
+                model.limitSplits(j, splitForFamily.get(j));
+            }
+
+            final MipStatus status = model.optimize();
+
+            final int[] solution = model.solution();
+            if (solution != null) {
+                final double objValue = model.objective();
+                final FeasibilityCheck check = instance.checkFeasibility(solution, objValue);
+
+                //TTB - Time To Best
+                List<double[]> history = model.incumbentHistory();
+                if (!history.isEmpty()) {
+                    System.out.println("\nSolution: " + objValue + " (valid: " + check.isValid() + ")" + " TTB: " +
+                            (history.get(history.size() - 1)[0]) + "s MIP Incumbent: " + history.get(history.size() - 1)[1]);
+                }
+
+                System.out.println("\nSolution: " + objValue + " (valid: " + check.isValid() + ")");
+
+                if (!check.isValid()) {
+                    for (final String errMsg: check.errorMessages()) {
+                        System.out.println("  - " + errMsg);
+                    }
+                } else {
+                    return solution;
+                }
+
+            } else {
+                System.out.println("\n" + session.backend().name() + " terminated with status: " + status);
+            }
+        } catch (MipException e) {
+            throw new RuntimeException(e);
+        }
+        throw new RuntimeException();
+    }
+}
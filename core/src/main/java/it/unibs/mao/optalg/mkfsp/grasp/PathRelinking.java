@@ -0,0 +1,141 @@
+package it.unibs.mao.optalg.mkfsp.grasp;
+
+import it.unibs.mao.optalg.mkfsp.CompiledInstance;
+
+/**
+ * Walks from an initiating solution to a guiding one, one family at a time, and returns the best solution met
+ * on the way.
+ *
+ * A step gives one family the assignment it has in the guiding solution: its items are moved to the knapsacks
+ * of the guide, or removed if the guide does not select it. The family with the largest gain in contribution
+ * goes first. When an item does not fit, the families of its knapsack that still differ from the guide are
+ * dropped until it does. The families that already match the guide always fit together, because the guide is
+ * feasible, so every intermediate solution is feasible.
+ *
+ * A PathRelinking object keeps mutable state, so every worker needs its own.
+ */
+public class PathRelinking {
+    private final SolutionEvaluator evaluator;
+    private final int nFamilies;
+    private final int[] firstItems;
+    private final int[] familyEnd;
+    private final int[] itemFamily;
+
+    private final boolean[] matching;
+    private final long[] guideContribution;
+    private final int[] current;
+    private final int[] best;
+    private int[] guide;
+
+    public PathRelinking(CompiledInstance instance) {
+        this.evaluator = new SolutionEvaluator(instance);
+        this.nFamilies = instance.nFamilies();
+        this.firstItems = instance.firstItems();
+        this.familyEnd = instance.familyEnd();
+        this.itemFamily = instance.itemFamily();
+        this.matching = new boolean[nFamilies];
+        this.guideContribution = new long[nFamilies];
+        this.current = new int[instance.nItems()];
+        this.best = new int[instance.nItems()];
+    }
+
+    /**
+     * @param initiating  a feasible solution, not modified
+     * @param guiding     a feasible solution, not modified
+     * @param deadline    the instant, in milliseconds, when the walk must stop
+     * @return the best solution strictly between the two, or null if they differ by at most one family. The array
+     *         is owned by this object and overwritten by the next call
+     */
+    public int[] relink(int[] initiating, int[] guiding, long deadline) {
+        guide = guiding;
+        SolutionEvaluator guideEvaluator = evaluator.load(guiding);
+        int remaining = 0;
+        for (int j = 0; j < nFamilies; j++) {
+            guideContribution[j] = guideEvaluator.isSelected(j) ? guideEvaluator.contribution(j, guideEvaluator.usedKnapsacks(j)) : 0;
+        }
+        System.arraycopy(initiating, 0, current, 0, current.length);
+        evaluator.load(current);
+        for (int j = 0; j < nFamilies; j++) {
+            matching[j] = matches(j);
+            if (!matching[j]) {
+                remaining++;
+            }
+        }
+
+        long bestObjective = Long.MIN_VALUE;
+        // The last step reaches the guide, it is not an intermediate solution
+        while (remaining > 1 && System.currentTimeMillis() < deadline && !Thread.currentThread().isInterrupted()) {
+            int next = -1;
+            long nextGain = Long.MIN_VALUE;
+            for (int j = 0; j < nFamilies; j++) {
+                if (!matching[j]) {
+                    long gain = guideContribution[j] - currentContribution(j);
+                    if (gain > nextGain) {
+                        next = j;
+                        nextGain = gain;
+                    }
+                }
+            }
+            remaining -= moveToGuide(next);
+            if (remaining > 0 && evaluator.objective() > bestObjective) {
+                bestObjective = evaluator.objective();
+                System.arraycopy(evaluator.solution(), 0, best, 0, best.length);
+            }
+        }
+        return bestObjective == Long.MIN_VALUE ? null : best;
+    }
+
+    /**
+     * Gives family {@code j} the assignment of the guide, dropping the differing families in the way.
+     *
+     * @return the number of families that match the guide after the step and did not before
+     */
+    private int moveToGuide(int j) {
+        int matched = 0;
+        evaluator.removeFamily(j);
+        for (int i = firstItems[j]; i < familyEnd[j]; i++) {
+            int k = guide[i];
+            if (k == -1) {
+                continue;
+            }
+            while (!evaluator.fits(i, k)) {
+                matched += dropFamilyIn(k, j);
+            }
+            evaluator.assign(i, k);
+        }
+        matching[j] = true;
+        return matched + 1;
+    }
+
+    /**
+     * Drops a family other than {@code j} that has an item in knapsack {@code k} and differs from the guide.
+     *
+     * @return 1 if the dropped family now matches the guide, 0 otherwise
+     */
+    private int dropFamilyIn(int k, int j) {
+        int[] solution = evaluator.solution();
+        for (int i = 0; i < solution.length; i++) {
+            int other = itemFamily[i];
+            if (solution[i] == k && other != j && !matching[other]) {
+                evaluator.removeFamily(other);
+                matching[other] = matches(other);
+                return matching[other] ? 1 : 0;
+            }
+        }
+        throw new IllegalStateException("The guiding solution is not feasible");
+    }
+
+    private long currentContribution(int j) {
+        return evaluator.isSelected(j) ? evaluator.contribution(j, evaluator.usedKnapsacks(j)) : 0;
+    }
+
+    private boolean matches(int j) {
+        int[] solution = evaluator.solution();
+        for (int i = firstItems[j]; i < familyEnd[j]; i++) {
+            if (solution[i] != guide[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
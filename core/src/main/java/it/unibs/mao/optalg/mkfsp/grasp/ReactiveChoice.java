@@ -0,0 +1,138 @@
+package it.unibs.mao.optalg.mkfsp.grasp;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The self-tuning parameters of reactive GRASP: the RCL beta and the family ranking of each construction are
+ * drawn from two distributions that follow the quality of the solutions they produce.
+ *
+ * Every {@value #UPDATE_PERIOD} recorded solutions, value {@code v} gets probability proportional to
+ * {@code (mean(v) / best) ^ AMPLIFICATION}, where {@code mean(v)} is the mean objective of the solutions built
+ * with it and {@code best} the best objective seen. Values never tried keep the mean of the tried ones, so that
+ * every value is sampled. Shared by all the workers of a run.
+ */
+public class ReactiveChoice {
+    private static final int UPDATE_PERIOD = 100;
+    private static final double AMPLIFICATION = 10;
+
+    /**
+     * The parameters of one construction.
+     */
+    public record Choice(int betaIndex, int rankingIndex, double beta, FamilyRanking ranking) {}
+
+    private final double[] betas;
+    private final FamilyRanking[] rankings;
+    private final Distribution betaDistribution;
+    private final Distribution rankingDistribution;
+    private double best = Double.NEGATIVE_INFINITY;
+    private int pending;
+
+    public ReactiveChoice(double[] betas, FamilyRanking[] rankings) {
+        if (betas.length == 0 || rankings.length == 0) {
+            throw new IllegalArgumentException("Reactive GRASP needs at least one beta and one ranking");
+        }
+        this.betas = betas.clone();
+        this.rankings = rankings.clone();
+        this.betaDistribution = new Distribution(betas.length);
+        this.rankingDistribution = new Distribution(rankings.length);
+    }
+
+    public synchronized Choice pick(Random random) {
+        int b = betaDistribution.sample(random);
+        int r = rankingDistribution.sample(random);
+        return new Choice(b, r, betas[b], rankings[r]);
+    }
+
+    /**
+     * Records the objective of the solution built with the given choice.
+     */
+    public synchronized void record(Choice choice, double objectiveValue) {
+        betaDistribution.add(choice.betaIndex(), objectiveValue);
+        rankingDistribution.add(choice.rankingIndex(), objectiveValue);
+        best = Math.max(best, objectiveValue);
+        if (++pending >= UPDATE_PERIOD) {
+            betaDistribution.update(best);
+            rankingDistribution.update(best);
+            pending = 0;
+        }
+    }
+
+    /**
+     * @return the current probability of each beta
+     */
+    public synchronized double[] getBetaProbabilities() {
+        return betaDistribution.probabilities.clone();
+    }
+
+    /**
+     * @return the current probability of each ranking
+     */
+    public synchronized double[] getRankingProbabilities() {
+        return rankingDistribution.probabilities.clone();
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder("beta");
+        for (int b = 0; b < betas.length; b++) {
+            builder.append(String.format(" %.2f:%.2f", betas[b], betaDistribution.probabilities[b]));
+        }
+        builder.append(", ranking");
+        for (int r = 0; r < rankings.length; r++) {
+            builder.append(String.format(" %s:%.2f", rankings[r], rankingDistribution.probabilities[r]));
+        }
+        return builder.toString();
+    }
+
+    private static class Distribution {
+        private final double[] probabilities;
+        private final double[] sums;
+        private final long[] counts;
+
+        Distribution(int n) {
+            probabilities = new double[n];
+            Arrays.fill(probabilities, 1.0 / n);
+            sums = new double[n];
+            counts = new long[n];
+        }
+
+        int sample(Random random) {
+            double u = random.nextDouble();
+            for (int v = 0; v < probabilities.length - 1; v++) {
+                u -= probabilities[v];
+                if (u < 0) {
+                    return v;
+                }
+            }
+            return probabilities.length - 1;
+        }
+
+        void add(int v, double objectiveValue) {
+            sums[v] += objectiveValue;
+            counts[v]++;
+        }
+
+        void update(double best) {
+            if (best <= 0) {
+                return;
+            }
+            double totalSum = 0;
+            long totalCount = 0;
+            for (int v = 0; v < sums.length; v++) {
+                totalSum += sums[v];
+                totalCount += counts[v];
+            }
+            double fallback = totalSum / totalCount;
+            double total = 0;
+            for (int v = 0; v < probabilities.length; v++) {
+                double mean = counts[v] > 0 ? sums[v] / counts[v] : fallback;
+                probabilities[v] = Math.pow(Math.max(mean, 0) / best, AMPLIFICATION);
+                total += probabilities[v];
+            }
+            for (int v = 0; v < probabilities.length; v++) {
+                probabilities[v] = total > 0 ? probabilities[v] / total : 1.0 / probabilities.length;
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package it.unibs.mao.optalg.mkfsp.grasp;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded set of {@link Zobrist} hashes, shared by the workers of a run to skip the solutions they have
+ * already seen. It is a direct mapped table: a hash goes in the slot given by its low bits and evicts the one
+ * that was there, so the set forgets old hashes instead of growing, and a lookup is a single atomic swap.
+ *
+ * A hit can be a false positive only if two different solutions have the same 64-bit hash. The hash 0, i.e. the
+ * empty solution, is never reported as seen.
+ */
+public class SeenSet {
+    private final AtomicLongArray slots;
+    private final int mask;
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * @param capacity the number of hashes kept, rounded up to a power of two
+     */
+    public SeenSet(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("The seen set capacity must be in [1, 2^30]: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        size = size < capacity ? size << 1 : size;
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Adds the hash, evicting the one in its slot.
+     *
+     * @return true if the hash was already in the set
+     */
+    public boolean checkAndAdd(long hash) {
+        lookups.incrementAndGet();
+        boolean seen = hash != 0 && slots.getAndSet((int) hash & mask, hash) == hash;
+        if (seen) {
+            hits.incrementAndGet();
+        }
+        return seen;
+    }
+
+    public long getLookups() {
+        return lookups.get();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+}
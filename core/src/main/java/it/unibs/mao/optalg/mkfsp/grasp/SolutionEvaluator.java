@@ -0,0 +1,370 @@
+package it.unibs.mao.optalg.mkfsp.grasp;
+
+import it.unibs.mao.optalg.mkfsp.CompiledInstance;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Incremental evaluation of a solution. Once a solution has been loaded, the
+ * evaluator keeps track of the residual capacity of every knapsack, of the
+ * number of items each family has in every knapsack and of the objective
+ * value, so that the delta of a move and the move itself cost
+ * O(nResources) and never allocate.
+ *
+ * A family only contributes to the objective value when all its items are
+ * assigned, which lets callers build or rebuild a family one item at a time.
+ * The loaded solution array is modified in place.
+ *
+ * Given the {@link Zobrist} keys of the instance, it also keeps the hash of
+ * the solution up to date.
+ */
+public class SolutionEvaluator {
+    private final CompiledInstance instance;
+    private final int nFamilies;
+    private final int nKnapsacks;
+    private final int nResources;
+    private final int[] profits;
+    private final int[] penalties;
+    private final int[] firstItems;
+    private final int[] itemResources;
+    private final int[] itemFamily;
+    private final int[] familySize;
+    private final int[] familyDemand;
+
+    private final int[] residual;
+    private final int[] familyCount;
+    private final int[] usedKnapsacks;
+    private final int[] assignedItems;
+    private final boolean[] opened;
+    private final Zobrist zobrist;
+
+    private int[] solution;
+    private long objective;
+    private long hash;
+
+    public SolutionEvaluator(CompiledInstance instance) {
+        this(instance, null);
+    }
+
+    /**
+     * @param zobrist the keys of the hash of the solution, or null to not keep it
+     */
+    public SolutionEvaluator(CompiledInstance instance, Zobrist zobrist) {
+        this.instance = instance;
+        this.nFamilies = instance.nFamilies();
+        this.nKnapsacks = instance.nKnapsacks();
+        this.nResources = instance.nResources();
+        this.profits = instance.profits();
+        this.penalties = instance.penalties();
+        this.firstItems = instance.firstItems();
+        this.itemResources = instance.itemResources();
+        this.itemFamily = instance.itemFamily();
+        this.familySize = instance.familySize();
+        this.familyDemand = instance.familyDemand();
+
+        this.residual = new int[nKnapsacks * nResources];
+        this.familyCount = new int[nFamilies * nKnapsacks];
+        this.usedKnapsacks = new int[nFamilies];
+        this.assignedItems = new int[nFamilies];
+        this.opened = new boolean[nKnapsacks];
+        this.zobrist = zobrist;
+    }
+
+    /**
+     * Rebuilds the state from scratch for the given solution, in O(nItems).
+     */
+    public SolutionEvaluator load(int[] solution) {
+        this.solution = solution;
+        System.arraycopy(instance.capacities(), 0, residual, 0, residual.length);
+        Arrays.fill(familyCount, 0);
+        Arrays.fill(usedKnapsacks, 0);
+        Arrays.fill(assignedItems, 0);
+        objective = 0;
+        hash = zobrist != null ? zobrist.hash(solution) : 0;
+
+        for (int i = 0; i < solution.length; i++) {
+            int k = solution[i];
+            if (k != -1) {
+                int j = itemFamily[i];
+                if (familyCount[j * nKnapsacks + k]++ == 0) {
+                    usedKnapsacks[j]++;
+                }
+                assignedItems[j]++;
+                subtractItem(i, k);
+            }
+        }
+        for (int j = 0; j < nFamilies; j++) {
+            if (isSelected(j)) {
+                objective += contribution(j, usedKnapsacks[j]);
+            }
+        }
+        return this;
+    }
+
+    public int[] solution() {
+        return solution;
+    }
+
+    public long objective() {
+        return objective;
+    }
+
+    /**
+     * @return the Zobrist hash of the solution, 0 if the evaluator has no keys
+     */
+    public long hash() {
+        return hash;
+    }
+
+    public int familyOf(int item) {
+        return itemFamily[item];
+    }
+
+    public int familySize(int j) {
+        return familySize[j];
+    }
+
+    public boolean isSelected(int j) {
+        return assignedItems[j] == familySize[j];
+    }
+
+    public int assignedItems(int j) {
+        return assignedItems[j];
+    }
+
+    public int usedKnapsacks(int j) {
+        return usedKnapsacks[j];
+    }
+
+    public int splits(int j) {
+        return Math.max(usedKnapsacks[j] - 1, 0);
+    }
+
+    public int itemsIn(int j, int k) {
+        return familyCount[j * nKnapsacks + k];
+    }
+
+    public int residual(int k, int r) {
+        return residual[k * nResources + r];
+    }
+
+    public int familyDemand(int j, int r) {
+        return familyDemand[j * nResources + r];
+    }
+
+    /**
+     * @return the objective value a selected family {@code j} contributes
+     *         with when its items are loaded into {@code used} knapsacks
+     */
+    public long contribution(int j, int used) {
+        return profits[j] - (long) penalties[j] * (used - 1);
+    }
+
+    public boolean fits(int item, int k) {
+        int itemBase = item * nResources;
+        int base = k * nResources;
+        for (int r = 0; r < nResources; r++) {
+            if (itemResources[itemBase + r] > residual[base + r]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean fitsWholeFamily(int j, int k) {
+        int demandBase = j * nResources;
+        int base = k * nResources;
+        for (int r = 0; r < nResources; r++) {
+            if (familyDemand[demandBase + r] > residual[base + r]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the objective delta of moving the assigned item {@code item}
+     *         of a selected family into knapsack {@code k}, capacities are
+     *         not checked
+     */
+    public long deltaMove(int item, int k) {
+        int j = itemFamily[item];
+        int source = solution[item];
+        if (source == k || !isSelected(j)) {
+            return 0;
+        }
+        int usedDelta = 0;
+        if (familyCount[j * nKnapsacks + source] == 1) {
+            usedDelta--;
+        }
+        if (familyCount[j * nKnapsacks + k] == 0) {
+            usedDelta++;
+        }
+        return -(long) penalties[j] * usedDelta;
+    }
+
+    /**
+     * @return the objective delta of inserting the unselected family
+     *         {@code j} using {@code used} knapsacks
+     */
+    public long deltaInsert(int j, int used) {
+        return contribution(j, used);
+    }
+
+    /**
+     * @return the objective delta of removing the selected family {@code j}
+     */
+    public long deltaRemove(int j) {
+        return isSelected(j) ? -contribution(j, usedKnapsacks[j]) : 0;
+    }
+
+    public void assign(int item, int k) {
+        int j = itemFamily[item];
+        if (isSelected(j)) {
+            objective -= contribution(j, usedKnapsacks[j]);
+        }
+        if (familyCount[j * nKnapsacks + k]++ == 0) {
+            usedKnapsacks[j]++;
+        }
+        assignedItems[j]++;
+        subtractItem(item, k);
+        solution[item] = k;
+        if (zobrist != null) {
+            hash ^= zobrist.key(item, k);
+        }
+        if (isSelected(j)) {
+            objective += contribution(j, usedKnapsacks[j]);
+        }
+    }
+
+    public void unassign(int item) {
+        int j = itemFamily[item];
+        int k = solution[item];
+        if (isSelected(j)) {
+            objective -= contribution(j, usedKnapsacks[j]);
+        }
+        if (--familyCount[j * nKnapsacks + k] == 0) {
+            usedKnapsacks[j]--;
+        }
+        assignedItems[j]--;
+        addItem(item, k);
+        solution[item] = -1;
+        if (zobrist != null) {
+            hash ^= zobrist.key(item, k);
+        }
+        if (isSelected(j)) {
+            objective += contribution(j, usedKnapsacks[j]);
+        }
+    }
+
+    public void move(int item, int k) {
+        unassign(item);
+        assign(item, k);
+    }
+
+    public void removeFamily(int j) {
+        int endItem = firstItems[j] + familySize[j];
+        for (int i = firstItems[j]; i < endItem; i++) {
+            if (solution[i] != -1) {
+                unassign(i);
+            }
+        }
+    }
+
+    /**
+     * Loads the unassigned family {@code j} into the residual capacities,
+     * first trying to fit the whole family into a single knapsack and then
+     * falling back to a first fit that prefers the knapsacks already opened.
+     * Placement is deterministic, so the same state always yields the same
+     * assignment.
+     *
+     * @return true if the family has been loaded, false if it does not fit
+     *         (in which case the evaluator is left unchanged)
+     */
+    public boolean place(int j) {
+        int firstItem = firstItems[j];
+        int endItem = firstItem + familySize[j];
+
+        int bestKnapsack = -1;
+        long bestSlack = Long.MAX_VALUE;
+        for (int k = 0; k < nKnapsacks; k++) {
+            if (fitsWholeFamily(j, k)) {
+                long slack = 0;
+                for (int r = 0; r < nResources; r++) {
+                    slack += residual[k * nResources + r] - familyDemand[j * nResources + r];
+                }
+                if (slack < bestSlack) {
+                    bestSlack = slack;
+                    bestKnapsack = k;
+                }
+            }
+        }
+        if (bestKnapsack != -1) {
+            for (int i = firstItem; i < endItem; i++) {
+                assign(i, bestKnapsack);
+            }
+            return true;
+        }
+
+        Arrays.fill(opened, false);
+        for (int i = firstItem; i < endItem; i++) {
+            int selected = -1;
+            long mostResidual = -1;
+            for (int k = 0; k < nKnapsacks; k++) {
+                if (!fits(i, k)) {
+                    continue;
+                }
+                if (opened[k]) {
+                    selected = k;
+                    break;
+                }
+                long total = 0;
+                for (int r = 0; r < nResources; r++) {
+                    total += residual[k * nResources + r];
+                }
+                if (total > mostResidual) {
+                    mostResidual = total;
+                    selected = k;
+                }
+            }
+            if (selected == -1) {
+                removeFamily(j);
+                return false;
+            }
+            opened[selected] = true;
+            assign(i, selected);
+        }
+        return true;
+    }
+
+    /**
+     * The same map returned by {@link Utils#calculateSplitForEachFamily},
+     * built from the tracked state in O(nFamilies).
+     */
+    public HashMap<Integer, Integer> splitForEachFamily() {
+        HashMap<Integer, Integer> splitForFamily = new HashMap<>();
+        for (int j = 0; j < nFamilies; j++) {
+            if (usedKnapsacks[j] > 0) {
+                splitForFamily.put(j, usedKnapsacks[j] - 1);
+            }
+        }
+        return splitForFamily;
+    }
+
+    private void addItem(int item, int k) {
+        int itemBase = item * nResources;
+        int base = k * nResources;
+        for (int r = 0; r < nResources; r++) {
+            residual[base + r] += itemResources[itemBase + r];
+        }
+    }
+
+    private void subtractItem(int item, int k) {
+        int itemBase = item * nResources;
+        int base = k * nResources;
+        for (int r = 0; r < nResources; r++) {
+            residual[base + r] -= itemResources[itemBase + r];
+        }
+    }
+}
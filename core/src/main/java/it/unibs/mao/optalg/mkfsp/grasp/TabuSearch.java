@@ -0,0 +1,254 @@
+package it.unibs.mao.optalg.mkfsp.grasp;
+
+import it.unibs.mao.optalg.mkfsp.CompiledInstance;
+
+import java.util.Random;
+
+/**
+ * Improvement phase that goes on from a local optimum, accepting the best admissible move even when it makes
+ * the solution worse.
+ *
+ * The moves are:
+ * <ul>
+ *   <li>relocation of an item of a selected family into another knapsack, among the ones the family already uses
+ *       and one drawn at random;</li>
+ *   <li>removal of a selected family, alone or followed by the insertion of an unselected one;</li>
+ *   <li>insertion of an unselected family, placed as by {@link SolutionEvaluator#place}.</li>
+ * </ul>
+ * Each iteration only evaluates the moves of {@value #CANDIDATES} families drawn at random among the selected
+ * ones and at most as many among the unselected ones, so its cost does not grow with the number of families.
+ *
+ * The tabu memory holds attributes in primitive arrays: relocating an item out of a knapsack forbids moving it
+ * back for the tenure, and inserting or removing a family forbids the opposite move on it. The tenure is drawn
+ * at every move. A tabu move is allowed when it leads to a solution better than the best one of the search.
+ *
+ * A TabuSearch object keeps mutable state, so every worker needs its own.
+ */
+public class TabuSearch {
+    private static final int CANDIDATES = 16;
+    private static final int MIN_TENURE = 5;
+    private static final int MAX_TENURE = 15;
+
+    private static final int NONE = 0;
+    private static final int RELOCATE = 1;
+    private static final int REMOVE = 2;
+    private static final int INSERT = 3;
+
+    private final SolutionEvaluator evaluator;
+    private final Random random;
+    private final int nFamilies;
+    private final int nKnapsacks;
+    private final int[] firstItems;
+    private final int[] familyEnd;
+
+    // The iteration until which each attribute is tabu
+    private final long[] itemTabu;
+    private final long[] familyTabu;
+    private final int[] best;
+    private final int[] insertions;
+    private final int[] saveBuffer;
+    private long iteration;
+
+    private int bestMove;
+    private int bestFirst;
+    private int bestSecond;
+    private long bestMoveDelta;
+
+    public TabuSearch(CompiledInstance instance, Random random) {
+        this.evaluator = new SolutionEvaluator(instance);
+        this.random = random;
+        this.nFamilies = instance.nFamilies();
+        this.nKnapsacks = instance.nKnapsacks();
+        this.firstItems = instance.firstItems();
+        this.familyEnd = instance.familyEnd();
+        this.itemTabu = new long[instance.nItems() * nKnapsacks];
+        this.familyTabu = new long[nFamilies];
+        this.best = new int[instance.nItems()];
+        this.insertions = new int[CANDIDATES];
+        this.saveBuffer = new int[instance.maxFamilySize()];
+    }
+
+    /**
+     * Runs the given number of iterations, or until the deadline, and leaves the best solution found in place.
+     * Every time the best solution of the search beats the incumbent, it is offered to the tracker.
+     *
+     * @param solution    a feasible solution, modified in place
+     * @param iterations  the number of moves
+     * @param deadline    the instant, in milliseconds, when the search must stop
+     * @param tracker     the incumbent of the run, or null
+     * @return            the objective value of the best solution
+     */
+    public double improve(int[] solution, int iterations, long deadline, IncumbentTracker tracker) {
+        evaluator.load(solution);
+        System.arraycopy(solution, 0, best, 0, best.length);
+        long bestObjective = evaluator.objective();
+        // The tabu memory is relative to the current iteration, a new search only needs to start past the old one
+        iteration += MAX_TENURE + 1;
+
+        long end = iteration + iterations;
+        while (iteration < end && System.currentTimeMillis() < deadline && !Thread.currentThread().isInterrupted()) {
+            iteration++;
+            bestMove = NONE;
+            bestMoveDelta = Long.MIN_VALUE;
+            long aspiration = bestObjective - evaluator.objective();
+            exploreCandidates(aspiration);
+            // Without a candidate the next iteration draws other ones
+            if (bestMove == NONE) {
+                continue;
+            }
+            applyMove();
+
+            if (evaluator.objective() > bestObjective) {
+                bestObjective = evaluator.objective();
+                System.arraycopy(solution, 0, best, 0, best.length);
+                if (tracker != null && bestObjective > tracker.getBestObjective()) {
+                    tracker.offer(best.clone(), bestObjective);
+                }
+            }
+        }
+        System.arraycopy(best, 0, solution, 0, best.length);
+        return evaluator.load(solution).objective();
+    }
+
+    /**
+     * Records the best admissible move among the candidate families. A tabu move is admissible if its delta is
+     * larger than {@code aspiration}, i.e. it leads to a new best solution.
+     */
+    private void exploreCandidates(long aspiration) {
+        int nInsertions = 0;
+        for (int c = 0; c < 2 * CANDIDATES && nInsertions < CANDIDATES; c++) {
+            int j = random.nextInt(nFamilies);
+            if (evaluator.assignedItems(j) == 0) {
+                insertions[nInsertions++] = j;
+            }
+        }
+        for (int n = 0; n < nInsertions; n++) {
+            int j = insertions[n];
+            long before = evaluator.objective();
+            if (evaluator.place(j)) {
+                long delta = evaluator.objective() - before;
+                evaluator.removeFamily(j);
+                if (!isTabu(j) || delta > aspiration) {
+                    offerMove(INSERT, j, -1, delta);
+                }
+            }
+        }
+
+        for (int c = 0; c < CANDIDATES; c++) {
+            int j = random.nextInt(nFamilies);
+            if (!evaluator.isSelected(j)) {
+                continue;
+            }
+            exploreRelocations(j, aspiration);
+            exploreRemovals(j, nInsertions, aspiration);
+        }
+    }
+
+    /**
+     * Moves the items of family {@code j} into the other knapsacks it uses, to merge it, and into one knapsack
+     * drawn at random, to free capacity elsewhere.
+     */
+    private void exploreRelocations(int j, long aspiration) {
+        for (int i = firstItems[j]; i < familyEnd[j]; i++) {
+            if (evaluator.usedKnapsacks(j) > 1) {
+                for (int k = 0; k < nKnapsacks; k++) {
+                    if (evaluator.itemsIn(j, k) > 0) {
+                        offerRelocation(i, k, aspiration);
+                    }
+                }
+            }
+            offerRelocation(i, random.nextInt(nKnapsacks), aspiration);
+        }
+    }
+
+    /**
+     * Removes family {@code j} alone and followed by the insertion of each candidate family that fits in the
+     * capacity it frees.
+     */
+    private void exploreRemovals(int j, int nInsertions, long aspiration) {
+        long before = evaluator.objective();
+        long removeDelta = evaluator.deltaRemove(j);
+        if (!isTabu(j) || removeDelta > aspiration) {
+            offerMove(REMOVE, j, -1, removeDelta);
+        }
+        save(j);
+        evaluator.removeFamily(j);
+        for (int n = 0; n < nInsertions; n++) {
+            int in = insertions[n];
+            // The contribution of a family can not exceed the one it has without splits
+            if (removeDelta + evaluator.deltaInsert(in, 1) <= bestMoveDelta) {
+                continue;
+            }
+            if (evaluator.place(in)) {
+                long delta = evaluator.objective() - before;
+                evaluator.removeFamily(in);
+                if (!isTabu(j) && !isTabu(in) || delta > aspiration) {
+                    offerMove(REMOVE, j, in, delta);
+                }
+            }
+        }
+        restore(j);
+    }
+
+    private boolean isTabu(int j) {
+        return familyTabu[j] > iteration;
+    }
+
+    private void save(int j) {
+        System.arraycopy(evaluator.solution(), firstItems[j], saveBuffer, 0, familyEnd[j] - firstItems[j]);
+    }
+
+    private void restore(int j) {
+        for (int i = firstItems[j]; i < familyEnd[j]; i++) {
+            evaluator.assign(i, saveBuffer[i - firstItems[j]]);
+        }
+    }
+
+    private void offerRelocation(int i, int k, long aspiration) {
+        if (evaluator.solution()[i] == k || !evaluator.fits(i, k)) {
+            return;
+        }
+        long delta = evaluator.deltaMove(i, k);
+        if (itemTabu[i * nKnapsacks + k] <= iteration || delta > aspiration) {
+            offerMove(RELOCATE, i, k, delta);
+        }
+    }
+
+    private void offerMove(int move, int first, int second, long delta) {
+        if (delta > bestMoveDelta) {
+            bestMove = move;
+            bestFirst = first;
+            bestSecond = second;
+            bestMoveDelta = delta;
+        }
+    }
+
+    private void applyMove() {
+        long tabuUntil = iteration + MIN_TENURE + random.nextInt(MAX_TENURE - MIN_TENURE + 1);
+        switch (bestMove) {
+            case RELOCATE -> {
+                itemTabu[bestFirst * nKnapsacks + evaluator.solution()[bestFirst]] = tabuUntil;
+                evaluator.move(bestFirst, bestSecond);
+            }
+            case REMOVE -> {
+                familyTabu[bestFirst] = tabuUntil;
+                evaluator.removeFamily(bestFirst);
+                if (bestSecond != -1) {
+                    familyTabu[bestSecond] = tabuUntil;
+                    placeOrFail(bestSecond);
+                }
+            }
+            case INSERT -> {
+                familyTabu[bestFirst] = tabuUntil;
+                placeOrFail(bestFirst);
+            }
+            default -> throw new IllegalStateException("Unknown move " + bestMove);
+        }
+    }
+
+    private void placeOrFail(int j) {
+        if (!evaluator.place(j)) {
+            throw new IllegalStateException("Family " + j + " does not fit anymore");
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package it.unibs.mao.optalg.mkfsp.grasp;
+
+import it.unibs.mao.optalg.mkfsp.CompiledInstance;
+
+import java.util.Arrays;
+
+/**
+ * Upper bounds on the optimal objective value of an instance, computed from the instance data only. They are
+ * used to stop the search as soon as the incumbent is provably close enough to the optimum.
+ *
+ * Both bounds value a family at most its profit minus the penalties of the fewest knapsacks that can hold its
+ * demand, resource by resource. Families with an item that fits in no knapsack are left out.
+ * <ul>
+ *   <li>{@link #surrogate()}: the capacity constraints are summed over the knapsacks, the resources are combined
+ *       with weights 1 / total capacity, and the resulting knapsack problem is solved as an LP (Dantzig bound).
+ *       It takes O(nFamilies * log(nFamilies)).</li>
+ *   <li>{@link #lagrangian}: the capacity constraints are relaxed with a multiplier for each knapsack and
+ *       resource. The relaxed problem splits by family, and each family takes the cheapest knapsack for each
+ *       item or the cheapest single knapsack for all of them. The multipliers start from the ones for which the
+ *       Lagrangian bound equals the surrogate one and are improved by subgradient steps, so the result is never
+ *       worse. Each step takes O(nItems * nKnapsacks * nResources).</li>
+ * </ul>
+ * An UpperBound object keeps mutable state, so every thread needs its own.
+ */
+public class UpperBound {
+    private static final int MAX_ITERATIONS = 1000;
+    // Iterations without improvement before the step is halved
+    private static final int HALVING_PERIOD = 30;
+    private static final double MIN_STEP_FACTOR = 1e-4;
+    private static final double INT_TOLERANCE = 1e-6;
+
+    private final int nFamilies;
+    private final int nKnapsacks;
+    private final int nResources;
+    private final int[] profits;
+    private final int[] penalties;
+    private final int[] firstItems;
+    private final int[] familyEnd;
+    private final int[] itemResources;
+    private final int[] capacities;
+    private final int[] familyDemand;
+
+    // The fewest knapsacks able to hold each family, 0 if it can not be selected
+    private final int[] minKnapsacks;
+    private final boolean[] fits;
+    private final double[] weights;
+
+    private final double[] multipliers;
+    private final double[] subgradient;
+    private final double[] singleCost;
+    private final int[] cheapest;
+    private final Integer[] order;
+
+    private double criticalRatio;
+    private double surrogateBound = Double.NaN;
+    private int iterations;
+
+    public UpperBound(CompiledInstance instance) {
+        this.nFamilies = instance.nFamilies();
+        this.nKnapsacks = instance.nKnapsacks();
+        this.nResources = instance.nResources();
+        this.profits = instance.profits();
+        this.penalties = instance.penalties();
+        this.firstItems = instance.firstItems();
+        this.familyEnd = instance.familyEnd();
+        this.itemResources = instance.itemResources();
+        this.capacities = instance.capacities();
+        this.familyDemand = instance.familyDemand();
+        int nItems = instance.nItems();
+
+        fits = new boolean[nItems * nKnapsacks];
+        for (int i = 0; i < nItems; i++) {
+            for (int k = 0; k < nKnapsacks; k++) {
+                boolean fit = true;
+                for (int r = 0; r < nResources && fit; r++) {
+                    fit = itemResources[i * nResources + r] <= capacities[k * nResources + r];
+                }
+                fits[i * nKnapsacks + k] = fit;
+            }
+        }
+
+        long[] largest = new long[nResources];
+        long[] total = new long[nResources];
+        for (int k = 0; k < nKnapsacks; k++) {
+            for (int r = 0; r < nResources; r++) {
+                largest[r] = Math.max(largest[r], capacities[k * nResources + r]);
+                total[r] += capacities[k * nResources + r];
+            }
+        }
+
+        minKnapsacks = new int[nFamilies];
+        weights = new double[nFamilies];
+        for (int j = 0; j < nFamilies; j++) {
+            int needed = 1;
+            boolean selectable = true;
+            for (int i = firstItems[j]; i < familyEnd[j] && selectable; i++) {
+                selectable = false;
+                for (int k = 0; k < nKnapsacks && !selectable; k++) {
+                    selectable = fits[i * nKnapsacks + k];
+                }
+            }
+            for (int r = 0; r < nResources && selectable; r++) {
+                long demand = familyDemand[j * nResources + r];
+                if (demand > 0) {
+                    needed = (int) Math.max(needed, (demand + largest[r] - 1) / largest[r]);
+                    weights[j] += (double) demand / total[r];
+                }
+            }
+            minKnapsacks[j] = selectable && needed <= nKnapsacks ? needed : 0;
+        }
+
+        multipliers = new double[nKnapsacks * nResources];
+        subgradient = new double[nKnapsacks * nResources];
+        singleCost = new double[nKnapsacks];
+        cheapest = new int[instance.maxFamilySize()];
+        order = new Integer[nFamilies];
+    }
+
+    /**
+     * @return the surrogate bound, rounded down to an integer
+     */
+    public double surrogate() {
+        if (Double.isNaN(surrogateBound)) {
+            surrogateBound = Math.floor(dantzig() + INT_TOLERANCE);
+        }
+        return surrogateBound;
+    }
+
+    /**
+     * Improves the Lagrangian multipliers with the subgradient method, using Polyak steps towards the given lower
+     * bound, until the step vanishes or the deadline expires.
+     *
+     * @param lowerBound the objective value of a known solution
+     * @param deadline   the instant, in milliseconds, when the computation must stop
+     * @return           the best bound found, rounded down to an integer, never worse than {@link #surrogate()}
+     */
+    public double lagrangian(double lowerBound, long deadline) {
+        double best = surrogate();
+        for (int r = 0; r < nResources; r++) {
+            long total = 0;
+            for (int k = 0; k < nKnapsacks; k++) {
+                total += capacities[k * nResources + r];
+            }
+            for (int k = 0; k < nKnapsacks; k++) {
+                multipliers[k * nResources + r] = total > 0 ? criticalRatio / total : 0;
+            }
+        }
+
+        double stepFactor = 2;
+        int stale = 0;
+        for (iterations = 0; iterations < MAX_ITERATIONS && best > lowerBound && stepFactor > MIN_STEP_FACTOR
+                && System.currentTimeMillis() < deadline; iterations++) {
+            double value = evaluate();
+            if (value < best) {
+                best = Math.floor(value + INT_TOLERANCE);
+                stale = 0;
+            } else if (++stale >= HALVING_PERIOD) {
+                stepFactor /= 2;
+                stale = 0;
+            }
+
+            double norm = 0;
+            for (int t = 0; t < subgradient.length; t++) {
+                // Projected subgradient, multipliers at 0 can not decrease
+                if (multipliers[t] == 0 && subgradient[t] > 0) {
+                    subgradient[t] = 0;
+                }
+                norm += subgradient[t] * subgradient[t];
+            }
+            if (norm == 0) {
+                // The relaxed solution is feasible, the bound can not improve
+                break;
+            }
+            double step = stepFactor * (value - lowerBound) / norm;
+            for (int t = 0; t < multipliers.length; t++) {
+                multipliers[t] = Math.max(0, multipliers[t] - step * subgradient[t]);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the number of subgradient steps of the last {@link #lagrangian} call
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return the relative gap between the given objective value and the bound, 0 if the bound is not positive
+     */
+    public static double gap(double objective, double bound) {
+        return bound > 0 ? Math.max(0, (bound - objective) / bound) : 0;
+    }
+
+    /**
+     * Solves the LP relaxation of the surrogate knapsack and records the critical ratio, i.e. its dual value.
+     */
+    private double dantzig() {
+        int n = 0;
+        double bound = 0;
+        for (int j = 0; j < nFamilies; j++) {
+            double value = familyValue(j);
+            if (value <= 0) {
+                continue;
+            }
+            if (weights[j] == 0) {
+                bound += value;
+            } else {
+                order[n++] = j;
+            }
+        }
+        Arrays.sort(order, 0, n, (a, b) -> Double.compare(familyValue(b) * weights[a], familyValue(a) * weights[b]));
+
+        double capacity = 0;
+        for (int r = 0; r < nResources; r++) {
+            long total = 0;
+            for (int k = 0; k < nKnapsacks; k++) {
+                total += capacities[k * nResources + r];
+            }
+            capacity += total > 0 ? 1 : 0;
+        }
+        criticalRatio = 0;
+        for (int t = 0; t < n; t++) {
+            int j = order[t];
+            if (weights[j] <= capacity) {
+                capacity -= weights[j];
+                bound += familyValue(j);
+            } else {
+                criticalRatio = familyValue(j) / weights[j];
+                bound += criticalRatio * capacity;
+                break;
+            }
+        }
+        return bound;
+    }
+
+    private double familyValue(int j) {
+        return minKnapsacks[j] == 0 ? 0 : profits[j] - (double) penalties[j] * (minKnapsacks[j] - 1);
+    }
+
+    /**
+     * Solves the Lagrangian relaxation for the current multipliers and stores its subgradient.
+     *
+     * @return the Lagrangian bound
+     */
+    private double evaluate() {
+        double value = 0;
+        for (int t = 0; t < multipliers.length; t++) {
+            value += multipliers[t] * capacities[t];
+            subgradient[t] = capacities[t];
+        }
+
+        for (int j = 0; j < nFamilies; j++) {
+            int needed = minKnapsacks[j];
+            if (needed == 0) {
+                continue;
+            }
+            int firstItem = firstItems[j];
+            Arrays.fill(singleCost, 0);
+            double splitCost = 0;
+            for (int i = firstItem; i < familyEnd[j]; i++) {
+                double minCost = Double.POSITIVE_INFINITY;
+                for (int k = 0; k < nKnapsacks; k++) {
+                    if (!fits[i * nKnapsacks + k]) {
+                        singleCost[k] = Double.POSITIVE_INFINITY;
+                        continue;
+                    }
+                    double cost = 0;
+                    for (int r = 0; r < nResources; r++) {
+                        cost += multipliers[k * nResources + r] * itemResources[i * nResources + r];
+                    }
+                    singleCost[k] += cost;
+                    if (cost < minCost) {
+                        minCost = cost;
+                        cheapest[i - firstItem] = k;
+                    }
+                }
+                splitCost += minCost;
+            }
+
+            // A family that fits in one knapsack pays no penalty there, otherwise it pays at least (needed - 1)
+            double split = nKnapsacks > 1
+                    ? profits[j] - (double) penalties[j] * Math.max(1, needed - 1) - splitCost
+                    : Double.NEGATIVE_INFINITY;
+            int single = -1;
+            if (needed == 1) {
+                for (int k = 0; k < nKnapsacks; k++) {
+                    if (single == -1 || singleCost[k] < singleCost[single]) {
+                        single = k;
+                    }
+                }
+            }
+            double whole = single != -1 ? profits[j] - singleCost[single] : Double.NEGATIVE_INFINITY;
+            if (Math.max(split, whole) <= 0) {
+                continue;
+            }
+
+            if (whole >= split) {
+                value += whole;
+                for (int r = 0; r < nResources; r++) {
+                    subgradient[single * nResources + r] -= familyDemand[j * nResources + r];
+                }
+            } else {
+                value += split;
+                for (int i = firstItem; i < familyEnd[j]; i++) {
+                    int k = cheapest[i - firstItem];
+                    for (int r = 0; r < nResources; r++) {
+                        subgradient[k * nResources + r] -= itemResources[i * nResources + r];
+                    }
+                }
+            }
+        }
+        return value;
+    }
+}
@@ -0,0 +1,52 @@
+package it.unibs.mao.optalg.mkfsp.grasp;
+
+import it.unibs.mao.optalg.mkfsp.CompiledInstance;
+
+/**
+ * Zobrist hashing of solutions: every (item, knapsack) pair has a random 64-bit key and the hash of a solution
+ * is the XOR of the keys of its assignments, so assigning or unassigning an item updates it in O(1). Unassigned
+ * items do not count, the empty solution hashes to 0.
+ *
+ * The keys only depend on the size of the instance, so the hashes of two objects built for the same instance
+ * can be compared, e.g. in a {@link SeenSet} shared by the workers.
+ */
+public final class Zobrist {
+    private static final long SEED = 0x4d4b465350L;
+
+    private final int nKnapsacks;
+    private final long[] keys;
+
+    public Zobrist(CompiledInstance instance) {
+        this.nKnapsacks = instance.nKnapsacks();
+        this.keys = new long[instance.nItems() * nKnapsacks];
+        long state = SEED;
+        for (int p = 0; p < keys.length; p++) {
+            // SplitMix64
+            state += 0x9e3779b97f4a7c15L;
+            long z = state;
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            keys[p] = z ^ (z >>> 31);
+        }
+    }
+
+    /**
+     * @return the key to XOR into the hash when item {@code i} enters or leaves knapsack {@code k}
+     */
+    public long key(int i, int k) {
+        return keys[i * nKnapsacks + k];
+    }
+
+    /**
+     * @return the hash of the given solution, in O(nItems)
+     */
+    public long hash(int[] solution) {
+        long hash = 0;
+        for (int i = 0; i < solution.length; i++) {
+            if (solution[i] != -1) {
+                hash ^= key(i, solution[i]);
+            }
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,122 @@
+package it.unibs.mao.optalg.mkfsp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BinaryInstanceTest {
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void roundTripsTheBundledInstances() throws IOException {
+    final List<Path> jsonPaths = TestInstances.paths();
+    final String[] args = new String[jsonPaths.size() + 2];
+    args[0] = "-o";
+    args[1] = tempDir.toString();
+    for (int p = 0; p < jsonPaths.size(); ++p) {
+      args[p + 2] = jsonPaths.get(p).toString();
+    }
+    InstanceConverter.main(args);
+
+    for (final Path jsonPath: jsonPaths) {
+      final String fileName = jsonPath.getFileName().toString();
+      final Path binaryPath = tempDir.resolve(fileName.replace(".json", BinaryInstance.EXTENSION));
+      final Instance expected = InstanceParser.getDefault().parse(jsonPath);
+      TestInstances.assertSameInstance(expected, Instance.load(binaryPath));
+
+      final CompiledInstance fromJson = CompiledInstance.of(expected);
+      final CompiledInstance fromBinary = CompiledInstance.load(binaryPath);
+      assertArrayEquals(fromJson.itemResources(), fromBinary.itemResources(), fileName);
+      assertArrayEquals(fromJson.capacities(), fromBinary.capacities(), fileName);
+      TestInstances.assertSameInstance(expected, fromBinary.instance());
+    }
+  }
+
+  @Test
+  void rejectsTruncatedFiles() throws IOException {
+    final byte[] bytes = binaryBytes();
+    for (final int length: new int[] { 0, 3, 27, bytes.length / 2, bytes.length - 1 }) {
+      final Path path = tempDir.resolve("truncated" + length + BinaryInstance.EXTENSION);
+      Files.write(path, Arrays.copyOf(bytes, length));
+      assertThrows(IOException.class, () -> BinaryInstance.map(path), "Truncated to " + length + " bytes");
+    }
+  }
+
+  @Test
+  void rejectsTrailingBytes() throws IOException {
+    final byte[] bytes = binaryBytes();
+    final Path path = tempDir.resolve("trailing" + BinaryInstance.EXTENSION);
+    Files.write(path, Arrays.copyOf(bytes, bytes.length + Integer.BYTES));
+    assertThrows(IOException.class, () -> BinaryInstance.map(path));
+  }
+
+  @Test
+  void rejectsBadMagicAndVersion() throws IOException {
+    final byte[] badMagic = binaryBytes();
+    badMagic[0] ^= 1;
+    final Path magicPath = tempDir.resolve("magic" + BinaryInstance.EXTENSION);
+    Files.write(magicPath, badMagic);
+    assertThrows(IOException.class, () -> Instance.load(magicPath));
+
+    final byte[] badVersion = binaryBytes();
+    ByteBuffer.wrap(badVersion).order(ByteOrder.LITTLE_ENDIAN).putInt(4, BinaryInstance.VERSION + 1);
+    final Path versionPath = tempDir.resolve("version" + BinaryInstance.EXTENSION);
+    Files.write(versionPath, badVersion);
+    assertThrows(IOException.class, () -> Instance.load(versionPath));
+
+    // A JSON file with the binary extension
+    final Path jsonPath = tempDir.resolve("json" + BinaryInstance.EXTENSION);
+    Files.copy(TestInstances.paths().get(0), jsonPath);
+    assertThrows(IOException.class, () -> Instance.load(jsonPath));
+  }
+
+  @Test
+  void rejectsBadFirstItems() throws IOException {
+    final byte[] bytes = binaryBytes();
+    final ByteBuffer header = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    final int nItems = header.getInt(8);
+    final int nFamilies = header.getInt(12);
+    final int idBytes = (header.getInt(24) + 3) & ~3;
+    // After the header, the id, the profits and the penalties
+    final int firstItems = 7 * Integer.BYTES + idBytes + 2 * nFamilies * Integer.BYTES;
+    final int[][] corruptions = {
+        { 0, 1 }, { 1, nItems + 1 }, { nFamilies - 1, header.getInt(firstItems + (nFamilies - 2) * Integer.BYTES) - 1 }
+    };
+    for (final int[] corruption: corruptions) {
+      final byte[] corrupt = bytes.clone();
+      ByteBuffer.wrap(corrupt).order(ByteOrder.LITTLE_ENDIAN)
+          .putInt(firstItems + corruption[0] * Integer.BYTES, corruption[1]);
+      final Path path = tempDir.resolve("first" + corruption[0] + BinaryInstance.EXTENSION);
+      Files.write(path, corrupt);
+      assertThrows(IOException.class, () -> BinaryInstance.map(path),
+          "Family " + corruption[0] + " starting at " + corruption[1]);
+    }
+  }
+
+  @Test
+  void rejectsInconsistentInstances() {
+    final Instance valid = TestInstances.load().get(0);
+    final Instance shortProfits = new Instance(valid.id(), valid.nItems(), valid.nFamilies(),
+        valid.nKnapsacks(), valid.nResources(), Arrays.copyOf(valid.profits(), valid.nFamilies() - 1),
+        valid.penalties(), valid.firstItems(), valid.items(), valid.knapsacks());
+    assertThrows(IOException.class,
+        () -> BinaryInstance.write(shortProfits, tempDir.resolve("profits" + BinaryInstance.EXTENSION)));
+  }
+
+  private byte[] binaryBytes() throws IOException {
+    final Path path = tempDir.resolve("valid" + BinaryInstance.EXTENSION);
+    BinaryInstance.convert(TestInstances.paths().get(0), path);
+    return Files.readAllBytes(path);
+  }
+}
@@ -0,0 +1,120 @@
+package it.unibs.mao.optalg.mkfsp;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InstanceParserTest {
+  private static final String N_ITEMS = "\"n_items\": 4";
+  private static final String N_FAMILIES = "\"n_families\": 2";
+  private static final String N_KNAPSACKS = "\"n_knapsacks\": 2";
+  private static final String N_RESOURCES = "\"n_resources\": 2";
+  private static final String PROFITS = "\"profits\": [10, 20]";
+  private static final String PENALTIES = "\"penalties\": [1, 2]";
+  private static final String FIRST_ITEMS = "\"first_items\": [0, 3]";
+  private static final String ITEMS = "\"items\": [[1, 2], [3, 4], [5, 6], [7, 8]]";
+  private static final String KNAPSACKS = "\"knapsacks\": [[10, 10], [20, 20]]";
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void matchesObjectMapperOnTheBundledInstances() throws IOException {
+    final ObjectMapper mapper = new ObjectMapper();
+    for (final Path path: TestInstances.paths()) {
+      final Instance expected = mapper.readValue(path.toFile(), Instance.class);
+      TestInstances.assertSameInstance(expected, InstanceParser.getDefault().parse(path));
+      // A buffer smaller than any token boundary must not change the result
+      TestInstances.assertSameInstance(expected, new InstanceParser(7).parse(path));
+    }
+  }
+
+  @Test
+  void bundledInstancesCoverBothLayouts() throws IOException {
+    // instance01 lists the arrays before the sizes, the others the sizes first
+    final String arraysFirst = Files.readString(TestInstances.paths().get(0));
+    assertTrue(arraysFirst.indexOf("\"first_items\"") < arraysFirst.indexOf("\"n_families\""));
+    final String sizesFirst = Files.readString(TestInstances.paths().get(1));
+    assertTrue(sizesFirst.indexOf("\"n_families\"") < sizesFirst.indexOf("\"first_items\""));
+  }
+
+  @Test
+  void parsesBothLayouts() throws IOException {
+    final Instance sizesFirst = parse("\"id\": \"small\"", N_ITEMS, N_FAMILIES, N_KNAPSACKS, N_RESOURCES,
+        PROFITS, PENALTIES, FIRST_ITEMS, ITEMS, KNAPSACKS);
+    final Instance arraysFirst = parse(ITEMS, KNAPSACKS, FIRST_ITEMS, PENALTIES, PROFITS,
+        N_RESOURCES, N_KNAPSACKS, N_FAMILIES, N_ITEMS, "\"id\": \"small\"");
+    TestInstances.assertSameInstance(sizesFirst, arraysFirst);
+    TestInstances.assertSameInstance(
+        new ObjectMapper().readValue(write(N_ITEMS, N_FAMILIES, N_KNAPSACKS, N_RESOURCES, PROFITS, PENALTIES,
+            FIRST_ITEMS, ITEMS, KNAPSACKS, "\"id\": \"small\"").toFile(), Instance.class),
+        sizesFirst);
+  }
+
+  @Test
+  void rejectsWrongLengths() {
+    // Longer than the declared size while reading, shorter once the document has been read
+    assertRejected(N_ITEMS, N_FAMILIES, N_KNAPSACKS, N_RESOURCES, "\"profits\": [10, 20, 30]", PENALTIES,
+        FIRST_ITEMS, ITEMS, KNAPSACKS);
+    assertRejected(N_ITEMS, N_FAMILIES, N_KNAPSACKS, N_RESOURCES, PROFITS, "\"penalties\": [1]",
+        FIRST_ITEMS, ITEMS, KNAPSACKS);
+    assertRejected(N_ITEMS, N_FAMILIES, N_KNAPSACKS, N_RESOURCES, PROFITS, PENALTIES, FIRST_ITEMS,
+        "\"items\": [[1, 2], [3, 4], [5, 6]]", KNAPSACKS);
+    assertRejected(N_ITEMS, N_FAMILIES, N_KNAPSACKS, N_RESOURCES, PROFITS, PENALTIES, FIRST_ITEMS,
+        ITEMS, "\"knapsacks\": [[10, 10], [20]]");
+    // The same checks when the arrays come first
+    assertRejected("\"profits\": [10, 20, 30]", PENALTIES, FIRST_ITEMS, ITEMS, KNAPSACKS,
+        N_ITEMS, N_FAMILIES, N_KNAPSACKS, N_RESOURCES);
+    assertRejected(PROFITS, PENALTIES, FIRST_ITEMS, "\"items\": [[1, 2], [3, 4], [5, 6], [7, 8, 9]]",
+        KNAPSACKS, N_ITEMS, N_FAMILIES, N_KNAPSACKS, N_RESOURCES);
+  }
+
+  @Test
+  void rejectsMissingProperties() {
+    assertRejected(N_FAMILIES, N_KNAPSACKS, N_RESOURCES, PROFITS, PENALTIES, FIRST_ITEMS, ITEMS, KNAPSACKS);
+    assertRejected(N_ITEMS, N_FAMILIES, N_KNAPSACKS, N_RESOURCES, PROFITS, PENALTIES, ITEMS, KNAPSACKS);
+    assertRejected(N_ITEMS, N_FAMILIES, N_KNAPSACKS, N_RESOURCES, PROFITS, PENALTIES, FIRST_ITEMS, ITEMS);
+  }
+
+  @Test
+  void rejectsBadFirstItems() {
+    for (final String firstItems: new String[] {
+        "\"first_items\": [1, 3]", "\"first_items\": [0, 5]", "\"first_items\": [0, -1]"
+    }) {
+      assertRejected(N_ITEMS, N_FAMILIES, N_KNAPSACKS, N_RESOURCES, PROFITS, PENALTIES, firstItems,
+          ITEMS, KNAPSACKS);
+    }
+    assertRejected(N_ITEMS, "\"n_families\": 3", N_KNAPSACKS, N_RESOURCES, "\"profits\": [10, 20, 30]",
+        "\"penalties\": [1, 2, 3]", "\"first_items\": [0, 3, 2]", ITEMS, KNAPSACKS);
+  }
+
+  @Test
+  void rejectsMalformedDocuments() {
+    assertRejected(N_ITEMS, N_FAMILIES, N_KNAPSACKS, N_RESOURCES, PROFITS, PENALTIES, FIRST_ITEMS,
+        ITEMS, KNAPSACKS, "\"unknown\": 0");
+    assertRejected("\"n_items\": -4", N_FAMILIES, N_KNAPSACKS, N_RESOURCES, PROFITS, PENALTIES,
+        FIRST_ITEMS, ITEMS, KNAPSACKS);
+    assertRejected(N_ITEMS, N_FAMILIES, N_KNAPSACKS, N_RESOURCES, "\"profits\": [10, \"20\"]", PENALTIES,
+        FIRST_ITEMS, ITEMS, KNAPSACKS);
+  }
+
+  private Instance parse(final String... properties) throws IOException {
+    return InstanceParser.getDefault().parse(write(properties));
+  }
+
+  private void assertRejected(final String... properties) {
+    assertThrows(IOException.class, () -> parse(properties), String.join(", ", properties));
+  }
+
+  private Path write(final String... properties) throws IOException {
+    return Files.writeString(Files.createTempFile(tempDir, "instance", ".json"),
+        "{" + String.join(", ", properties) + "}");
+  }
+}
@@ -0,0 +1,215 @@
+package it.unibs.mao.optalg.mkfsp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import it.unibs.mao.optalg.mkfsp.grasp.ConstructionEngine;
+import it.unibs.mao.optalg.mkfsp.grasp.SolutionEvaluator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PreprocessorTest {
+  private static final int SOLUTIONS = 20;
+  private static final int RANDOM_INSTANCES = 200;
+
+  @Test
+  void expandKeepsTheObjective() {
+    final Random random = new Random(5);
+    for (final CompiledInstance instance: instances(random)) {
+      final PreprocessedInstance preprocessed = Preprocessor.preprocess(instance);
+      final CompiledInstance reduced = preprocessed.reduced();
+      final ConstructionEngine reducedEngine = new ConstructionEngine(reduced);
+      final ConstructionEngine originalEngine = new ConstructionEngine(instance);
+      for (int s = 0; s < SOLUTIONS; ++s) {
+        final String label = instance.id() + ", solution " + s;
+        // Solutions of the reduced instance map back and forth unchanged
+        final int[] solution = reducedEngine.construct(random).clone();
+        final long objective = objective(reduced, solution);
+        final int[] expanded = preprocessed.expand(solution);
+        assertTrue(instance.instance().checkFeasibility(expanded, objective).isValid(), label);
+        assertArrayEquals(solution, preprocessed.reduce(expanded), label);
+
+        // Solutions of the original instance only lose the families left out, which never add value
+        final int[] original = originalEngine.construct(random).clone();
+        final int[] roundTrip = preprocessed.expand(preprocessed.reduce(original));
+        final long roundTripObjective = objective(instance, roundTrip);
+        assertTrue(instance.instance().checkFeasibility(roundTrip, roundTripObjective).isValid(), label);
+        assertTrue(roundTripObjective >= objective(instance, original), label);
+        if (!usesRemovedFamilies(preprocessed, original)) {
+          assertEquals(objective(instance, original), roundTripObjective, label);
+        }
+      }
+    }
+  }
+
+  @Test
+  void repairNeverLowersTheObjective() {
+    final Random random = new Random(9);
+    int swaps = 0;
+    for (final CompiledInstance instance: instances(random)) {
+      final PreprocessedInstance preprocessed = Preprocessor.preprocess(instance);
+      final CompiledInstance reduced = preprocessed.reduced();
+      final ConstructionEngine engine = new ConstructionEngine(reduced);
+      for (int s = 0; s < SOLUTIONS; ++s) {
+        final String label = instance.id() + ", solution " + s;
+        final int[] solution = engine.construct(random).clone();
+        final long before = objective(reduced, solution);
+        swaps += preprocessed.repair(solution);
+        final long after = objective(reduced, solution);
+        assertTrue(after >= before, label + ": " + before + " -> " + after);
+        assertTrue(reduced.instance().checkFeasibility(solution, after).isValid(), label);
+        // Nothing is left to repair
+        assertEquals(0, preprocessed.repair(solution), label);
+      }
+    }
+    assertTrue(swaps > 0, "No solution has been repaired");
+  }
+
+  @Test
+  void identityKeepsTheInstance() {
+    for (final Instance instance: TestInstances.load()) {
+      final CompiledInstance compiled = CompiledInstance.of(instance);
+      final PreprocessedInstance identity = Preprocessor.identity(compiled);
+      assertEquals(0, identity.removedFamilies());
+      assertEquals(0, identity.removedKnapsacks());
+      assertTrue(identity.dominance().isEmpty());
+      final int[] solution = new ConstructionEngine(compiled).construct(new Random(1));
+      assertArrayEquals(solution, identity.expand(solution));
+      assertArrayEquals(solution, identity.reduce(solution));
+    }
+  }
+
+  @Test
+  void maxItemsMatchesBruteForce() {
+    final Random random = new Random(13);
+    for (int n = 0; n < RANDOM_INSTANCES; ++n) {
+      final CompiledInstance instance = randomInstance(random, "random" + n);
+      final int nKnapsacks = instance.nKnapsacks();
+      final int nResources = instance.nResources();
+      final int[] maxItems = Preprocessor.maxItems(instance);
+      for (int j = 0; j < instance.nFamilies(); ++j) {
+        final int first = instance.firstItems()[j];
+        final int size = instance.familySize()[j];
+        for (int k = 0; k < nKnapsacks; ++k) {
+          // The largest subset that fits each resource alone, and all of them together
+          int bound = size;
+          int together = 0;
+          for (int mask = 0; mask < 1 << size; ++mask) {
+            boolean fitsAll = true;
+            for (int r = 0; r < nResources; ++r) {
+              long demand = 0;
+              for (int t = 0; t < size; ++t) {
+                if ((mask & (1 << t)) != 0) {
+                  demand += instance.itemResources()[(first + t) * nResources + r];
+                }
+              }
+              fitsAll &= demand <= instance.capacities()[k * nResources + r];
+            }
+            if (fitsAll) {
+              together = Math.max(together, Integer.bitCount(mask));
+            }
+          }
+          for (int r = 0; r < nResources; ++r) {
+            int alone = 0;
+            for (int mask = 0; mask < 1 << size; ++mask) {
+              long demand = 0;
+              for (int t = 0; t < size; ++t) {
+                if ((mask & (1 << t)) != 0) {
+                  demand += instance.itemResources()[(first + t) * nResources + r];
+                }
+              }
+              if (demand <= instance.capacities()[k * nResources + r]) {
+                alone = Math.max(alone, Integer.bitCount(mask));
+              }
+            }
+            bound = Math.min(bound, alone);
+          }
+          final String label = instance.id() + ", family " + j + ", knapsack " + k;
+          assertEquals(bound, maxItems[j * nKnapsacks + k], label);
+          assertTrue(together <= maxItems[j * nKnapsacks + k], label);
+        }
+      }
+    }
+  }
+
+  private static List<CompiledInstance> instances(final Random random) {
+    final List<CompiledInstance> instances = new ArrayList<>();
+    for (final Instance instance: TestInstances.load()) {
+      instances.add(CompiledInstance.of(instance));
+    }
+    for (int n = 0; n < RANDOM_INSTANCES; ++n) {
+      instances.add(randomInstance(random, "random" + n));
+    }
+    return instances;
+  }
+
+  /**
+   * @return a small instance with some families that the preprocessing
+   *         removes (unprofitable or too large) and some copies of other
+   *         families, which are dominated by them
+   */
+  private static CompiledInstance randomInstance(final Random random, final String id) {
+    final int nFamilies = 3 + random.nextInt(6);
+    final int nKnapsacks = 2 + random.nextInt(3);
+    final int nResources = 1 + random.nextInt(3);
+    final int[] profits = new int[nFamilies];
+    final int[] penalties = new int[nFamilies];
+    final int[] firstItems = new int[nFamilies];
+    final List<int[]> items = new ArrayList<>();
+    for (int j = 0; j < nFamilies; ++j) {
+      firstItems[j] = items.size();
+      if (j > 0 && random.nextInt(3) == 0) {
+        // A copy of the previous family, possibly worse
+        final int source = j - 1;
+        profits[j] = Math.max(1, profits[source] - random.nextInt(5));
+        penalties[j] = penalties[source] + random.nextInt(3);
+        for (int i = firstItems[source]; i < firstItems[j]; ++i) {
+          final int[] item = items.get(i).clone();
+          item[random.nextInt(nResources)] += random.nextInt(3);
+          items.add(item);
+        }
+        continue;
+      }
+      final int size = 1 + random.nextInt(5);
+      profits[j] = 1 + random.nextInt(60);
+      penalties[j] = random.nextInt(25);
+      for (int t = 0; t < size; ++t) {
+        final int[] item = new int[nResources];
+        for (int r = 0; r < nResources; ++r) {
+          item[r] = random.nextInt(random.nextInt(8) == 0 ? 40 : 12);
+        }
+        items.add(item);
+      }
+    }
+    final int[][] knapsacks = new int[nKnapsacks][nResources];
+    for (final int[] knapsack: knapsacks) {
+      for (int r = 0; r < nResources; ++r) {
+        knapsack[r] = 5 + random.nextInt(30);
+      }
+    }
+    return CompiledInstance.of(new Instance(id, items.size(), nFamilies, nKnapsacks, nResources, profits,
+        penalties, firstItems, items.toArray(new int[0][]), knapsacks));
+  }
+
+  private static long objective(final CompiledInstance instance, final int[] solution) {
+    return new SolutionEvaluator(instance).load(solution.clone()).objective();
+  }
+
+  private static boolean usesRemovedFamilies(final PreprocessedInstance preprocessed, final int[] solution) {
+    final boolean[] kept = new boolean[preprocessed.original().nFamilies()];
+    for (final int j: preprocessed.originalFamily()) {
+      kept[j] = true;
+    }
+    final int[] firstItems = preprocessed.original().firstItems();
+    for (int j = 0; j < kept.length; ++j) {
+      if (!kept[j] && solution[firstItems[j]] >= 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
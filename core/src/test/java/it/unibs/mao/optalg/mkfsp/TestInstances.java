@@ -0,0 +1,69 @@
+package it.unibs.mao.optalg.mkfsp;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The instances bundled with the repository, shared by the tests.
+ */
+public final class TestInstances {
+  // Surefire runs the tests from the module directory
+  private static final Path DIRECTORY = Path.of("..", "instances");
+
+  private TestInstances() {}
+
+  /**
+   * @return the paths of the bundled JSON instances, sorted by name
+   */
+  public static List<Path> paths() {
+    try (final Stream<Path> files = Files.list(DIRECTORY)) {
+      final List<Path> paths = files
+          .filter(path -> path.toString().endsWith(".json"))
+          .sorted()
+          .toList();
+      if (paths.isEmpty()) {
+        throw new IllegalStateException("No instances in " + DIRECTORY.toAbsolutePath());
+      }
+      return paths;
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * @return the bundled instances, sorted by file name
+   */
+  public static List<Instance> load() {
+    return paths().stream().map(path -> {
+      try {
+        return Instance.load(path);
+      } catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }).toList();
+  }
+
+  /**
+   * Asserts that two instances hold the same data, field by field.
+   */
+  public static void assertSameInstance(final Instance expected, final Instance actual) {
+    final String id = expected.id();
+    assertEquals(expected.id(), actual.id());
+    assertEquals(expected.nItems(), actual.nItems(), id + ": n_items");
+    assertEquals(expected.nFamilies(), actual.nFamilies(), id + ": n_families");
+    assertEquals(expected.nKnapsacks(), actual.nKnapsacks(), id + ": n_knapsacks");
+    assertEquals(expected.nResources(), actual.nResources(), id + ": n_resources");
+    assertArrayEquals(expected.profits(), actual.profits(), id + ": profits");
+    assertArrayEquals(expected.penalties(), actual.penalties(), id + ": penalties");
+    assertArrayEquals(expected.firstItems(), actual.firstItems(), id + ": first_items");
+    assertArrayEquals(expected.items(), actual.items(), id + ": items");
+    assertArrayEquals(expected.knapsacks(), actual.knapsacks(), id + ": knapsacks");
+  }
+}
@@ -0,0 +1,210 @@
+package it.unibs.mao.optalg.mkfsp.grasp;
+
+import it.unibs.mao.optalg.mkfsp.CompiledInstance;
+import it.unibs.mao.optalg.mkfsp.Instance;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares {@link BranchAndBound#solve} with a brute-force enumeration of the same subproblem on small random
+ * instances.
+ */
+class BranchAndBoundTest {
+    private static final int INSTANCES = 200;
+
+    @Test
+    void solvesSubproblemsToOptimality() {
+        Random random = new Random(7);
+        for (int n = 0; n < INSTANCES; n++) {
+            Instance instance = randomInstance(random, "random" + n);
+            CompiledInstance compiled = CompiledInstance.of(instance);
+            int[] solution = new ConstructionEngine(compiled).construct(random).clone();
+            SolutionEvaluator evaluator = new SolutionEvaluator(compiled).load(solution);
+            long before = evaluator.objective();
+
+            int[] knapsackSet = randomSubset(random, compiled.nKnapsacks());
+            int[] familySet = randomSubset(random, compiled.nFamilies());
+            long optimum = bruteForce(compiled, solution.clone(), familySet, knapsackSet);
+
+            BranchAndBound branchAndBound = new BranchAndBound(compiled);
+            long improvement = branchAndBound.solve(evaluator, familySet, familySet.length, knapsackSet,
+                    knapsackSet.length, Long.MAX_VALUE);
+            String label = instance.id();
+            assertTrue(branchAndBound.isOptimal(), label);
+            assertEquals(optimum, evaluator.objective(), label);
+            assertEquals(optimum - before, improvement, label);
+            long reloaded = new SolutionEvaluator(compiled).load(solution.clone()).objective();
+            assertEquals(reloaded, evaluator.objective(), label);
+            assertTrue(instance.checkFeasibility(solution, evaluator.objective()).isValid(), label);
+        }
+    }
+
+    @Test
+    void reportsAbortedSearches() {
+        Random random = new Random(11);
+        int aborted = 0;
+        for (int n = 0; n < INSTANCES; n++) {
+            Instance instance = randomInstance(random, "random" + n);
+            CompiledInstance compiled = CompiledInstance.of(instance);
+            int[] solution = new int[compiled.nItems()];
+            Arrays.fill(solution, -1);
+            SolutionEvaluator evaluator = new SolutionEvaluator(compiled).load(solution);
+            int[] knapsackSet = range(compiled.nKnapsacks());
+            int[] familySet = range(compiled.nFamilies());
+            long optimum = bruteForce(compiled, solution.clone(), familySet, knapsackSet);
+
+            BranchAndBound branchAndBound = new BranchAndBound(compiled);
+            long maxNodes = 1 + random.nextInt(8);
+            long improvement = branchAndBound.solve(evaluator, familySet, familySet.length, knapsackSet,
+                    knapsackSet.length, maxNodes);
+            String label = instance.id() + ", " + maxNodes + " nodes";
+            assertTrue(instance.checkFeasibility(solution, evaluator.objective()).isValid(), label);
+            assertEquals(improvement, evaluator.objective(), label);
+            assertTrue(evaluator.objective() <= optimum, label);
+            if (branchAndBound.isOptimal()) {
+                assertTrue(branchAndBound.getNodes() <= maxNodes, label);
+                assertEquals(optimum, evaluator.objective(), label);
+            } else {
+                assertTrue(branchAndBound.getNodes() > maxNodes, label);
+                aborted++;
+            }
+
+            // The same object explores the whole tree once the limit is lifted
+            improvement = branchAndBound.solve(evaluator, familySet, familySet.length, knapsackSet,
+                    knapsackSet.length, Long.MAX_VALUE);
+            assertTrue(branchAndBound.isOptimal(), label);
+            assertEquals(optimum, evaluator.objective(), label);
+        }
+        assertTrue(aborted > 0, "No search hit the node limit");
+    }
+
+    @Test
+    void abortsBeforeTheFirstNode() {
+        Instance instance = randomInstance(new Random(3), "random");
+        CompiledInstance compiled = CompiledInstance.of(instance);
+        int[] solution = new int[compiled.nItems()];
+        Arrays.fill(solution, -1);
+        SolutionEvaluator evaluator = new SolutionEvaluator(compiled).load(solution);
+        BranchAndBound branchAndBound = new BranchAndBound(compiled);
+        int[] familySet = range(compiled.nFamilies());
+        int[] knapsackSet = range(compiled.nKnapsacks());
+        long improvement = branchAndBound.solve(evaluator, familySet, familySet.length, knapsackSet,
+                knapsackSet.length, 0);
+        assertEquals(0, improvement);
+        assertFalse(branchAndBound.isOptimal());
+        assertEquals(0, evaluator.objective());
+    }
+
+    /**
+     * @return a few families of one to three items, two or three knapsacks and tight capacities
+     */
+    static Instance randomInstance(Random random, String id) {
+        int nFamilies = 2 + random.nextInt(3);
+        int nKnapsacks = 2 + random.nextInt(2);
+        int nResources = 1 + random.nextInt(2);
+        int[] profits = new int[nFamilies];
+        int[] penalties = new int[nFamilies];
+        int[] firstItems = new int[nFamilies];
+        int nItems = 0;
+        for (int j = 0; j < nFamilies; j++) {
+            firstItems[j] = nItems;
+            nItems += 1 + random.nextInt(3);
+            profits[j] = 10 + random.nextInt(40);
+            penalties[j] = 1 + random.nextInt(15);
+        }
+        int[][] items = new int[nItems][nResources];
+        int[] total = new int[nResources];
+        for (int[] item : items) {
+            for (int r = 0; r < nResources; r++) {
+                item[r] = 1 + random.nextInt(10);
+                total[r] += item[r];
+            }
+        }
+        int[][] knapsacks = new int[nKnapsacks][nResources];
+        for (int[] knapsack : knapsacks) {
+            for (int r = 0; r < nResources; r++) {
+                knapsack[r] = 1 + random.nextInt(Math.max(1, 2 * total[r] / (3 * nKnapsacks)) + 5);
+            }
+        }
+        return new Instance(id, nItems, nFamilies, nKnapsacks, nResources, profits, penalties, firstItems, items,
+                knapsacks);
+    }
+
+    private static int[] randomSubset(Random random, int n) {
+        int[] subset = range(n);
+        for (int t = n - 1; t > 0; t--) {
+            int u = random.nextInt(t + 1);
+            int swap = subset[t];
+            subset[t] = subset[u];
+            subset[u] = swap;
+        }
+        return Arrays.copyOf(subset, 1 + random.nextInt(n));
+    }
+
+    static int[] range(int n) {
+        int[] values = new int[n];
+        Arrays.setAll(values, t -> t);
+        return values;
+    }
+
+    /**
+     * @return the best objective value reachable by reassigning the given families that lie entirely in the given
+     *         knapsacks, the others being fixed
+     */
+    private static long bruteForce(CompiledInstance instance, int[] solution, int[] familySet, int[] knapsackSet) {
+        boolean[] free = new boolean[instance.nKnapsacks()];
+        for (int k : knapsackSet) {
+            free[k] = true;
+        }
+        SolutionEvaluator evaluator = new SolutionEvaluator(instance).load(solution);
+        int[] families = Arrays.stream(familySet).filter(j -> {
+            for (int i = instance.firstItems()[j]; i < instance.familyEnd()[j]; i++) {
+                if (solution[i] != -1 && !free[solution[i]]) {
+                    return false;
+                }
+            }
+            return true;
+        }).toArray();
+        for (int j : families) {
+            evaluator.removeFamily(j);
+        }
+        return enumerate(instance, evaluator, families, 0, instance.firstItems()[families.length > 0 ? families[0] : 0],
+                knapsackSet);
+    }
+
+    private static long enumerate(CompiledInstance instance, SolutionEvaluator evaluator, int[] families, int f,
+                                  int i, int[] knapsackSet) {
+        if (f == families.length) {
+            return evaluator.objective();
+        }
+        int j = families[f];
+        if (i == instance.familyEnd()[j]) {
+            return next(instance, evaluator, families, f, knapsackSet);
+        }
+        long best = Long.MIN_VALUE;
+        if (i == instance.firstItems()[j]) {
+            // Leave the family out
+            best = next(instance, evaluator, families, f, knapsackSet);
+        }
+        for (int k : knapsackSet) {
+            if (evaluator.fits(i, k)) {
+                evaluator.assign(i, k);
+                best = Math.max(best, enumerate(instance, evaluator, families, f, i + 1, knapsackSet));
+                evaluator.unassign(i);
+            }
+        }
+        return best;
+    }
+
+    private static long next(CompiledInstance instance, SolutionEvaluator evaluator, int[] families, int f,
+                             int[] knapsackSet) {
+        int first = f + 1 < families.length ? instance.firstItems()[families[f + 1]] : -1;
+        return enumerate(instance, evaluator, families, f + 1, first, knapsackSet);
+    }
+}
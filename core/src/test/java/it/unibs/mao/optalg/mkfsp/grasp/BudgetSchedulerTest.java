@@ -0,0 +1,95 @@
+package it.unibs.mao.optalg.mkfsp.grasp;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the learned split of {@link BudgetScheduler} with a real {@link IncumbentTracker}. The tracker stamps
+ * the improvements with the wall clock, the checks are made at chosen instants around them.
+ */
+class BudgetSchedulerTest {
+    private static final long PAUSE = 20; //milliseconds
+    // The scheduler answers with its last comparison for this long
+    private static final long CHECK_PERIOD = 100; //milliseconds
+
+    @Test
+    void graspRunsForAtLeastTheWindow() {
+        // The window is 5% of the budget or one second, whichever is larger
+        for (long budgetMillis : new long[] {10000, 100000, 400000}) {
+            BudgetScheduler.Budget budget = new BudgetScheduler().start(budgetMillis);
+            long start = System.currentTimeMillis();
+            IncumbentTracker tracker = new IncumbentTracker(start);
+            tracker.offer(new int[0], 1000);
+            long minGrasp = Math.max(1000, budgetMillis / 20);
+            // A flat curve, but too early to tell
+            assertFalse(budget.isGraspOver(tracker, start + minGrasp - 200), "Budget " + budgetMillis);
+            assertTrue(budget.isGraspOver(tracker, start + minGrasp + 200), "Budget " + budgetMillis);
+            // The answer does not change anymore
+            assertTrue(budget.isGraspOver(tracker, start + minGrasp + 400), "Budget " + budgetMillis);
+        }
+    }
+
+    @Test
+    void graspStopsWhenTheCurveFlattens() throws InterruptedException {
+        BudgetScheduler scheduler = new BudgetScheduler();
+        long budgetMillis = 10000;
+        BudgetScheduler.Budget budget = scheduler.start(budgetMillis);
+        long window = 1000;
+        IncumbentTracker tracker = new IncumbentTracker(System.currentTimeMillis());
+        tracker.offer(new int[0], 1000);
+        Thread.sleep(PAUSE);
+        long improvement = System.currentTimeMillis();
+        tracker.offer(new int[0], 1100);
+
+        // The last window starts between the two improvements: a gain of 10% per second
+        long rising = improvement + window - PAUSE / 2;
+        assertTrue(0.1 > scheduler.getExpectedMipRate());
+        assertFalse(budget.isGraspOver(tracker, rising));
+        // A window later the curve is flat, the MIP search is expected to do better
+        assertTrue(budget.isGraspOver(tracker, rising + window + PAUSE));
+    }
+
+    @Test
+    void graspStopsAtItsDeadline() {
+        BudgetScheduler.Budget budget = new BudgetScheduler().start(10000);
+        IncumbentTracker tracker = new IncumbentTracker(System.currentTimeMillis());
+        // Without a previous solution the GRASP rate is infinite
+        long deadline = budget.getGraspDeadline();
+        assertFalse(budget.isGraspOver(tracker, deadline - CHECK_PERIOD));
+        assertTrue(budget.isGraspOver(tracker, deadline));
+    }
+
+    @Test
+    void recordMipLearnsTheExpectedRate() {
+        BudgetScheduler scheduler = new BudgetScheduler();
+        BudgetScheduler.Budget budget = scheduler.start(10000);
+        double prior = scheduler.getExpectedMipRate();
+        assertEquals(1, scheduler.getMipImprovementFrequency());
+
+        // A MIP search that does not improve on its start lowers the rate
+        budget.recordMip(1000, 1000, 10);
+        double lowered = scheduler.getExpectedMipRate();
+        assertTrue(lowered < prior, prior + " -> " + lowered);
+        assertEquals(0.5, scheduler.getMipImprovementFrequency());
+        assertEquals(prior / 2, lowered, 1e-12);
+
+        // One that improves it by 10% in 10 s, 1% per second, raises it
+        budget.recordMip(1000, 1100, 10);
+        double raised = scheduler.getExpectedMipRate();
+        assertTrue(raised > lowered, lowered + " -> " + raised);
+        assertEquals(2.0 / 3, scheduler.getMipImprovementFrequency(), 1e-12);
+        assertEquals((prior + 0.01) / 3, raised, 1e-12);
+
+        // Runs without a positive start or time carry no rate, they only count as runs
+        budget.recordMip(0, 100, 10);
+        budget.recordMip(1000, 1100, 0);
+        assertEquals(2.0 / 5, scheduler.getMipImprovementFrequency(), 1e-12);
+
+        // The budgets of the same scheduler learn together
+        scheduler.start(10000).recordMip(1000, 1000, 10);
+        assertEquals(2.0 / 6, scheduler.getMipImprovementFrequency(), 1e-12);
+    }
+}
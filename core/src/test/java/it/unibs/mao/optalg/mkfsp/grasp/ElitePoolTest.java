@@ -0,0 +1,83 @@
+package it.unibs.mao.optalg.mkfsp.grasp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the admission rules of {@link ElitePool} on solutions of ten items and a minimum distance of three.
+ */
+class ElitePoolTest {
+    private static final int[] A = {0, 0, 0, 0, 0, 0, 0, 0, 0, 0};
+    // One item away from A
+    private static final int[] A_CLOSE = {1, 0, 0, 0, 0, 0, 0, 0, 0, 0};
+    // Three items away from A
+    private static final int[] B = {1, 1, 1, 0, 0, 0, 0, 0, 0, 0};
+    // Six items away from A, three from B
+    private static final int[] C = {1, 1, 1, 1, 1, 1, 0, 0, 0, 0};
+    // Ten items away from A, seven from B, four from C
+    private static final int[] D = {1, 1, 1, 1, 1, 1, 1, 1, 1, 1};
+
+    @Test
+    void rejectsDuplicates() {
+        ElitePool pool = new ElitePool(5, 3);
+        assertTrue(pool.offer(A, 100));
+        assertFalse(pool.offer(A.clone(), 100));
+        // Not even when it claims a better objective
+        assertFalse(pool.offer(A.clone(), 200));
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    void rejectsCloseButWorseSolutions() {
+        ElitePool pool = new ElitePool(5, 3);
+        assertTrue(pool.offer(A, 100));
+        assertFalse(pool.offer(A_CLOSE, 90));
+        assertFalse(pool.offer(A_CLOSE, 100));
+        // Far enough
+        assertTrue(pool.offer(B, 90));
+        assertEquals(2, pool.size());
+    }
+
+    @Test
+    void alwaysAdmitsANewBest() {
+        ElitePool pool = new ElitePool(2, 3);
+        assertTrue(pool.offer(A, 100));
+        assertTrue(pool.offer(B, 90));
+        assertTrue(pool.offer(A_CLOSE, 110));
+        List<int[]> solutions = pool.getSolutions();
+        assertEquals(2, solutions.size());
+        assertArrayEquals(A_CLOSE, solutions.get(0));
+    }
+
+    @Test
+    void replacesTheClosestWorseEliteWhenFull() {
+        ElitePool pool = new ElitePool(3, 3);
+        assertTrue(pool.offer(A, 100));
+        assertTrue(pool.offer(B, 60));
+        assertTrue(pool.offer(D, 50));
+        // Not better than the worst elite
+        assertFalse(pool.offer(C, 50));
+        // B is closer than D, although D is the worst
+        assertTrue(pool.offer(C, 70));
+        List<int[]> solutions = pool.getSolutions();
+        assertEquals(3, solutions.size());
+        assertArrayEquals(A, solutions.get(0));
+        assertArrayEquals(C, solutions.get(1));
+        assertArrayEquals(D, solutions.get(2));
+    }
+
+    @Test
+    void keepsACopyOfTheSolution() {
+        ElitePool pool = new ElitePool(1, 1);
+        int[] solution = A.clone();
+        assertTrue(pool.offer(solution, 100));
+        solution[0] = 1;
+        assertArrayEquals(A, pool.getSolutions().get(0));
+    }
+}
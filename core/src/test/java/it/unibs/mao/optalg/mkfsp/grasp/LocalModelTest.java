@@ -0,0 +1,99 @@
+package it.unibs.mao.optalg.mkfsp.grasp;
+
+import it.unibs.mao.optalg.mkfsp.CompiledInstance;
+import it.unibs.mao.optalg.mkfsp.Instance;
+import it.unibs.mao.optalg.mkfsp.MipException;
+import it.unibs.mao.optalg.mkfsp.ModelReduction;
+import it.unibs.mao.optalg.mkfsp.TestInstances;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the solutions of the {@link LocalModel}, the backend of the nodes without a solver license.
+ */
+class LocalModelTest {
+    private static final double TIME_LIMIT = 0.1; //seconds
+
+    @Test
+    void neverSelectsFamiliesFixedOut() throws MipException {
+        for (Instance instance : TestInstances.load()) {
+            CompiledInstance compiled = CompiledInstance.of(instance);
+            Random random = new Random(61);
+            int[] start = new ConstructionEngine(compiled).construct(random).clone();
+            // About half of the families, some of them selected in the start
+            ModelReduction reduction = new ModelReduction(compiled);
+            for (int j = 0; j < compiled.nFamilies(); j++) {
+                if (random.nextBoolean()) {
+                    reduction.fixOut(j);
+                }
+            }
+
+            for (boolean withStart : new boolean[] {false, true}) {
+                String label = instance.id() + (withStart ? ", from a start" : ", from a construction");
+                try (LocalModel model = new LocalModel(compiled, reduction, false)) {
+                    model.setTimeLimit(TIME_LIMIT);
+                    if (withStart) {
+                        model.setStart(start);
+                    }
+                    model.optimize();
+                    int[] solution = model.solution();
+                    assertConsistent(instance, model, label);
+                    for (int j = 0; j < compiled.nFamilies(); j++) {
+                        if (reduction.isFixedOut(j)) {
+                            for (int i = compiled.firstItems()[j]; i < compiled.familyEnd()[j]; i++) {
+                                assertEquals(-1, solution[i], label + ", family " + j);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void restrictKeepsTheFixedPartUnchanged() throws MipException {
+        for (Instance instance : TestInstances.load()) {
+            CompiledInstance compiled = CompiledInstance.of(instance);
+            Random random = new Random(67);
+            int[] start = new ConstructionEngine(compiled).construct(random).clone();
+            boolean[] freeFamilies = new boolean[compiled.nFamilies()];
+            boolean[] freeKnapsacks = new boolean[compiled.nKnapsacks()];
+            for (int j = 0; j < freeFamilies.length; j++) {
+                freeFamilies[j] = random.nextInt(3) > 0;
+            }
+            for (int k = 0; k < freeKnapsacks.length; k++) {
+                freeKnapsacks[k] = random.nextBoolean();
+            }
+
+            try (LocalModel model = new LocalModel(compiled, null, false)) {
+                model.setTimeLimit(TIME_LIMIT);
+                model.restrict(start, freeFamilies, freeKnapsacks);
+                model.optimize();
+                int[] solution = model.solution();
+                assertConsistent(instance, model, instance.id());
+                assertTrue(model.objective() >= Utils.calculateObjectiveValue(instance, start), instance.id());
+                for (int i = 0; i < solution.length; i++) {
+                    String label = instance.id() + ", item " + i;
+                    int j = compiled.itemFamily()[i];
+                    if (!freeFamilies[j] || start[i] != -1 && !freeKnapsacks[start[i]]) {
+                        assertEquals(start[i], solution[i], label);
+                    }
+                    // Nothing enters a knapsack that is not free
+                    assertFalse(solution[i] != start[i] && solution[i] != -1 && !freeKnapsacks[solution[i]], label);
+                }
+            }
+        }
+    }
+
+    private static void assertConsistent(Instance instance, LocalModel model, String label) throws MipException {
+        int[] solution = model.solution();
+        double objective = Utils.calculateObjectiveValue(instance, solution);
+        assertEquals(objective, model.objective(), label);
+        assertTrue(instance.checkFeasibility(solution, objective).isValid(), label);
+    }
+}
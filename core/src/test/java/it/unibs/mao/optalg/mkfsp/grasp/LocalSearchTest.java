@@ -0,0 +1,43 @@
+package it.unibs.mao.optalg.mkfsp.grasp;
+
+import it.unibs.mao.optalg.mkfsp.CompiledInstance;
+import it.unibs.mao.optalg.mkfsp.Instance;
+import it.unibs.mao.optalg.mkfsp.TestInstances;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that {@link LocalSearch#improve} never worsens a constructed solution, keeps it feasible and returns the
+ * objective value of the solution it leaves in place, with both strategies.
+ */
+class LocalSearchTest {
+    private static final int RUNS = 2;
+    private static final long SEARCH_MILLIS = 200;
+
+    @Test
+    void neverWorsensConstructedSolutions() {
+        for (Instance instance : TestInstances.load()) {
+            CompiledInstance compiled = CompiledInstance.of(instance);
+            Random random = new Random(53);
+            ConstructionEngine engine = new ConstructionEngine(compiled);
+            for (LocalSearch.Strategy strategy : LocalSearch.Strategy.values()) {
+                // The same object is reused, as the workers do
+                LocalSearch localSearch = new LocalSearch(compiled, strategy);
+                for (int run = 0; run < RUNS; run++) {
+                    String label = instance.id() + ", " + strategy + ", run " + run;
+                    int[] solution = engine.construct(random).clone();
+                    double start = Utils.calculateObjectiveValue(instance, solution);
+                    // Stopped or not, the solution left in place must be consistent
+                    double objective = localSearch.improve(solution, System.currentTimeMillis() + SEARCH_MILLIS);
+                    assertTrue(objective >= start, label + ": " + start + " -> " + objective);
+                    assertEquals(Utils.calculateObjectiveValue(instance, solution), objective, label);
+                    assertTrue(instance.checkFeasibility(solution, objective).isValid(), label);
+                }
+            }
+        }
+    }
+}
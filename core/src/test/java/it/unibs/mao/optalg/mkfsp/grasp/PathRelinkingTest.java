@@ -0,0 +1,75 @@
+package it.unibs.mao.optalg.mkfsp.grasp;
+
+import it.unibs.mao.optalg.mkfsp.CompiledInstance;
+import it.unibs.mao.optalg.mkfsp.Instance;
+import it.unibs.mao.optalg.mkfsp.TestInstances;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Relinks pairs of constructed solutions and checks the solutions returned, which the workers offer to the
+ * tracker as they are.
+ */
+class PathRelinkingTest {
+    private static final int PAIRS = 50;
+
+    @Test
+    void returnsFeasibleIntermediateSolutions() {
+        for (Instance instance : TestInstances.load()) {
+            CompiledInstance compiled = CompiledInstance.of(instance);
+            Random random = new Random(43);
+            ConstructionEngine engine = new ConstructionEngine(compiled);
+            PathRelinking pathRelinking = new PathRelinking(compiled);
+            int relinked = 0;
+            for (int p = 0; p < PAIRS; p++) {
+                String label = instance.id() + ", pair " + p;
+                int[] initiating = engine.construct(random).clone();
+                int[] guiding = engine.construct(random).clone();
+                int[] initiatingCopy = initiating.clone();
+                int[] guidingCopy = guiding.clone();
+
+                int[] result = pathRelinking.relink(initiating, guiding, Long.MAX_VALUE);
+                assertArrayEquals(initiatingCopy, initiating, label);
+                assertArrayEquals(guidingCopy, guiding, label);
+                if (result == null) {
+                    continue;
+                }
+                relinked++;
+                double objective = Utils.calculateObjectiveValue(instance, result);
+                assertTrue(instance.checkFeasibility(result, objective).isValid(), label);
+                assertEquals(objective, (double) new SolutionEvaluator(compiled).load(result.clone()).objective(),
+                        label);
+                // Strictly between the two
+                assertTrue(ElitePool.distance(result, initiating) > 0, label);
+                assertTrue(ElitePool.distance(result, guiding) > 0, label);
+            }
+            assertTrue(relinked > 0, instance.id() + ": no pair has been relinked");
+        }
+    }
+
+    @Test
+    void returnsNullWithinOneFamily() {
+        for (Instance instance : TestInstances.load()) {
+            CompiledInstance compiled = CompiledInstance.of(instance);
+            int[] solution = new ConstructionEngine(compiled).construct(new Random(47)).clone();
+            PathRelinking pathRelinking = new PathRelinking(compiled);
+            assertNull(pathRelinking.relink(solution, solution, Long.MAX_VALUE), instance.id());
+
+            SolutionEvaluator evaluator = new SolutionEvaluator(compiled).load(solution.clone());
+            int j = 0;
+            while (!evaluator.isSelected(j)) {
+                j++;
+            }
+            evaluator.removeFamily(j);
+            int[] withoutFamily = evaluator.solution();
+            assertNull(pathRelinking.relink(solution, withoutFamily, Long.MAX_VALUE), instance.id());
+            assertNull(pathRelinking.relink(withoutFamily, solution, Long.MAX_VALUE), instance.id());
+        }
+    }
+}
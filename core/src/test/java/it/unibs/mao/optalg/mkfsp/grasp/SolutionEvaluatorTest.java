@@ -0,0 +1,64 @@
+package it.unibs.mao.optalg.mkfsp.grasp;
+
+import it.unibs.mao.optalg.mkfsp.CompiledInstance;
+import it.unibs.mao.optalg.mkfsp.Instance;
+import it.unibs.mao.optalg.mkfsp.TestInstances;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the incremental state of {@link SolutionEvaluator} against the from-scratch computations of
+ * {@link Utils} along random sequences of relocations, removals and insertions.
+ */
+class SolutionEvaluatorTest {
+    private static final int STEPS = 1000;
+
+    @Test
+    void matchesUtilsAfterRandomMoves() {
+        for (Instance instance : TestInstances.load()) {
+            CompiledInstance compiled = CompiledInstance.of(instance);
+            Random random = new Random(42);
+            int[] solution = new ConstructionEngine(compiled).construct(random).clone();
+            SolutionEvaluator evaluator = new SolutionEvaluator(compiled).load(solution);
+            assertConsistent(instance, evaluator, "construction");
+
+            for (int step = 0; step < STEPS; step++) {
+                String label = instance.id() + ", step " + step;
+                long before = evaluator.objective();
+                int j = random.nextInt(compiled.nFamilies());
+                if (!evaluator.isSelected(j)) {
+                    if (evaluator.place(j)) {
+                        assertEquals(evaluator.deltaInsert(j, evaluator.usedKnapsacks(j)), evaluator.objective() - before, label);
+                    } else {
+                        assertEquals(before, evaluator.objective(), label);
+                    }
+                } else if (random.nextInt(4) == 0) {
+                    long delta = evaluator.deltaRemove(j);
+                    evaluator.removeFamily(j);
+                    assertEquals(delta, evaluator.objective() - before, label);
+                } else {
+                    int i = compiled.firstItems()[j] + random.nextInt(compiled.familySize()[j]);
+                    int k = random.nextInt(compiled.nKnapsacks());
+                    if (solution[i] == k || !evaluator.fits(i, k)) {
+                        continue;
+                    }
+                    long delta = evaluator.deltaMove(i, k);
+                    evaluator.move(i, k);
+                    assertEquals(delta, evaluator.objective() - before, label);
+                }
+                assertConsistent(instance, evaluator, label);
+            }
+        }
+    }
+
+    private static void assertConsistent(Instance instance, SolutionEvaluator evaluator, String label) {
+        int[] solution = evaluator.solution();
+        assertEquals(Utils.calculateObjectiveValue(instance, solution), (double) evaluator.objective(), label);
+        assertEquals(Utils.calculateSplitForEachFamily(instance, solution), evaluator.splitForEachFamily(), label);
+        assertTrue(instance.checkFeasibility(solution, evaluator.objective()).isValid(), label);
+    }
+}
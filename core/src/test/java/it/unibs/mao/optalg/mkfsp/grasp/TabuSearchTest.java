@@ -0,0 +1,99 @@
+package it.unibs.mao.optalg.mkfsp.grasp;
+
+import it.unibs.mao.optalg.mkfsp.CompiledInstance;
+import it.unibs.mao.optalg.mkfsp.Instance;
+import it.unibs.mao.optalg.mkfsp.TestInstances;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that {@link TabuSearch#improve} keeps the best solution it sees, leaves it feasible in place and only
+ * offers feasible solutions to the tracker.
+ */
+class TabuSearchTest {
+    private static final int RUNS = 5;
+    private static final int ITERATIONS = 500;
+    private static final int STEPS = 1000;
+
+    @Test
+    void neverWorsensAndOffersFeasibleSolutions() {
+        for (Instance instance : TestInstances.load()) {
+            CompiledInstance compiled = CompiledInstance.of(instance);
+            Random random = new Random(37);
+            ConstructionEngine engine = new ConstructionEngine(compiled);
+            TabuSearch tabuSearch = new TabuSearch(compiled, random);
+            List<int[]> offered = new ArrayList<>();
+            List<Double> objectives = new ArrayList<>();
+            IncumbentTracker tracker = new IncumbentTracker(System.currentTimeMillis()) {
+                @Override
+                public synchronized boolean offer(int[] solution, double objectiveValue) {
+                    offered.add(solution.clone());
+                    objectives.add(objectiveValue);
+                    return super.offer(solution, objectiveValue);
+                }
+            };
+
+            for (int run = 0; run < RUNS; run++) {
+                String label = instance.id() + ", run " + run;
+                int[] solution = engine.construct(random).clone();
+                double start = Utils.calculateObjectiveValue(instance, solution);
+                // The same object is reused, as the workers do
+                double objective = tabuSearch.improve(solution, ITERATIONS, Long.MAX_VALUE, tracker);
+                assertTrue(objective >= start, label + ": " + start + " -> " + objective);
+                assertEquals(Utils.calculateObjectiveValue(instance, solution), objective, label);
+                assertTrue(instance.checkFeasibility(solution, objective).isValid(), label);
+            }
+            assertTrue(!offered.isEmpty(), instance.id() + ": nothing offered");
+            for (int o = 0; o < offered.size(); o++) {
+                assertTrue(instance.checkFeasibility(offered.get(o), objectives.get(o)).isValid(),
+                        instance.id() + ", offer " + o);
+            }
+        }
+    }
+
+    /**
+     * The search evaluates an insertion with {@link SolutionEvaluator#place}, undoes it and places the family
+     * again when it applies the move, so the same state must yield the same placement.
+     */
+    @Test
+    void placeIsDeterministic() {
+        for (Instance instance : TestInstances.load()) {
+            CompiledInstance compiled = CompiledInstance.of(instance);
+            Random random = new Random(41);
+            int[] solution = new ConstructionEngine(compiled).construct(random).clone();
+            SolutionEvaluator evaluator = new SolutionEvaluator(compiled).load(solution);
+            for (int step = 0; step < STEPS; step++) {
+                String label = instance.id() + ", step " + step;
+                int j = random.nextInt(compiled.nFamilies());
+                if (evaluator.assignedItems(j) > 0) {
+                    evaluator.removeFamily(j);
+                    continue;
+                }
+                int[] before = solution.clone();
+                long objective = evaluator.objective();
+                if (!evaluator.place(j)) {
+                    assertArrayEquals(before, solution, label);
+                    continue;
+                }
+                int[] placed = solution.clone();
+                evaluator.removeFamily(j);
+                assertArrayEquals(before, solution, label);
+                assertEquals(objective, evaluator.objective(), label);
+                assertTrue(evaluator.place(j), label);
+                assertArrayEquals(placed, solution, label);
+                if (random.nextBoolean()) {
+                    evaluator.removeFamily(j);
+                }
+            }
+            assertEquals(Utils.calculateObjectiveValue(instance, solution), (double) evaluator.objective(),
+                    instance.id());
+        }
+    }
+}
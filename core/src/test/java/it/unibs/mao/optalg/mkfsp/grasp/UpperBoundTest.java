@@ -0,0 +1,51 @@
+package it.unibs.mao.optalg.mkfsp.grasp;
+
+import it.unibs.mao.optalg.mkfsp.CompiledInstance;
+import it.unibs.mao.optalg.mkfsp.Instance;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the bounds of {@link UpperBound} are never below the optimum found by {@link BranchAndBound} on the
+ * small random instances of {@link BranchAndBoundTest}: the gap stop of {@link GRASP} relies on it.
+ */
+class UpperBoundTest {
+    private static final int INSTANCES = 1000;
+
+    @Test
+    void boundsAreNeverBelowTheOptimum() {
+        Random random = new Random(19);
+        for (int n = 0; n < INSTANCES; n++) {
+            Instance instance = BranchAndBoundTest.randomInstance(random, "random" + n);
+            CompiledInstance compiled = CompiledInstance.of(instance);
+            long optimum = optimum(compiled);
+            String label = instance.id() + ", optimum " + optimum;
+
+            UpperBound upperBound = new UpperBound(compiled);
+            double surrogate = upperBound.surrogate();
+            assertTrue(surrogate >= optimum, label + ", surrogate " + surrogate);
+            // From no solution and from the optimum itself, which stops the subgradient steps at different points
+            for (double lowerBound : new double[] {0, optimum}) {
+                double lagrangian = upperBound.lagrangian(lowerBound, Long.MAX_VALUE);
+                assertTrue(lagrangian >= optimum, label + ", Lagrangian " + lagrangian);
+                assertTrue(lagrangian <= surrogate, label + ", Lagrangian " + lagrangian);
+            }
+        }
+    }
+
+    private static long optimum(CompiledInstance instance) {
+        int[] solution = new int[instance.nItems()];
+        Arrays.fill(solution, -1);
+        SolutionEvaluator evaluator = new SolutionEvaluator(instance).load(solution);
+        int[] familySet = BranchAndBoundTest.range(instance.nFamilies());
+        int[] knapsackSet = BranchAndBoundTest.range(instance.nKnapsacks());
+        BranchAndBound branchAndBound = new BranchAndBound(instance);
+        branchAndBound.solve(evaluator, familySet, familySet.length, knapsackSet, knapsackSet.length, Long.MAX_VALUE);
+        assertTrue(branchAndBound.isOptimal());
+        return evaluator.objective();
+    }
+}
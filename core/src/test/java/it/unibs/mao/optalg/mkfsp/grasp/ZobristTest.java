@@ -0,0 +1,127 @@
+package it.unibs.mao.optalg.mkfsp.grasp;
+
+import it.unibs.mao.optalg.mkfsp.CompiledInstance;
+import it.unibs.mao.optalg.mkfsp.Instance;
+import it.unibs.mao.optalg.mkfsp.TestInstances;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Checks the hashes kept incrementally by {@link SolutionEvaluator}, {@link ConstructionEngine} and
+ * {@link LocalSearch} against {@link Zobrist#hash} of the solution they hold.
+ */
+class ZobristTest {
+    private static final int STEPS = 2000;
+    private static final int CONSTRUCTIONS = 200;
+    private static final long SEARCH_MILLIS = 200;
+    private static final double[] BETAS = {0.1, 0.2, 0.3, 0.5, 1.0};
+
+    @Test
+    void evaluatorHashFollowsRandomMoves() {
+        for (Instance instance : TestInstances.load()) {
+            CompiledInstance compiled = CompiledInstance.of(instance);
+            Zobrist zobrist = new Zobrist(compiled);
+            Random random = new Random(17);
+            int[] solution = new int[compiled.nItems()];
+            Arrays.fill(solution, -1);
+            SolutionEvaluator evaluator = new SolutionEvaluator(compiled, zobrist).load(solution);
+            assertEquals(0, evaluator.hash());
+
+            for (int step = 0; step < STEPS; step++) {
+                String label = instance.id() + ", step " + step;
+                int j = random.nextInt(compiled.nFamilies());
+                int first = compiled.firstItems()[j];
+                int size = compiled.familySize()[j];
+                int i = first + random.nextInt(size);
+                int k = random.nextInt(compiled.nKnapsacks());
+                switch (random.nextInt(5)) {
+                    case 0 -> {
+                        if (solution[i] == -1 && evaluator.fits(i, k)) {
+                            evaluator.assign(i, k);
+                        }
+                    }
+                    case 1 -> {
+                        if (solution[i] != -1) {
+                            evaluator.unassign(i);
+                        }
+                    }
+                    case 2 -> {
+                        if (solution[i] != -1 && solution[i] != k && evaluator.fits(i, k)) {
+                            evaluator.move(i, k);
+                        }
+                    }
+                    case 3 -> {
+                        if (evaluator.assignedItems(j) > 0) {
+                            evaluator.removeFamily(j);
+                        } else {
+                            evaluator.place(j);
+                        }
+                    }
+                    default -> {
+                        // Take the family out and put it back as it was, as the neighborhoods undo a move
+                        long hash = evaluator.hash();
+                        int[] saved = Arrays.copyOfRange(solution, first, first + size);
+                        evaluator.removeFamily(j);
+                        assertEquals(zobrist.hash(solution), evaluator.hash(), label);
+                        for (int t = 0; t < size; t++) {
+                            if (saved[t] != -1) {
+                                evaluator.assign(first + t, saved[t]);
+                            }
+                        }
+                        assertEquals(hash, evaluator.hash(), label);
+                    }
+                }
+                assertEquals(zobrist.hash(solution), evaluator.hash(), label);
+            }
+        }
+    }
+
+    @Test
+    void engineHashFollowsConstruction() {
+        for (Instance instance : TestInstances.load()) {
+            CompiledInstance compiled = CompiledInstance.of(instance);
+            Zobrist zobrist = new Zobrist(compiled);
+            ConstructionEngine engine = new ConstructionEngine(compiled, zobrist);
+            Random random = new Random(23);
+            for (int c = 0; c < CONSTRUCTIONS; c++) {
+                // Every ranking and beta, so that some insertions fail and are rolled back
+                FamilyRanking ranking = FamilyRanking.values()[c % FamilyRanking.values().length];
+                double beta = BETAS[random.nextInt(BETAS.length)];
+                int[] solution = engine.construct(random, beta, ranking);
+                assertEquals(zobrist.hash(solution), engine.hash(), instance.id() + ", construction " + c);
+            }
+        }
+    }
+
+    @Test
+    void localSearchHashFollowsImprovement() {
+        for (Instance instance : TestInstances.load()) {
+            CompiledInstance compiled = CompiledInstance.of(instance);
+            Zobrist zobrist = new Zobrist(compiled);
+            ConstructionEngine engine = new ConstructionEngine(compiled, zobrist);
+            Random random = new Random(29);
+            for (LocalSearch.Strategy strategy : LocalSearch.Strategy.values()) {
+                LocalSearch localSearch = new LocalSearch(compiled, strategy, zobrist);
+                int[] solution = engine.construct(random).clone();
+                // Stopped or not, the hash must match the solution left
+                localSearch.improve(solution, System.currentTimeMillis() + SEARCH_MILLIS);
+                assertEquals(zobrist.hash(solution), localSearch.hash(), instance.id() + ", " + strategy);
+            }
+        }
+    }
+
+    @Test
+    void keysOnlyDependOnTheInstanceSize() {
+        CompiledInstance compiled = CompiledInstance.of(TestInstances.load().get(0));
+        Zobrist zobrist = new Zobrist(compiled);
+        Zobrist other = new Zobrist(compiled);
+        int[] solution = new ConstructionEngine(compiled).construct(new Random(31));
+        assertEquals(zobrist.hash(solution), other.hash(solution));
+        assertNotEquals(0, zobrist.hash(solution));
+    }
+}
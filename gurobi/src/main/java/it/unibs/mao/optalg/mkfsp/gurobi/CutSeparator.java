@@ -0,0 +1,348 @@
+package it.unibs.mao.optalg.mkfsp.gurobi;
+
+import gurobi.GRB;
+import gurobi.GRBLinExpr;
+import gurobi.GRBVar;
+import it.unibs.mao.optalg.mkfsp.CompiledInstance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Separates valid inequalities of the MKFSP model from the relaxation of
+ * a MIP node. The model callback adds them as user cuts at
+ * {@code CB_MIPNODE}, see {@link Model#build}.
+ * <ul>
+ *   <li>Linking cuts {@code y[i,k] <= z[j,k]}, the disaggregated form of the
+ *       family/knapsack constraints of the model.</li>
+ *   <li>Split cuts {@code s[j] >= (m[j] - 1) x[j]}, where {@code m[j]} is
+ *       the fewest knapsacks that can hold the demand of family {@code j}
+ *       for some resource.</li>
+ *   <li>Extended cover cuts on the capacity rows: a set of items that
+ *       exceeds the capacity of a knapsack, found greedily by
+ *       {@code (1 - y) / demand}, plus every item that is at least as
+ *       heavy as the heaviest one of the set.</li>
+ *   <li>Clique cuts {@code sum y[i,k] <= 1} on items that pairwise do not
+ *       fit together in knapsack {@code k}, found greedily by decreasing
+ *       {@code y}.</li>
+ * </ul>
+ * The time spent separating is summed over the nodes, once it exceeds
+ * the limit no more cuts are separated.
+ */
+public final class CutSeparator {
+  // Minimum violation of a cut, to avoid cycling on numerical noise
+  private static final double VIOLATION = 1e-4;
+  private static final int MAX_CUTS_PER_NODE = 200;
+
+  /**
+   * A cut in the form {@code expr sense rhs}.
+   */
+  public record Cut(GRBLinExpr expr, char sense, double rhs) {}
+
+  private final CompiledInstance instance;
+  private final long maxNanos;
+
+  private final GRBVar[] xFlat;
+  private final GRBVar[] sFlat;
+  private final int[] minKnapsacks;
+  private final GRBVar[] yFlat;
+  private final int[] yItem;
+  private final int[] yKnapsack;
+  // The position of y[i,k] in yFlat at i * nKnapsacks + k, -1 if left out
+  private final int[] yIndex;
+  private final GRBVar[] zFlat;
+  // The position of z[j,k] in zFlat at j * nKnapsacks + k, -1 if left out
+  private final int[] zIndex;
+
+  private final int[] support;
+  private final Integer[] order;
+  private final double[] ratio;
+  private final boolean[] inCover;
+
+  private long nanos;
+  private int cuts;
+
+  /**
+   * Takes the variables of a model built for {@code instance}, as they are
+   * stored in {@link ModelVars}.
+   *
+   * @param instance   the instance of the model
+   * @param maxMillis  the total time that can be spent separating cuts
+   */
+  CutSeparator(final GRBVar[] xvars, final GRBVar[] svars, final GRBVar[][] yvars, final GRBVar[][] zvars,
+      final CompiledInstance instance, final long maxMillis) {
+    this.instance = instance;
+    this.maxNanos = maxMillis * 1_000_000;
+    final int nItems = instance.nItems();
+    final int nFamilies = instance.nFamilies();
+    final int nKnapsacks = instance.nKnapsacks();
+    final int nResources = instance.nResources();
+    final int[] capacities = instance.capacities();
+    final int[] familyDemand = instance.familyDemand();
+
+    final long[] largest = new long[nResources];
+    for (int k = 0; k < nKnapsacks; ++k) {
+      for (int r = 0; r < nResources; ++r) {
+        largest[r] = Math.max(largest[r], capacities[k * nResources + r]);
+      }
+    }
+
+    int n = 0;
+    for (final GRBVar var: xvars) {
+      n += var != null ? 1 : 0;
+    }
+    xFlat = new GRBVar[n];
+    sFlat = new GRBVar[n];
+    minKnapsacks = new int[n];
+    n = 0;
+    for (int j = 0; j < nFamilies; ++j) {
+      if (xvars[j] == null) {
+        continue;
+      }
+      xFlat[n] = xvars[j];
+      sFlat[n] = svars[j];
+      long needed = 1;
+      for (int r = 0; r < nResources; ++r) {
+        if (largest[r] > 0) {
+          needed = Math.max(needed, (familyDemand[j * nResources + r] + largest[r] - 1) / largest[r]);
+        }
+      }
+      minKnapsacks[n++] = (int) needed;
+    }
+
+    yIndex = new int[nItems * nKnapsacks];
+    Arrays.fill(yIndex, -1);
+    n = 0;
+    for (int i = 0; i < nItems; ++i) {
+      for (int k = 0; k < nKnapsacks; ++k) {
+        if (yvars[i][k] != null) {
+          yIndex[i * nKnapsacks + k] = n++;
+        }
+      }
+    }
+    yFlat = new GRBVar[n];
+    yItem = new int[n];
+    yKnapsack = new int[n];
+    for (int i = 0; i < nItems; ++i) {
+      for (int k = 0; k < nKnapsacks; ++k) {
+        final int t = yIndex[i * nKnapsacks + k];
+        if (t >= 0) {
+          yFlat[t] = yvars[i][k];
+          yItem[t] = i;
+          yKnapsack[t] = k;
+        }
+      }
+    }
+
+    zIndex = new int[nFamilies * nKnapsacks];
+    Arrays.fill(zIndex, -1);
+    n = 0;
+    for (int j = 0; j < nFamilies; ++j) {
+      for (int k = 0; k < nKnapsacks; ++k) {
+        if (zvars[j][k] != null) {
+          zIndex[j * nKnapsacks + k] = n++;
+        }
+      }
+    }
+    zFlat = new GRBVar[n];
+    for (int j = 0; j < nFamilies; ++j) {
+      for (int k = 0; k < nKnapsacks; ++k) {
+        if (zIndex[j * nKnapsacks + k] >= 0) {
+          zFlat[zIndex[j * nKnapsacks + k]] = zvars[j][k];
+        }
+      }
+    }
+
+    support = new int[nItems];
+    order = new Integer[nItems];
+    ratio = new double[nItems];
+    inCover = new boolean[nItems];
+  }
+
+  /** @return the x variables of the model, s is in the same order */
+  public GRBVar[] xvars() { return xFlat; }
+
+  public GRBVar[] svars() { return sFlat; }
+
+  public GRBVar[] yvars() { return yFlat; }
+
+  public GRBVar[] zvars() { return zFlat; }
+
+  /**
+   * @return true if the separation time is over
+   */
+  public boolean isExhausted() {
+    return nanos >= maxNanos;
+  }
+
+  /** @return the number of cuts separated so far */
+  public int cuts() { return cuts; }
+
+  /** @return the total separation time, in milliseconds */
+  public long millis() { return nanos / 1_000_000; }
+
+  /**
+   * Separates the cuts violated by the given relaxation, the values are in
+   * the order of {@link #xvars()}, {@link #svars()}, {@link #yvars()} and
+   * {@link #zvars()}.
+   *
+   * @return the violated cuts, at most {@value #MAX_CUTS_PER_NODE}
+   */
+  public List<Cut> separate(final double[] x, final double[] s, final double[] y, final double[] z) {
+    final long start = System.nanoTime();
+    final List<Cut> found = new ArrayList<>();
+    separateSplits(x, s, found);
+    separateLinking(y, z, found);
+    for (int k = 0; k < instance.nKnapsacks() && found.size() < MAX_CUTS_PER_NODE; ++k) {
+      final int n = collectSupport(y, k);
+      for (int r = 0; r < instance.nResources() && found.size() < MAX_CUTS_PER_NODE; ++r) {
+        separateCover(y, k, r, n, found);
+      }
+      separateClique(y, k, n, found);
+    }
+    nanos += System.nanoTime() - start;
+    cuts += found.size();
+    return found;
+  }
+
+  private void separateSplits(final double[] x, final double[] s, final List<Cut> found) {
+    for (int t = 0; t < xFlat.length && found.size() < MAX_CUTS_PER_NODE; ++t) {
+      if (minKnapsacks[t] > 1 && (minKnapsacks[t] - 1) * x[t] - s[t] > VIOLATION) {
+        final GRBLinExpr expr = new GRBLinExpr();
+        expr.addTerm(1, sFlat[t]);
+        expr.addTerm(-(minKnapsacks[t] - 1), xFlat[t]);
+        found.add(new Cut(expr, GRB.GREATER_EQUAL, 0));
+      }
+    }
+  }
+
+  private void separateLinking(final double[] y, final double[] z, final List<Cut> found) {
+    final int nKnapsacks = instance.nKnapsacks();
+    final int[] itemFamily = instance.itemFamily();
+    for (int t = 0; t < yFlat.length && found.size() < MAX_CUTS_PER_NODE; ++t) {
+      final int u = zIndex[itemFamily[yItem[t]] * nKnapsacks + yKnapsack[t]];
+      if (y[t] - z[u] > VIOLATION) {
+        final GRBLinExpr expr = new GRBLinExpr();
+        expr.addTerm(1, yFlat[t]);
+        expr.addTerm(-1, zFlat[u]);
+        found.add(new Cut(expr, GRB.LESS_EQUAL, 0));
+      }
+    }
+  }
+
+  /**
+   * Writes the items with a positive value of {@code y[i,k]} at the
+   * beginning of {@code support}.
+   *
+   * @return the number of items
+   */
+  private int collectSupport(final double[] y, final int k) {
+    final int nKnapsacks = instance.nKnapsacks();
+    int n = 0;
+    for (int i = 0; i < instance.nItems(); ++i) {
+      final int t = yIndex[i * nKnapsacks + k];
+      if (t >= 0 && y[t] > VIOLATION) {
+        support[n++] = i;
+      }
+    }
+    return n;
+  }
+
+  private void separateCover(final double[] y, final int k, final int r, final int n, final List<Cut> found) {
+    final int nKnapsacks = instance.nKnapsacks();
+    final int nResources = instance.nResources();
+    final int[] itemResources = instance.itemResources();
+    final int capacity = instance.capacities()[k * nResources + r];
+
+    // Only the items in the support can be part of a violated cover
+    long total = 0;
+    int m = 0;
+    for (int t = 0; t < n; ++t) {
+      final int i = support[t];
+      final int weight = itemResources[i * nResources + r];
+      if (weight > 0) {
+        total += weight;
+        ratio[i] = (1 - y[yIndex[i * nKnapsacks + k]]) / weight;
+        order[m++] = i;
+      }
+    }
+    if (total <= capacity) {
+      return;
+    }
+    Arrays.sort(order, 0, m, (a, b) -> Double.compare(ratio[a], ratio[b]));
+
+    long weight = 0;
+    double slack = 0;
+    int size = 0;
+    int heaviest = 0;
+    for (int t = 0; t < m && weight <= capacity; ++t) {
+      final int i = order[t];
+      weight += itemResources[i * nResources + r];
+      slack += 1 - y[yIndex[i * nKnapsacks + k]];
+      heaviest = Math.max(heaviest, itemResources[i * nResources + r]);
+      inCover[i] = true;
+      size += 1;
+    }
+    if (weight > capacity && slack < 1 - VIOLATION) {
+      final GRBLinExpr expr = new GRBLinExpr();
+      for (int i = 0; i < instance.nItems(); ++i) {
+        final int t = yIndex[i * nKnapsacks + k];
+        if (t >= 0 && (inCover[i] || itemResources[i * nResources + r] >= heaviest)) {
+          expr.addTerm(1, yFlat[t]);
+        }
+      }
+      found.add(new Cut(expr, GRB.LESS_EQUAL, size - 1));
+    }
+    for (int t = 0; t < m; ++t) {
+      inCover[order[t]] = false;
+    }
+  }
+
+  private void separateClique(final double[] y, final int k, final int n, final List<Cut> found) {
+    if (found.size() >= MAX_CUTS_PER_NODE) {
+      return;
+    }
+    final int nKnapsacks = instance.nKnapsacks();
+    for (int t = 0; t < n; ++t) {
+      order[t] = support[t];
+    }
+    Arrays.sort(order, 0, n, (a, b) -> Double.compare(y[yIndex[b * nKnapsacks + k]], y[yIndex[a * nKnapsacks + k]]));
+
+    int size = 0;
+    double value = 0;
+    for (int t = 0; t < n; ++t) {
+      final int i = order[t];
+      boolean conflicting = true;
+      for (int u = 0; u < size && conflicting; ++u) {
+        conflicting = !fitTogether(order[u], i, k);
+      }
+      if (conflicting) {
+        // The clique is kept at the beginning of order
+        order[t] = order[size];
+        order[size++] = i;
+        value += y[yIndex[i * nKnapsacks + k]];
+      }
+    }
+    if (size > 1 && value > 1 + VIOLATION) {
+      final GRBLinExpr expr = new GRBLinExpr();
+      for (int u = 0; u < size; ++u) {
+        expr.addTerm(1, yFlat[yIndex[order[u] * nKnapsacks + k]]);
+      }
+      found.add(new Cut(expr, GRB.LESS_EQUAL, 1));
+    }
+  }
+
+  private boolean fitTogether(final int a, final int b, final int k) {
+    final int nResources = instance.nResources();
+    final int[] itemResources = instance.itemResources();
+    final int[] capacities = instance.capacities();
+    for (int r = 0; r < nResources; ++r) {
+      if ((long) itemResources[a * nResources + r] + itemResources[b * nResources + r]
+          > capacities[k * nResources + r]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,39 @@
+package it.unibs.mao.optalg.mkfsp.gurobi;
+
+import gurobi.GRBException;
+import it.unibs.mao.optalg.mkfsp.MipBackend;
+import it.unibs.mao.optalg.mkfsp.MipException;
+import it.unibs.mao.optalg.mkfsp.MipSession;
+
+/**
+ * The Gurobi backend, preferred over the others when a license is
+ * available. It needs {@code gurobi.jar} on the class path and the Gurobi
+ * native libraries on the library path.
+ */
+public class GurobiBackend implements MipBackend {
+  public static final String NAME = "gurobi";
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public int priority() {
+    return 100;
+  }
+
+  /**
+   * @throws MipException if Gurobi is not installed or no license is
+   *                      available
+   */
+  @Override
+  public MipSession open(final boolean output) throws MipException {
+    try {
+      return SolverSession.open(output, this);
+    } catch (final GRBException | LinkageError e) {
+      // LinkageError: gurobi.jar or the native libraries are missing
+      throw new MipException("Gurobi can not be started: " + e.getMessage(), e);
+    }
+  }
+}
@@ -0,0 +1,272 @@
+package it.unibs.mao.optalg.mkfsp.gurobi;
+
+import gurobi.GRB;
+import gurobi.GRBException;
+import gurobi.GRBModel;
+import gurobi.GRBVar;
+import it.unibs.mao.optalg.mkfsp.CompiledInstance;
+import it.unibs.mao.optalg.mkfsp.IncumbentExchange;
+import it.unibs.mao.optalg.mkfsp.MipException;
+import it.unibs.mao.optalg.mkfsp.MipModel;
+import it.unibs.mao.optalg.mkfsp.MipStatus;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link MipModel} backed by the Gurobi model built by {@link Model#build}.
+ * The x and y variables that are part of the model are also kept in flat
+ * arrays, so that restrictions and solutions take one array call each.
+ */
+final class GurobiModel implements MipModel {
+  private static final double INT_TOLERANCE = 1e-6;
+
+  private final ModelVars modelVars;
+  private final GRBModel model;
+  private final CompiledInstance instance;
+  private boolean cooperating;
+
+  private final GRBVar[] yFlat;
+  private final int[] yItem;
+  private final int[] yKnapsack;
+  private final GRBVar[] xFlat;
+  private final int[] xFamily;
+  // Bounds buffers, allocated at the first restriction
+  private double[] yLb;
+  private double[] yUb;
+  private double[] xLb;
+  private double[] xUb;
+
+  GurobiModel(final ModelVars modelVars, final CompiledInstance instance) {
+    this.modelVars = modelVars;
+    this.model = modelVars.model();
+    this.instance = instance;
+
+    final GRBVar[][] yvars = modelVars.yvars();
+    int nY = 0;
+    for (final GRBVar[] row: yvars) {
+      for (final GRBVar var: row) {
+        nY += var != null ? 1 : 0;
+      }
+    }
+    yFlat = new GRBVar[nY];
+    yItem = new int[nY];
+    yKnapsack = new int[nY];
+    nY = 0;
+    for (int i = 0; i < yvars.length; ++i) {
+      for (int k = 0; k < yvars[i].length; ++k) {
+        if (yvars[i][k] != null) {
+          yFlat[nY] = yvars[i][k];
+          yItem[nY] = i;
+          yKnapsack[nY++] = k;
+        }
+      }
+    }
+
+    final GRBVar[] xvars = modelVars.xvars();
+    int nX = 0;
+    for (final GRBVar var: xvars) {
+      nX += var != null ? 1 : 0;
+    }
+    xFlat = new GRBVar[nX];
+    xFamily = new int[nX];
+    nX = 0;
+    for (int j = 0; j < xvars.length; ++j) {
+      if (xvars[j] != null) {
+        xFlat[nX] = xvars[j];
+        xFamily[nX++] = j;
+      }
+    }
+  }
+
+  @Override
+  public void setTimeLimit(final double seconds) throws MipException {
+    try {
+      model.set(GRB.DoubleParam.TimeLimit, seconds);
+    } catch (final GRBException e) {
+      throw new MipException(e);
+    }
+  }
+
+  @Override
+  public void setObjectiveTarget(final double objective) throws MipException {
+    try {
+      model.set(GRB.DoubleParam.BestObjStop, Math.min(objective, GRB.INFINITY));
+    } catch (final GRBException e) {
+      throw new MipException(e);
+    }
+  }
+
+  @Override
+  public void setLogFile(final Path path) throws MipException {
+    try {
+      model.set(GRB.StringParam.LogFile, path.toString());
+    } catch (final GRBException e) {
+      throw new MipException(e);
+    }
+  }
+
+  /**
+   * Without output the callback that prints the new incumbents is removed
+   * as well, unless the model is cooperating or separates cuts.
+   */
+  @Override
+  public void setOutput(final boolean output) throws MipException {
+    try {
+      model.set(GRB.IntParam.OutputFlag, output ? 1 : 0);
+      if (!output && !cooperating && modelVars.cutSeparator() == null) {
+        model.setCallback(null);
+      }
+    } catch (final GRBException e) {
+      throw new MipException(e);
+    }
+  }
+
+  @Override
+  public void setStart(final int[] solution) throws MipException {
+    try {
+      Model.setStart(modelVars, instance, solution);
+    } catch (final GRBException e) {
+      throw new MipException(e);
+    }
+  }
+
+  @Override
+  public void setStarts(final List<int[]> solutions) throws MipException {
+    try {
+      Model.setStarts(modelVars, instance, solutions);
+    } catch (final GRBException e) {
+      throw new MipException(e);
+    }
+  }
+
+  @Override
+  public void limitSplits(final int j, final int maxSplits) throws MipException {
+    final GRBVar svar = modelVars.svars()[j];
+    if (svar == null) {
+      return;
+    }
+    try {
+      model.addConstr(svar, GRB.LESS_EQUAL, maxSplits, "_splits");
+    } catch (final GRBException e) {
+      throw new MipException(e);
+    }
+  }
+
+  /**
+   * Only changes the bounds of the x and y variables, with one array call
+   * per attribute. The solution is first brought to the order of the
+   * symmetry breaking constraints, see {@link Model#canonical}.
+   */
+  @Override
+  public void restrict(final int[] solution, final boolean[] freeFamilies, final boolean[] freeKnapsacks)
+      throws MipException {
+    final int[] current = Model.canonical(modelVars, instance, solution);
+    if (yLb == null) {
+      yLb = new double[yFlat.length];
+      yUb = new double[yFlat.length];
+      xLb = new double[xFlat.length];
+      xUb = new double[xFlat.length];
+    }
+    final int[] itemFamily = instance.itemFamily();
+    for (int t = 0; t < yFlat.length; ++t) {
+      final int j = itemFamily[yItem[t]];
+      final double assigned = current[yItem[t]] == yKnapsack[t] ? 1 : 0;
+      if (freeFamilies[j]) {
+        yLb[t] = 0;
+        yUb[t] = freeKnapsacks[yKnapsack[t]] ? 1 : assigned;
+      } else {
+        yLb[t] = assigned;
+        yUb[t] = assigned;
+      }
+    }
+    final int[] firstItems = instance.firstItems();
+    for (int t = 0; t < xFlat.length; ++t) {
+      final int j = xFamily[t];
+      final double selected = current[firstItems[j]] >= 0 ? 1 : 0;
+      xLb[t] = freeFamilies[j] ? 0 : selected;
+      xUb[t] = freeFamilies[j] ? 1 : selected;
+    }
+    try {
+      model.set(GRB.DoubleAttr.LB, yFlat, yLb);
+      model.set(GRB.DoubleAttr.UB, yFlat, yUb);
+      model.set(GRB.DoubleAttr.LB, xFlat, xLb);
+      model.set(GRB.DoubleAttr.UB, xFlat, xUb);
+    } catch (final GRBException e) {
+      throw new MipException(e);
+    }
+  }
+
+  @Override
+  public void cooperate(final IncumbentExchange exchange) throws MipException {
+    try {
+      Model.cooperate(modelVars, instance, exchange);
+      cooperating = true;
+    } catch (final GRBException e) {
+      throw new MipException(e);
+    }
+  }
+
+  @Override
+  public MipStatus optimize() throws MipException {
+    try {
+      model.optimize();
+      final CutSeparator cutSeparator = modelVars.cutSeparator();
+      if (cutSeparator != null && cutSeparator.cuts() > 0) {
+        System.out.println("User cuts: " + cutSeparator.cuts() + " in " + cutSeparator.millis() + " ms");
+      }
+      return switch (model.get(GRB.IntAttr.Status)) {
+        case GRB.Status.OPTIMAL -> MipStatus.OPTIMAL;
+        case GRB.Status.INFEASIBLE, GRB.Status.INF_OR_UNBD -> MipStatus.INFEASIBLE;
+        case GRB.Status.USER_OBJ_LIMIT -> MipStatus.TARGET_REACHED;
+        case GRB.Status.TIME_LIMIT -> MipStatus.TIME_LIMIT;
+        case GRB.Status.INTERRUPTED -> MipStatus.INTERRUPTED;
+        default -> MipStatus.OTHER;
+      };
+    } catch (final GRBException e) {
+      throw new MipException(e);
+    }
+  }
+
+  @Override
+  public int[] solution() throws MipException {
+    try {
+      if (model.get(GRB.IntAttr.SolCount) == 0) {
+        return null;
+      }
+      final double[] values = model.get(GRB.DoubleAttr.X, yFlat);
+      final double binLb = 1 - INT_TOLERANCE;
+      final double binUb = 1 + INT_TOLERANCE;
+      final int[] solution = new int[instance.nItems()];
+      Arrays.fill(solution, -1);
+      for (int t = 0; t < values.length; ++t) {
+        if (binLb <= values[t] && values[t] <= binUb) {
+          solution[yItem[t]] = yKnapsack[t];
+        }
+      }
+      return solution;
+    } catch (final GRBException e) {
+      throw new MipException(e);
+    }
+  }
+
+  @Override
+  public double objective() throws MipException {
+    try {
+      return model.get(GRB.DoubleAttr.ObjVal);
+    } catch (final GRBException e) {
+      throw new MipException(e);
+    }
+  }
+
+  @Override
+  public List<double[]> incumbentHistory() {
+    return modelVars.executionInfo().history;
+  }
+
+  @Override
+  public void close() {
+    model.dispose();
+  }
+}
@@ -0,0 +1,769 @@
+package it.unibs.mao.optalg.mkfsp.gurobi;
+
+import gurobi.*;
+import it.unibs.mao.optalg.mkfsp.CompiledInstance;
+import it.unibs.mao.optalg.mkfsp.IncumbentExchange;
+import it.unibs.mao.optalg.mkfsp.Instance;
+import it.unibs.mao.optalg.mkfsp.ModelReduction;
+import it.unibs.mao.optalg.mkfsp.Preprocessor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A utility class with static methods that build the Gurobi model for a
+ * MKFSP instance and set its MIP start. This class can not be instantiated.
+ */
+public class Model {
+
+  private Model() {
+    // no-op
+  }
+
+  /**
+   * Constructs a Gurobi model for the given MKFSP instance, with the
+   * {@link ModelOptions#defaults() default options}.
+   *
+   * @param instance  an instance of the MKFSP problem
+   * @param env       the Gurobi environment used to build the GRBModel instance
+   * @return
+   * @throws GRBException
+   * @see ModelVars
+   */
+  public static ModelVars build(final Instance instance, final GRBEnv env) throws GRBException {
+    return build(instance, env, ModelOptions.defaults());
+  }
+
+  /**
+   * Constructs a Gurobi model for the given MKFSP instance.
+   *
+   * @param instance  an instance of the MKFSP problem
+   * @param env       the Gurobi environment used to build the GRBModel instance
+   * @param options   the build options
+   * @return
+   * @throws GRBException
+   * @see #build(CompiledInstance, GRBEnv, ModelOptions)
+   */
+  public static ModelVars build(final Instance instance, final GRBEnv env, final ModelOptions options)
+      throws GRBException {
+    return build(CompiledInstance.of(instance), env, options);
+  }
+
+  /**
+   * Constructs a Gurobi model for the given MKFSP instance. Variables and
+   * constraints are created with one batch call each, in the same order as
+   * they would be added one by one.
+   *
+   * When the options contain a {@link ModelReduction}, the families that
+   * are fixed out and the pruned item/knapsack pairs get no variable and no
+   * constraint, and the corresponding entries of the returned
+   * {@link ModelVars} are null. Capacity constraints that can not be
+   * violated by the remaining variables are left out as well.
+   *
+   * When the options enable symmetry breaking and the reduction does not
+   * {@link ModelReduction#omitSymmetryBreaking omit} it, the knapsacks with
+   * identical capacities (and, with a reduction, identical pruned items) are
+   * ordered by their load: the total demand of the items loaded in a
+   * knapsack, summed over the resources, does not increase along each class.
+   * Any solution can be brought to this order by swapping the contents of
+   * the knapsacks of a class, {@link #setStart} and the injected heuristic
+   * solutions are permuted this way. Gurobi's own symmetry detection is set
+   * to aggressive for these models.
+   *
+   * When the options give a cut separation time, the callback adds the
+   * cuts of a {@link CutSeparator} at the MIP nodes, until that time is
+   * spent, and presolve is limited to the reductions that keep user cuts
+   * valid.
+   *
+   * @param compiled  an instance of the MKFSP problem
+   * @param env       the Gurobi environment used to build the GRBModel instance
+   * @param options   the build options
+   * @return
+   * @throws GRBException
+   * @throws IllegalArgumentException if the reduction is for a different
+   *         instance or fixes in a family that can not be selected
+   * @see ModelVars
+   */
+  public static ModelVars build(final CompiledInstance compiled, final GRBEnv env, final ModelOptions options)
+      throws GRBException {
+    final int nItems = compiled.nItems();
+    final int nFamilies = compiled.nFamilies();
+    final int nKnapsacks = compiled.nKnapsacks();
+    final int nResources = compiled.nResources();
+    final int[] profits = compiled.profits();
+    final int[] penalties = compiled.penalties();
+    final int[] firstItems = compiled.firstItems();
+    final int[] familyEnd = compiled.familyEnd();
+    final int[] itemResources = compiled.itemResources();
+    final int[] capacities = compiled.capacities();
+    final boolean named = options.namedVars();
+    final ModelReduction reduction = options.reduction();
+    if (reduction != null) {
+      final CompiledInstance other = reduction.instance();
+      if (other.nItems() != nItems || other.nFamilies() != nFamilies || other.nKnapsacks() != nKnapsacks) {
+        throw new IllegalArgumentException("The model reduction belongs to a different instance");
+      }
+    }
+
+    // Count the items of each family that can go in each knapsack and
+    // find the families that can be part of a solution
+    final int[] available = new int[nFamilies * nKnapsacks];
+    final boolean[] included = new boolean[nFamilies];
+    int nVars = 0;
+    for (int j = 0; j < nFamilies; ++j) {
+      boolean selectable = reduction == null || !reduction.isFixedOut(j);
+      for (int i = firstItems[j]; selectable && i < familyEnd[j]; ++i) {
+        boolean placeable = false;
+        for (int k = 0; k < nKnapsacks; ++k) {
+          if (reduction == null || !reduction.isPruned(i, k)) {
+            available[j * nKnapsacks + k] += 1;
+            placeable = true;
+          }
+        }
+        selectable = placeable;
+      }
+      if (!selectable && reduction != null && reduction.isFixedIn(j)) {
+        throw new IllegalArgumentException("Family " + j + " is fixed in but can not be selected");
+      }
+      included[j] = selectable;
+      if (selectable) {
+        nVars += 2;
+        for (int k = 0; k < nKnapsacks; ++k) {
+          final int count = available[j * nKnapsacks + k];
+          nVars += count > 0 ? 1 + count : 0;
+        }
+      }
+    }
+
+    final GRBModel model = new GRBModel(env);
+    model.set(GRB.IntAttr.ModelSense, GRB.MAXIMIZE);
+
+    // Add model variables: for each family x, s, then z and y for each knapsack
+    final double[] lb = new double[nVars];
+    final double[] ub = new double[nVars];
+    final double[] obj = new double[nVars];
+    final char[] types = new char[nVars];
+    final String[] names = named ? new String[nVars] : null;
+
+    int v = 0;
+    for (int j = 0; j < nFamilies; ++j) {
+      if (!included[j]) {
+        continue;
+      }
+      lb[v] = reduction != null && reduction.isFixedIn(j) ? 1 : 0;
+      ub[v] = 1;
+      obj[v] = profits[j];
+      types[v] = GRB.BINARY;
+      if (named) {
+        names[v] = "x["+j+"]";
+      }
+      ++v;
+      ub[v] = GRB.INFINITY;
+      obj[v] = -penalties[j];
+      types[v] = GRB.INTEGER;
+      if (named) {
+        names[v] = "s["+j+"]";
+      }
+      ++v;
+      for (int k = 0; k < nKnapsacks; ++k) {
+        if (available[j * nKnapsacks + k] == 0) {
+          continue;
+        }
+        ub[v] = 1;
+        types[v] = GRB.BINARY;
+        if (named) {
+          names[v] = "z["+j+","+k+"]";
+        }
+        ++v;
+        for (int i = firstItems[j]; i < familyEnd[j]; ++i) {
+          if (reduction != null && reduction.isPruned(i, k)) {
+            continue;
+          }
+          ub[v] = 1;
+          types[v] = GRB.INTEGER;
+          if (named) {
+            names[v] = "y["+i+","+k+"]";
+          }
+          ++v;
+        }
+      }
+    }
+    final GRBVar[] vars = model.addVars(lb, ub, obj, types, names);
+
+    final GRBVar[] xvars = new GRBVar[nFamilies];
+    final GRBVar[][] yvars = new GRBVar[nItems][nKnapsacks];
+    final GRBVar[][] zvars = new GRBVar[nFamilies][nKnapsacks];
+    final GRBVar[] svars = new GRBVar[nFamilies];
+    v = 0;
+    for (int j = 0; j < nFamilies; ++j) {
+      if (!included[j]) {
+        continue;
+      }
+      xvars[j] = vars[v++];
+      svars[j] = vars[v++];
+      for (int k = 0; k < nKnapsacks; ++k) {
+        if (available[j * nKnapsacks + k] == 0) {
+          continue;
+        }
+        zvars[j][k] = vars[v++];
+        for (int i = firstItems[j]; i < familyEnd[j]; ++i) {
+          if (reduction == null || !reduction.isPruned(i, k)) {
+            yvars[i][k] = vars[v++];
+          }
+        }
+      }
+    }
+
+    final int[] maxItems = Preprocessor.maxItems(compiled);
+    final boolean symmetryBreaking = options.symmetryBreaking()
+        && (reduction == null || !reduction.isSymmetryBreakingOmitted());
+    final int[] knapsackClasses = symmetryBreaking ? symmetryClasses(compiled, reduction) : null;
+    final int maxConstrs = nItems + nFamilies * (nKnapsacks + 2) + nKnapsacks * nResources + nKnapsacks;
+    GRBLinExpr[] lhs = new GRBLinExpr[maxConstrs];
+    char[] senses = new char[maxConstrs];
+    double[] rhs = new double[maxConstrs];
+    String[] constrNames = named ? new String[maxConstrs] : null;
+    final double[] ones = new double[Math.max(nKnapsacks, compiled.maxFamilySize())];
+    Arrays.fill(ones, 1);
+    final double[] coeffs = new double[nItems];
+    final GRBVar[] terms = new GRBVar[Math.max(nItems, nKnapsacks)];
+
+    int c = 0;
+    for (int j = 0; j < nFamilies; ++j) {
+      if (!included[j]) {
+        continue;
+      }
+      final int firstItem = firstItems[j];
+      final int endItem = familyEnd[j];
+      final int familySize = endItem - firstItem;
+
+      // Add family integrity constraints
+      for (int i = firstItem; i < endItem; ++i) {
+        final GRBLinExpr expr = new GRBLinExpr();
+        expr.addTerms(ones, terms, 0, collect(yvars[i], terms));
+        expr.addTerm(-1, xvars[j]);
+        lhs[c] = expr;
+        senses[c] = GRB.EQUAL;
+        if (named) {
+          constrNames[c] = "_f";
+        }
+        ++c;
+      }
+
+      // Add logical constraints between yvars and zvars
+      for (int k = 0; k < nKnapsacks; ++k) {
+        if (zvars[j][k] == null) {
+          continue;
+        }
+        int n = 0;
+        for (int i = firstItem; i < endItem; ++i) {
+          if (yvars[i][k] != null) {
+            terms[n++] = yvars[i][k];
+          }
+        }
+        final GRBLinExpr expr = new GRBLinExpr();
+        expr.addTerms(ones, terms, 0, n);
+        expr.addTerm(-Math.min(maxItems[j * nKnapsacks + k], n), zvars[j][k]);
+        lhs[c] = expr;
+        senses[c] = GRB.LESS_EQUAL;
+        if (named) {
+          constrNames[c] = "_z";
+        }
+        ++c;
+      }
+
+      // Add logical constraints between zvars and svars
+      final GRBLinExpr zsExpr = new GRBLinExpr();
+      zsExpr.addTerms(ones, terms, 0, collect(zvars[j], terms));
+      zsExpr.addTerm(-1, svars[j]);
+      lhs[c] = zsExpr;
+      senses[c] = GRB.LESS_EQUAL;
+      rhs[c] = 1;
+      if (named) {
+        constrNames[c] = "_s";
+      }
+      ++c;
+
+      // Add new constraints between svars and cardinality of Fj
+      final GRBLinExpr sExpr = new GRBLinExpr();
+      sExpr.addTerm(1, svars[j]);
+      lhs[c] = sExpr;
+      senses[c] = GRB.LESS_EQUAL;
+      rhs[c] = familySize - 1;
+      if (named) {
+        constrNames[c] = "_new";
+      }
+      ++c;
+    }
+
+    // Add maximum capacity constraints, unless the items that can go in
+    // the knapsack never exceed its capacity
+    for (int k = 0; k < nKnapsacks; ++k) {
+      for (int r = 0; r < nResources; ++r) {
+        int n = 0;
+        long demand = 0;
+        for (int i = 0; i < nItems; ++i) {
+          final int weight = itemResources[i * nResources + r];
+          if (yvars[i][k] != null && weight != 0) {
+            coeffs[n] = weight;
+            terms[n++] = yvars[i][k];
+            demand += weight;
+          }
+        }
+        final int capacity = capacities[k * nResources + r];
+        if (demand <= capacity) {
+          continue;
+        }
+        final GRBLinExpr expr = new GRBLinExpr();
+        expr.addTerms(coeffs, terms, 0, n);
+        lhs[c] = expr;
+        senses[c] = GRB.LESS_EQUAL;
+        rhs[c] = capacity;
+        if (named) {
+          constrNames[c] = "_r";
+        }
+        ++c;
+      }
+    }
+
+    // Order the knapsacks of each class by load, each one against the
+    // previous member of its class
+    if (knapsackClasses != null) {
+      final int[] previous = new int[nKnapsacks];
+      for (int k = 0; k < nKnapsacks; ++k) {
+        previous[k] = -1;
+        if (knapsackClasses[k] == k) {
+          continue;
+        }
+        for (int h = k-1; h >= 0 && previous[k] == -1; --h) {
+          if (knapsackClasses[h] == knapsackClasses[k]) {
+            previous[k] = h;
+          }
+        }
+        final GRBLinExpr expr = new GRBLinExpr();
+        for (int i = 0; i < nItems; ++i) {
+          if (yvars[i][k] != null) {
+            final double weight = itemWeight(compiled, i);
+            expr.addTerm(weight, yvars[i][previous[k]]);
+            expr.addTerm(-weight, yvars[i][k]);
+          }
+        }
+        lhs[c] = expr;
+        senses[c] = GRB.GREATER_EQUAL;
+        if (named) {
+          constrNames[c] = "_sym";
+        }
+        ++c;
+      }
+      model.set(GRB.IntParam.Symmetry, 2);
+    }
+    if (c < maxConstrs) {
+      lhs = Arrays.copyOf(lhs, c);
+      senses = Arrays.copyOf(senses, c);
+      rhs = Arrays.copyOf(rhs, c);
+      constrNames = named ? Arrays.copyOf(constrNames, c) : null;
+    }
+    model.addConstrs(lhs, senses, rhs, constrNames);
+
+    CutSeparator cutSeparator = null;
+    if (options.cutMillis() > 0) {
+      cutSeparator = new CutSeparator(xvars, svars, yvars, zvars, compiled, options.cutMillis());
+      model.set(GRB.IntParam.PreCrush, 1);
+    }
+
+    final CallbackExecutionInfo executionInfo = new CallbackExecutionInfo();
+    model.setCallback(new MkfspCallback(executionInfo, cutSeparator));
+    model.update();
+
+    return new ModelVars(model, xvars, yvars, zvars, svars, executionInfo, knapsackClasses, cutSeparator);
+  }
+
+  /**
+   * Sets the MIP start of every variable of the model from the given
+   * solution with a single call: y from the assignment, x for the selected
+   * families, z for the knapsacks used by each family and s for its number
+   * of splits. Variables left out of the model are skipped.
+   *
+   * @param modelVars  a model built for {@code instance}
+   * @param instance   the instance of the model
+   * @param solution   the knapsack of each item or -1, as in
+   *                   {@link Instance#checkFeasibility}
+   * @throws GRBException
+   */
+  public static void setStart(final ModelVars modelVars, final CompiledInstance instance, final int[] solution)
+      throws GRBException {
+    final int maxVars = maxVars(instance);
+    final GRBVar[] vars = new GRBVar[maxVars];
+    final double[] values = new double[maxVars];
+    final int n = startValues(modelVars, instance, solution, vars, values);
+    modelVars.model().set(GRB.DoubleAttr.Start, Arrays.copyOf(vars, n), Arrays.copyOf(values, n));
+  }
+
+  /**
+   * Sets one MIP start per solution, as {@link #setStart} does, through
+   * the {@code NumStart} attribute and the {@code StartNumber} parameter.
+   * Gurobi tries them all and keeps the best feasible one.
+   *
+   * @param modelVars  a model built for {@code instance}
+   * @param instance   the instance of the model
+   * @param solutions  the knapsack of each item or -1, for every start
+   * @throws GRBException
+   */
+  public static void setStarts(final ModelVars modelVars, final CompiledInstance instance,
+      final List<int[]> solutions) throws GRBException {
+    final GRBModel model = modelVars.model();
+    final int maxVars = maxVars(instance);
+    final GRBVar[] vars = new GRBVar[maxVars];
+    final double[] values = new double[maxVars];
+    model.set(GRB.IntAttr.NumStart, solutions.size());
+    model.update();
+    for (int s = 0; s < solutions.size(); ++s) {
+      model.set(GRB.IntParam.StartNumber, s);
+      final int n = startValues(modelVars, instance, solutions.get(s), vars, values);
+      model.set(GRB.DoubleAttr.Start, Arrays.copyOf(vars, n), Arrays.copyOf(values, n));
+    }
+    model.set(GRB.IntParam.StartNumber, 0);
+  }
+
+  /**
+   * Makes the model trade incumbents with the given exchange while it is
+   * optimized: at the MIP nodes the callback injects the heuristic solution
+   * when it is better than Gurobi's incumbent, and every new MIP solution
+   * is passed back to the exchange. Heuristic solutions that use variables
+   * left out of the model are not injected.
+   *
+   * @param modelVars  a model built for {@code instance}
+   * @param instance   the instance of the model
+   * @param exchange   where the heuristic solutions come from and the
+   *                   MIP solutions go
+   * @throws GRBException
+   */
+  public static void cooperate(final ModelVars modelVars, final CompiledInstance instance,
+      final IncumbentExchange exchange) throws GRBException {
+    modelVars.model().setCallback(new MkfspCallback(modelVars.executionInfo(), modelVars, instance, exchange));
+  }
+
+  private static int maxVars(final CompiledInstance instance) {
+    return instance.nFamilies() * (2 + instance.nKnapsacks()) + instance.nItems() * instance.nKnapsacks();
+  }
+
+  /**
+   * Permutes the knapsacks of each symmetry class of the model so that the
+   * given solution satisfies the load ordering constraints: the loads of a
+   * class are sorted in non increasing order, ties keep their order.
+   *
+   * @param modelVars  a model built for {@code instance}
+   * @param instance   the instance of the model
+   * @param solution   the knapsack of each item or -1
+   * @return           the permuted solution, or {@code solution} itself if
+   *                   the model has no symmetry breaking constraints
+   */
+  public static int[] canonical(final ModelVars modelVars, final CompiledInstance instance, final int[] solution) {
+    final int[] knapsackClasses = modelVars.knapsackClasses();
+    if (knapsackClasses == null) {
+      return solution;
+    }
+    final int nKnapsacks = instance.nKnapsacks();
+    final double[] loads = new double[nKnapsacks];
+    for (int i = 0; i < solution.length; ++i) {
+      if (solution[i] >= 0) {
+        loads[solution[i]] += itemWeight(instance, i);
+      }
+    }
+
+    final int[] target = new int[nKnapsacks];
+    final Integer[] members = new Integer[nKnapsacks];
+    for (int k = 0; k < nKnapsacks; ++k) {
+      if (knapsackClasses[k] != k) {
+        continue;
+      }
+      int n = 0;
+      for (int h = k; h < nKnapsacks; ++h) {
+        if (knapsackClasses[h] == k) {
+          members[n++] = h;
+        }
+      }
+      final int[] positions = new int[n];
+      for (int t = 0; t < n; ++t) {
+        positions[t] = members[t];
+      }
+      Arrays.sort(members, 0, n, (a, b) -> Double.compare(loads[b], loads[a]));
+      for (int t = 0; t < n; ++t) {
+        target[members[t]] = positions[t];
+      }
+    }
+
+    final int[] permuted = new int[solution.length];
+    for (int i = 0; i < solution.length; ++i) {
+      permuted[i] = solution[i] >= 0 ? target[solution[i]] : -1;
+    }
+    return permuted;
+  }
+
+  /**
+   * Groups the knapsacks that are interchangeable in the model: they have
+   * the same capacities and, with a reduction, the same pruned items.
+   *
+   * @return for each knapsack the lowest index of its class, or null if
+   *         every class has one knapsack
+   */
+  private static int[] symmetryClasses(final CompiledInstance instance, final ModelReduction reduction) {
+    final int nItems = instance.nItems();
+    final int nKnapsacks = instance.nKnapsacks();
+    final int[] capacityClasses = Preprocessor.knapsackClasses(instance);
+    final int[] classes = new int[nKnapsacks];
+    boolean symmetric = false;
+    for (int k = 0; k < nKnapsacks; ++k) {
+      classes[k] = k;
+      for (int h = capacityClasses[k]; h < k && classes[k] == k; ++h) {
+        if (classes[h] != h || capacityClasses[h] != capacityClasses[k]) {
+          continue;
+        }
+        boolean samePruning = true;
+        for (int i = 0; i < nItems && reduction != null && samePruning; ++i) {
+          samePruning = reduction.isPruned(i, h) == reduction.isPruned(i, k);
+        }
+        if (samePruning) {
+          classes[k] = h;
+        }
+      }
+      symmetric |= classes[k] != k;
+    }
+    return symmetric ? classes : null;
+  }
+
+  /**
+   * @return the total demand of item {@code i}, summed over the resources
+   */
+  private static double itemWeight(final CompiledInstance instance, final int i) {
+    final int nResources = instance.nResources();
+    final int[] itemResources = instance.itemResources();
+    double weight = 0;
+    for (int r = 0; r < nResources; ++r) {
+      weight += itemResources[i * nResources + r];
+    }
+    return weight;
+  }
+
+  /**
+   * Writes the value of every variable of the model for the given solution
+   * at the beginning of {@code vars} and {@code values}, after bringing it
+   * to the order of the symmetry breaking constraints.
+   *
+   * @return the number of variables written
+   */
+  private static int startValues(final ModelVars modelVars, final CompiledInstance instance, final int[] assignment,
+      final GRBVar[] vars, final double[] values) {
+    final int[] solution = canonical(modelVars, instance, assignment);
+    final int nFamilies = instance.nFamilies();
+    final int nKnapsacks = instance.nKnapsacks();
+    final int[] firstItems = instance.firstItems();
+    final int[] familyEnd = instance.familyEnd();
+    final GRBVar[] xvars = modelVars.xvars();
+    final GRBVar[][] yvars = modelVars.yvars();
+    final GRBVar[][] zvars = modelVars.zvars();
+    final GRBVar[] svars = modelVars.svars();
+
+    final boolean[] used = new boolean[nKnapsacks];
+    int n = 0;
+    for (int j = 0; j < nFamilies; ++j) {
+      if (xvars[j] == null) {
+        continue;
+      }
+      Arrays.fill(used, false);
+      boolean selected = true;
+      for (int i = firstItems[j]; i < familyEnd[j]; ++i) {
+        final int assigned = solution[i];
+        selected &= assigned >= 0;
+        for (int k = 0; k < nKnapsacks; ++k) {
+          if (yvars[i][k] != null) {
+            vars[n] = yvars[i][k];
+            values[n++] = assigned == k ? 1 : 0;
+          }
+        }
+        if (assigned >= 0) {
+          used[assigned] = true;
+        }
+      }
+
+      int usedCount = 0;
+      for (int k = 0; k < nKnapsacks; ++k) {
+        if (used[k]) {
+          usedCount += 1;
+        }
+        if (zvars[j][k] != null) {
+          vars[n] = zvars[j][k];
+          values[n++] = used[k] ? 1 : 0;
+        }
+      }
+      vars[n] = xvars[j];
+      values[n++] = selected ? 1 : 0;
+      vars[n] = svars[j];
+      values[n++] = selected ? usedCount - 1 : 0;
+    }
+    return n;
+  }
+
+  /**
+   * @return true if every assignment of the solution has a variable in the
+   *         model
+   */
+  private static boolean isRepresentable(final ModelVars modelVars, final int[] solution) {
+    final GRBVar[][] yvars = modelVars.yvars();
+    for (int i = 0; i < solution.length; ++i) {
+      if (solution[i] >= 0 && yvars[i][solution[i]] == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Copies the non null variables of {@code vars} at the beginning of
+   * {@code terms}.
+   *
+   * @return the number of copied variables
+   */
+  private static int collect(final GRBVar[] vars, final GRBVar[] terms) {
+    int n = 0;
+    for (final GRBVar var: vars) {
+      if (var != null) {
+        terms[n++] = var;
+      }
+    }
+    return n;
+  }
+
+  public static class CallbackExecutionInfo {
+    public double startTime;
+    public double objValue;
+    public List<double[]> history = new ArrayList<>();
+  }
+
+  private static class MkfspCallback extends GRBCallback {
+    private CallbackExecutionInfo executionInfo;
+    private final CutSeparator cutSeparator;
+
+    // Only set in cooperative mode, see Model.cooperate
+    private final ModelVars modelVars;
+    private final CompiledInstance instance;
+    private final IncumbentExchange exchange;
+    private GRBVar[] yFlat;
+    private int[] yItem;
+    private int[] yKnapsack;
+    private int[] lastInjected;
+
+    public MkfspCallback(final CallbackExecutionInfo executionInfo, final CutSeparator cutSeparator){
+      this(executionInfo, cutSeparator, null, null, null);
+    }
+
+    public MkfspCallback(final CallbackExecutionInfo executionInfo, final ModelVars modelVars,
+        final CompiledInstance instance, final IncumbentExchange exchange) {
+      this(executionInfo, modelVars.cutSeparator(), modelVars, instance, exchange);
+    }
+
+    private MkfspCallback(final CallbackExecutionInfo executionInfo, final CutSeparator cutSeparator,
+        final ModelVars modelVars, final CompiledInstance instance, final IncumbentExchange exchange) {
+      this.executionInfo = executionInfo;
+      this.cutSeparator = cutSeparator;
+      this.modelVars = modelVars;
+      this.instance = instance;
+      this.exchange = exchange;
+      if (exchange != null) {
+        // The y variables that are part of the model, read at once at each MIP solution
+        final GRBVar[][] yvars = modelVars.yvars();
+        int n = 0;
+        for (final GRBVar[] row: yvars) {
+          for (final GRBVar var: row) {
+            n += var != null ? 1 : 0;
+          }
+        }
+        yFlat = new GRBVar[n];
+        yItem = new int[n];
+        yKnapsack = new int[n];
+        n = 0;
+        for (int i = 0; i < yvars.length; ++i) {
+          for (int k = 0; k < yvars[i].length; ++k) {
+            if (yvars[i][k] != null) {
+              yFlat[n] = yvars[i][k];
+              yItem[n] = i;
+              yKnapsack[n++] = k;
+            }
+          }
+        }
+      }
+    }
+
+    @Override
+    protected void callback() {
+      if (Double.isNaN(executionInfo.startTime)) {
+        executionInfo.startTime = System.currentTimeMillis();
+      }
+
+      try {
+        if (where == GRB.CB_MIPSOL) {
+          final double newMipsolObj = getDoubleInfo(GRB.CB_MIPSOL_OBJ);
+          final double elapsed = getDoubleInfo(GRB.CB_RUNTIME);
+          executionInfo.history.add(new double[] {elapsed, newMipsolObj});
+          System.out.println("TTB: " + (executionInfo.history.get(executionInfo.history.size() - 1)[0]) + "s  Nuova MIP incumbent: " + executionInfo.history.get(executionInfo.history.size() - 1)[1]);
+
+          if (exchange != null) {
+            publishIncumbent();
+          }
+        } else if (where == GRB.CB_MIPNODE) {
+          if (exchange != null) {
+            injectHeuristicSolution();
+          }
+          if (cutSeparator != null && !cutSeparator.isExhausted()
+              && getIntInfo(GRB.CB_MIPNODE_STATUS) == GRB.Status.OPTIMAL) {
+            addCuts();
+          }
+        }
+      } catch (final Exception e) {
+        System.out.println(e.getMessage());
+      }
+    }
+
+    private void addCuts() throws GRBException {
+      final List<CutSeparator.Cut> cuts = cutSeparator.separate(getNodeRel(cutSeparator.xvars()),
+          getNodeRel(cutSeparator.svars()), getNodeRel(cutSeparator.yvars()), getNodeRel(cutSeparator.zvars()));
+      for (final CutSeparator.Cut cut: cuts) {
+        addCut(cut.expr(), cut.sense(), cut.rhs());
+      }
+    }
+
+    private void publishIncumbent() throws GRBException {
+      final double[] values = getSolution(yFlat);
+      final int[] solution = new int[instance.nItems()];
+      Arrays.fill(solution, -1);
+      for (int t = 0; t < values.length; ++t) {
+        if (values[t] > 0.5) {
+          solution[yItem[t]] = yKnapsack[t];
+        }
+      }
+      exchange.offerSolverSolution(solution);
+    }
+
+    private void injectHeuristicSolution() throws GRBException {
+      final int[] solution = exchange.solutionBetterThan(getDoubleInfo(GRB.CB_MIPNODE_OBJBST));
+      // The same solution is offered once, Gurobi keeps it if it is feasible
+      if (solution == null || solution == lastInjected) {
+        return;
+      }
+      lastInjected = solution;
+      if (!isRepresentable(modelVars, solution)) {
+        return;
+      }
+      final int maxVars = maxVars(instance);
+      final GRBVar[] vars = new GRBVar[maxVars];
+      final double[] values = new double[maxVars];
+      final int n = startValues(modelVars, instance, solution, vars, values);
+      setSolution(Arrays.copyOf(vars, n), Arrays.copyOf(values, n));
+      final double objValue = useSolution();
+      if (Math.abs(objValue) < GRB.INFINITY) {
+        System.out.println("Heuristic solution injected: " + objValue);
+      }
+    }
+  }
+}
@@ -0,0 +1,49 @@
+package it.unibs.mao.optalg.mkfsp.gurobi;
+
+import it.unibs.mao.optalg.mkfsp.ModelReduction;
+
+/**
+ * The options used by {@link Model#build} to construct a Gurobi model.
+ *
+ * @param namedVars  whether variables and constraints get readable names,
+ *                   e.g. {@code y[i,k]}. Names are only useful to inspect
+ *                   written models and cost one string per variable, they
+ *                   are disabled unless {@code -Dmkfsp.model.namedVars=true}
+ * @param reduction  the parts of the model to leave out, or null to build
+ *                   the whole model
+ * @param symmetryBreaking  whether the knapsacks with identical capacities
+ *                   are ordered by their load, see {@link Model#build}. It
+ *                   is enabled unless
+ *                   {@code -Dmkfsp.model.symmetryBreaking=false}
+ * @param cutMillis  the total time the {@link CutSeparator} can spend at
+ *                   the MIP nodes, 0 to separate no cuts. It is read from
+ *                   {@code -Dmkfsp.model.cutTime}, in milliseconds, and
+ *                   is 0 by default
+ */
+public record ModelOptions(boolean namedVars, ModelReduction reduction, boolean symmetryBreaking, long cutMillis) {
+
+  /**
+   * @return the options read from the system properties
+   */
+  public static ModelOptions defaults() {
+    return new ModelOptions(Boolean.getBoolean("mkfsp.model.namedVars"), null,
+        Boolean.parseBoolean(System.getProperty("mkfsp.model.symmetryBreaking", "true")),
+        Long.getLong("mkfsp.model.cutTime", 0));
+  }
+
+  public ModelOptions withNamedVars(final boolean namedVars) {
+    return new ModelOptions(namedVars, reduction, symmetryBreaking, cutMillis);
+  }
+
+  public ModelOptions withReduction(final ModelReduction reduction) {
+    return new ModelOptions(namedVars, reduction, symmetryBreaking, cutMillis);
+  }
+
+  public ModelOptions withSymmetryBreaking(final boolean symmetryBreaking) {
+    return new ModelOptions(namedVars, reduction, symmetryBreaking, cutMillis);
+  }
+
+  public ModelOptions withCutMillis(final long cutMillis) {
+    return new ModelOptions(namedVars, reduction, symmetryBreaking, cutMillis);
+  }
+}
@@ -0,0 +1,29 @@
+package it.unibs.mao.optalg.mkfsp.gurobi;
+
+import gurobi.GRBModel;
+import gurobi.GRBVar;
+
+/**
+ * An immutable class that holds the Gurobi model of a MKFSP instance together
+ * with its related variable objects divided by family.
+ *
+ * When the model has been built with a {@link ModelReduction} the variables
+ * that have been left out are null: {@code xvars[j]}, {@code svars[j]} and
+ * the row {@code zvars[j]} for the families that can not be selected,
+ * {@code yvars[i][k]} for the pruned pairs and {@code zvars[j][k]} when no
+ * item of family {@code j} can go in knapsack {@code k}. Their value is 0.
+ *
+ * {@code knapsackClasses} holds, for each knapsack, the lowest index of a
+ * knapsack that is interchangeable with it and ordered after it by the
+ * symmetry breaking constraints, or is null when the model has none.
+ * {@code cutSeparator} is null when the model separates no cuts.
+ */
+public record ModelVars(
+    GRBModel model,
+    GRBVar[] xvars,
+    GRBVar[][] yvars,
+    GRBVar[][] zvars,
+    GRBVar[] svars,
+    Model.CallbackExecutionInfo executionInfo,
+    int[] knapsackClasses,
+    CutSeparator cutSeparator) {}
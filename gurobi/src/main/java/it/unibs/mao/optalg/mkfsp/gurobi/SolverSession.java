@@ -0,0 +1,123 @@
+package it.unibs.mao.optalg.mkfsp.gurobi;
+
+import gurobi.GRB;
+import gurobi.GRBEnv;
+import gurobi.GRBException;
+import it.unibs.mao.optalg.mkfsp.CompiledInstance;
+import it.unibs.mao.optalg.mkfsp.MipBackend;
+import it.unibs.mao.optalg.mkfsp.MipException;
+import it.unibs.mao.optalg.mkfsp.MipModel;
+import it.unibs.mao.optalg.mkfsp.MipSession;
+import it.unibs.mao.optalg.mkfsp.ModelReduction;
+
+/**
+ * Owns a Gurobi environment that is reused by all the models a worker
+ * builds, so that the license is checked out once instead of once per
+ * instance. Gurobi environments must not be used by several threads at
+ * the same time: open one session per worker thread.
+ *
+ * Parameters that depend on the model, such as the log file or the time
+ * limit, must be set on the model and not on {@link #env()}.
+ */
+public final class SolverSession implements MipSession {
+  private final GRBEnv env;
+  private final MipBackend backend;
+  private boolean closed;
+
+  private SolverSession(final GRBEnv env, final MipBackend backend) {
+    this.env = env;
+    this.backend = backend;
+  }
+
+  /**
+   * Opens a session whose models print the Gurobi log.
+   *
+   * @see #open(boolean)
+   */
+  public static SolverSession open() throws GRBException {
+    return open(true);
+  }
+
+  /**
+   * Starts a new Gurobi environment.
+   *
+   * @param output  whether the models built in the session print the
+   *                Gurobi log
+   * @return        the new session
+   * @throws GRBException if the environment can not be started, e.g.
+   *                      because no license is available
+   */
+  public static SolverSession open(final boolean output) throws GRBException {
+    return open(output, new GurobiBackend());
+  }
+
+  static SolverSession open(final boolean output, final MipBackend backend) throws GRBException {
+    final GRBEnv env = new GRBEnv(true);
+    try {
+      env.set(GRB.IntParam.OutputFlag, output ? 1 : 0);
+      env.start();
+    } catch (final GRBException e) {
+      env.dispose();
+      throw e;
+    }
+    return new SolverSession(env, backend);
+  }
+
+  /**
+   * @return the environment models must be created in
+   * @throws IllegalStateException if the session has been closed
+   */
+  public GRBEnv env() {
+    if (closed) {
+      throw new IllegalStateException("The solver session has been closed");
+    }
+    return env;
+  }
+
+  @Override
+  public MipBackend backend() {
+    return backend;
+  }
+
+  /**
+   * Builds the model with the {@link ModelOptions#defaults() default
+   * options} and the given reduction.
+   */
+  @Override
+  public MipModel build(final CompiledInstance instance, final ModelReduction reduction) throws MipException {
+    try {
+      return new GurobiModel(Model.build(instance, env(), ModelOptions.defaults().withReduction(reduction)), instance);
+    } catch (final GRBException e) {
+      throw new MipException(e);
+    }
+  }
+
+  /**
+   * Sets the Threads parameter of the environment, which the models built
+   * afterwards inherit.
+   */
+  @Override
+  public void setThreads(final int threads) throws MipException {
+    try {
+      env().set(GRB.IntParam.Threads, threads);
+    } catch (final GRBException e) {
+      throw new MipException(e);
+    }
+  }
+
+  /**
+   * Releases the environment and its license. Models built in the session
+   * must have been disposed before. Closing a session twice has no effect.
+   */
+  @Override
+  public void close() throws MipException {
+    if (!closed) {
+      closed = true;
+      try {
+        env.dispose();
+      } catch (final GRBException e) {
+        throw new MipException(e);
+      }
+    }
+  }
+}